@@ -2,7 +2,7 @@
 set -uo pipefail
 
 # set test 
-JAVA_TEST_CMD=(mvn -Dtest=IntegrationTests test)
+JAVA_TEST_CMD=(mvn -Pparallel -Dtest=IntegrationTests test)
 SWIFT_TEST_CMD=(swift test --filter SignalRClientIntegrationTests)
 DOTNET_TEST_CMD=(dotnet test --logger:"console;verbosity=normal")
 REPO_ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
@@ -121,7 +121,7 @@ if [[ -d "$ARTIFACT_DIR/signalrservice/java/target" ]]; then
   log "Running Java tests..."
   (
     cd "$ARTIFACT_DIR/signalrservice/java"
-    mvn surefire:test -Dtest=IntegrationTests
+    mvn -Pparallel surefire:test -Dtest=IntegrationTests
   )
   java_status=$?
   if [[ $java_status -ne 0 ]]; then
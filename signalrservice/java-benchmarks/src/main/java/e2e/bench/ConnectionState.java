@@ -0,0 +1,46 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.Protocol;
+import e2e.harness.Transport;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * One started {@link HubConnection} per benchmark thread. Subclasses register handlers in
+ * {@link #configure(HubConnection)}, which runs before {@code start()} as in the tests.
+ * Every benchmark using it runs once per hub protocol, over the negotiated transport unless
+ * {@code -p transport=...} selects one.
+ */
+@State(Scope.Thread)
+public class ConnectionState {
+    @Param({"JSON", "MESSAGEPACK"})
+    Protocol protocol;
+
+    @Param({"ALL"})
+    Transport transport;
+
+    HubConnection connection;
+
+    @Setup(Level.Trial)
+    public void connect(HubTargetState hub) {
+        connection = protocol.builder(hub.target.url(), transport).build();
+        configure(connection);
+        connection.start().blockingAwait();
+    }
+
+    protected void configure(HubConnection connection) {
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        connection.stop().blockingAwait();
+    }
+}
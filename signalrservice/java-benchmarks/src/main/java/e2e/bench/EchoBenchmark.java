@@ -0,0 +1,54 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.Payload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code send("Echo", ...)} to {@code EchoBack} round trip, the path of {@code testSendAndOnCore},
+ * for each of its payload types.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EchoBenchmark {
+    private static final String MESSAGE = "Hello, World!";
+
+    @State(Scope.Thread)
+    public static class EchoState extends ConnectionState {
+        @Param({"STRING", "INT", "DOUBLE", "BOOLEAN", "MAP", "CUSTOM"})
+        Payload payload;
+
+        final Semaphore echoes = new Semaphore(0);
+
+        @Override
+        protected void configure(HubConnection connection) {
+            connection.on("EchoBack", (arg1, arg2) -> echoes.release(), String.class, Object.class);
+        }
+    }
+
+    @Benchmark
+    public void sendEchoRoundTrip(EchoState state) throws InterruptedException {
+        state.connection.send("Echo", MESSAGE, state.payload.value());
+        if (!state.echoes.tryAcquire(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("EchoBack not received within 10 seconds");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import e2e.harness.HubTarget;
+import e2e.harness.Metrics;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * The hub shared by all benchmark threads of a fork: the in-process stand-in hub unless
+ * {@code SIGNALR_INTEGRATION_TEST_URL} points somewhere else. Each fork exports its harness
+ * metrics to {@code target/metrics-<benchmark id>.prom} and {@code .json} when it exits.
+ */
+@State(Scope.Benchmark)
+public class HubTargetState {
+    HubTarget target;
+
+    @Setup(Level.Trial)
+    public void start(BenchmarkParams params) {
+        Metrics.global().fileName("metrics-" + params.id().replaceAll("[^A-Za-z0-9._=-]", "_"));
+        target = HubTarget.resolve(HubTarget.IN_PROCESS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        target.close();
+    }
+}
@@ -0,0 +1,43 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import e2e.harness.Payload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code invoke(type, "Invoke", ...)} latency for each payload type of {@code testInvoke}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvokeBenchmark {
+    private static final String MESSAGE = "Hello, World!";
+
+    @State(Scope.Thread)
+    public static class InvokeState extends ConnectionState {
+        @Param({"STRING", "INT", "DOUBLE", "BOOLEAN", "MAP", "CUSTOM"})
+        Payload payload;
+    }
+
+    @Benchmark
+    public Object invoke(InvokeState state) {
+        return state.connection.invoke(state.payload.type(), "Invoke", MESSAGE, state.payload.value())
+            .timeout(10, TimeUnit.SECONDS)
+            .blockingGet();
+    }
+}
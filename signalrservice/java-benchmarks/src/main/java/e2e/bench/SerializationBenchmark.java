@@ -0,0 +1,55 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import com.microsoft.signalr.HubProtocol;
+import e2e.harness.Payload;
+import e2e.harness.Protocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side CPU and allocation cost of writing the {@code Echo} invocation of
+ * {@code testSendAndOnCore} under each hub protocol, without the network in the way.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private static final String MESSAGE = "Hello, World!";
+
+    @Param({"JSON", "MESSAGEPACK"})
+    Protocol protocol;
+
+    @Param({"STRING", "INT", "DOUBLE", "BOOLEAN", "MAP", "CUSTOM"})
+    Payload payload;
+
+    private HubProtocol hubProtocol;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hubProtocol = protocol.hubProtocol();
+    }
+
+    @Benchmark
+    public ByteBuffer writeInvocation() {
+        return Protocol.encodeInvocation(hubProtocol, "Echo", MESSAGE, payload.value());
+    }
+}
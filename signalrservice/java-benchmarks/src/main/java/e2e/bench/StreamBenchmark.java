@@ -0,0 +1,38 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code stream(String.class, "Stream")} item throughput. Each invocation receives the three
+ * items of {@code TestHub.Stream}, so the score is items per second including stream setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamBenchmark {
+    private static final int ITEMS_PER_STREAM = 3;
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS_PER_STREAM)
+    public List<String> streamItems(ConnectionState state) {
+        return state.connection.stream(String.class, "Stream")
+            .toList()
+            .timeout(10, TimeUnit.SECONDS)
+            .blockingGet();
+    }
+}
@@ -0,0 +1,65 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.bench;
+
+import e2e.harness.UploadThroughput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-stream upload throughput into {@code TestHub.Upload*}: {@value #ITEMS} items per
+ * invocation, sent one per message or batched into arrays, through {@code send}, {@code invoke}
+ * or {@code stream}. The score is items per second up to the hub's last acknowledgment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UploadBenchmark {
+    static final int ITEMS = 100_000;
+
+    @State(Scope.Thread)
+    public static class UploadState extends ConnectionState {
+        @Param({"SEND", "INVOKE", "STREAM"})
+        UploadThroughput.Mode mode;
+
+        @Param({"1", "10", "100"})
+        int batchSize;
+
+        @Param({"16"})
+        int itemSize;
+
+        UploadThroughput upload;
+
+        @Setup(Level.Trial)
+        public void configureUpload() {
+            upload = new UploadThroughput(new UploadThroughput.Options()
+                .items(ITEMS).itemSize(itemSize).batchSize(batchSize).mode(mode).timeoutSeconds(60));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public UploadThroughput.Result upload(UploadState state) throws InterruptedException {
+        UploadThroughput.Result result = state.upload.run(state.connection);
+        if (result.error() != null) {
+            throw new IllegalStateException(result.error());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+# Performance regression gate: records the same scenarios with two SignalR client versions and
+# fails when the candidate is significantly slower. See "Regression gate" in README.md.
+#
+#   ./run-regression-gate.sh <baseline version> [candidate version]
+#
+# The candidate defaults to the version pinned in pom.xml. Extra -D options go in GATE_ARGS,
+# e.g. GATE_ARGS="-Dregression.rounds=20 -Dsignalr.protocols=json".
+set -euo pipefail
+
+BASELINE=${1:?usage: $0 <baseline version> [candidate version]}
+CANDIDATE=${2:-}
+cd "$(dirname "${BASH_SOURCE[0]}")"
+read -r -a EXTRA <<< "${GATE_ARGS:-}"
+
+echo "==> Recording baseline $BASELINE"
+mvn -B ${EXTRA[@]+"${EXTRA[@]}"} -Dsignalr.version="$BASELINE" -Dtest=ClientRegressionTests#testRecord -Dregression.label=baseline test
+
+echo "==> Recording candidate ${CANDIDATE:-from pom.xml}"
+mvn -B ${EXTRA[@]+"${EXTRA[@]}"} ${CANDIDATE:+-Dsignalr.version="$CANDIDATE"} -Dtest=ClientRegressionTests#testRecord -Dregression.label=candidate test
+
+echo "==> Comparing"
+mvn -B ${EXTRA[@]+"${EXTRA[@]}"} -Dtest=ClientRegressionTests#testCompare -Dregression.compare=baseline,candidate test
@@ -2,13 +2,15 @@
 // Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
 
 import com.microsoft.signalr.HubConnection;
-import com.microsoft.signalr.HubConnectionBuilder;
+import e2e.harness.Protocol;
 
 public class Chat {
     public static void main(String[] args) throws Exception {
-        String url = "http://localhost:8080/test";
+        // Usage: Chat [url] [json|messagepack]
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/test";
+        Protocol protocol = args.length > 1 ? Protocol.of(args[1]) : Protocol.JSON;
 
-        HubConnection hubConnection = HubConnectionBuilder.create(url).build();
+        HubConnection hubConnection = protocol.builder(url).build();
         
         hubConnection.start().blockingAwait();
 
@@ -0,0 +1,223 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.Function1Single;
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.Subscription;
+import io.reactivex.rxjava3.core.Single;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput version of {@code testClientResultCore}: {@code TestHub.InvokeClientResults} has the
+ * hub keep N {@code ClientResult} invocations in flight against one connection, while the Java
+ * handler answers immediately, after an asynchronous delay, or after blocking its thread. The
+ * hub reports every round trip; the handler tracks how many invocations the client actually
+ * runs at once, which shows where it serializes responses.
+ */
+public final class ClientResultThroughput {
+    /** How the {@code ClientResult} handler produces its {@code Single}. */
+    public enum Handler {
+        /** {@code Single.just(message)}. */
+        IMMEDIATE,
+        /** {@code Single.just(message).delay(delay)}: slow, without holding a thread. */
+        ASYNC,
+        /** Sleeps for the delay, then {@code Single.just(message)}: holds the client's thread. */
+        BLOCKING
+    }
+
+    private static final String MESSAGE = "Hello, World!";
+
+    private final Options options;
+
+    public ClientResultThroughput(Options options) {
+        this.options = options;
+    }
+
+    public Result run(HubConnection connection, int concurrency) {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Subscription handler = connection.onWithResult("ClientResult", (Function1Single<String, String>) message -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return respond(message).doFinally(inFlight::decrementAndGet);
+        }, String.class);
+        Result result = new Result(options, concurrency);
+        long begin = System.nanoTime();
+        try {
+            long[] latencies = connection.invoke(long[].class, "InvokeClientResults", MESSAGE,
+                    options.invocations, concurrency)
+                .timeout(options.timeoutSeconds, TimeUnit.SECONDS)
+                .blockingGet();
+            for (long micros : latencies) {
+                if (micros < 0) {
+                    result.failures++;
+                } else {
+                    LatencyRecorder.record(result.latency, TimeUnit.MICROSECONDS.toNanos(micros));
+                }
+            }
+        } catch (RuntimeException e) {
+            result.error = String.valueOf(e);
+        } finally {
+            result.elapsedNanos = System.nanoTime() - begin;
+            result.clientMaxInFlight = maxInFlight.get();
+            handler.unsubscribe();
+        }
+        return result;
+    }
+
+    private Single<String> respond(String message) {
+        switch (options.handler) {
+            case ASYNC:
+                return Single.just(message).delay(options.delayMillis, TimeUnit.MILLISECONDS);
+            case BLOCKING:
+                try {
+                    Thread.sleep(options.delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Single.error(e);
+                }
+                return Single.just(message);
+            default:
+                return Single.just(message);
+        }
+    }
+
+    /**
+     * The first concurrency that raised throughput by less than 20% over the previous one, or
+     * null if every step still scaled. Expects results in increasing concurrency.
+     */
+    public static Integer saturationPoint(List<Result> results) {
+        for (int i = 1; i < results.size(); i++) {
+            if (results.get(i).invocationsPerSecond() < results.get(i - 1).invocationsPerSecond() * 1.2) {
+                return results.get(i).concurrency;
+            }
+        }
+        return null;
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code clientResult.*} properties. */
+    public static final class Options {
+        int invocations = 10_000;
+        Handler handler = Handler.ASYNC;
+        long delayMillis = 10;
+        int timeoutSeconds = 300;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.invocations = Integer.getInteger("clientResult.invocations", options.invocations);
+            options.handler = Handler.valueOf(
+                System.getProperty("clientResult.handler", options.handler.name()).toUpperCase(Locale.ROOT));
+            options.delayMillis = Long.getLong("clientResult.delayMillis", options.delayMillis);
+            options.timeoutSeconds = Integer.getInteger("clientResult.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        /** Invocations per run. */
+        public Options invocations(int value) {
+            invocations = value;
+            return this;
+        }
+
+        public Options handler(Handler value) {
+            handler = value;
+            return this;
+        }
+
+        /** Handler delay for {@link Handler#ASYNC} and {@link Handler#BLOCKING}. */
+        public Options delayMillis(long value) {
+            delayMillis = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("invocations", invocations);
+            map.put("handler", handler.name());
+            map.put("delayMillis", delayMillis);
+            return map;
+        }
+    }
+
+    /** Measurements of one run at one concurrency. */
+    public static final class Result {
+        final Options options;
+        final int concurrency;
+        final Histogram latency = new LatencyRecorder().histogram("clientResult", "roundTrip");
+        long elapsedNanos;
+        int failures;
+        int clientMaxInFlight;
+        String error;
+
+        Result(Options options, int concurrency) {
+            this.options = options;
+            this.concurrency = concurrency;
+        }
+
+        public long completed() {
+            return latency.getTotalCount();
+        }
+
+        public int failures() {
+            return failures;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public double invocationsPerSecond() {
+            return elapsedNanos == 0 ? 0 : completed() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Throughput if the client answered every in-flight invocation in parallel, bounded by the
+         * handler delay; 0 for {@link Handler#IMMEDIATE}.
+         */
+        public double idealPerSecond() {
+            return options.handler == Handler.IMMEDIATE || options.delayMillis == 0
+                ? 0 : concurrency * 1000.0 / options.delayMillis;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("concurrency", concurrency);
+            map.put("completed", completed());
+            map.put("failures", failures);
+            map.put("elapsedMs", elapsedNanos / 1e6);
+            map.put("invocationsPerSecond", invocationsPerSecond());
+            if (idealPerSecond() > 0) {
+                map.put("efficiency", invocationsPerSecond() / idealPerSecond());
+            }
+            map.put("clientMaxInFlight", clientMaxInFlight);
+            map.put("roundTrip", LatencyRecorder.summarize(latency));
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s concurrency=%-4d %d/%d in %.0fms  %.0f/s  client in flight<=%d  p50=%.2fms p99=%.2fms p99.9=%.2fms%s",
+                options.handler, concurrency, completed(), options.invocations, elapsedNanos / 1e6,
+                invocationsPerSecond(), clientMaxInFlight,
+                LatencyRecorder.millis(latency.getValueAtPercentile(50)),
+                LatencyRecorder.millis(latency.getValueAtPercentile(99)),
+                LatencyRecorder.millis(latency.getValueAtPercentile(99.9)),
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
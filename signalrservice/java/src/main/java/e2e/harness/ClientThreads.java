@@ -0,0 +1,128 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for blocking-style simulated clients. On Java 21+ every task runs on its own virtual
+ * thread, so 10k+ clients blocked in {@code blockingAwait()} cost no more than their stacks; on
+ * older JVMs tasks share a cached pool of daemon threads. Either way all timeout watchdogs share
+ * one scheduler thread instead of parking a thread per task.
+ *
+ * <p>{@code -Dharness.threads=virtual|platform} overrides the default of virtual when available.
+ * The module still compiles for Java 8, so virtual threads are looked up reflectively.
+ */
+public final class ClientThreads {
+    public static final String PROPERTY = "harness.threads";
+
+    private static final ExecutorService CLIENTS;
+    private static final boolean VIRTUAL;
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+        daemonFactory("client-watchdog-"));
+
+    static {
+        String mode = System.getProperty(PROPERTY, "auto").trim().toLowerCase(Locale.ROOT);
+        ExecutorService virtual = "platform".equals(mode) ? null : newVirtualThreadPerTaskExecutor();
+        if (virtual == null && "virtual".equals(mode)) {
+            throw new IllegalStateException("-D" + PROPERTY + "=virtual requires Java 21 or later, running "
+                + System.getProperty("java.version"));
+        }
+        VIRTUAL = virtual != null;
+        CLIENTS = VIRTUAL ? virtual : Executors.newCachedThreadPool(daemonFactory("client-"));
+    }
+
+    private ClientThreads() {
+    }
+
+    /** Whether client tasks run on virtual threads. */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /** Shared executor for simulated clients; never shut it down. */
+    public static ExecutorService executor() {
+        return CLIENTS;
+    }
+
+    /**
+     * Runs {@code task} on a client thread. If it has not finished after {@code timeout}, the
+     * returned future fails with a {@link TimeoutException} and the task is interrupted.
+     */
+    public static CompletableFuture<Void> submit(Task task, long timeout, TimeUnit unit) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Future<?> running = CLIENTS.submit(() -> {
+            try {
+                task.run();
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException(
+                "Task did not complete within " + timeout + " " + unit.name().toLowerCase(Locale.ROOT)))) {
+                running.cancel(true);
+            }
+        }, timeout, unit);
+        result.whenComplete((ignored, error) -> watchdog.cancel(false));
+        return result;
+    }
+
+    /** Blocking form of {@link #submit}: rethrows the task's own exception, or the timeout. */
+    public static void run(Task task, long timeout, TimeUnit unit) throws Exception {
+        try {
+            submit(task, timeout, unit).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "client-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** A client body; may block and may throw. */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,135 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HttpHubConnectionBuilder;
+import com.microsoft.signalr.HubConnection;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits {@code connection.start()} into its phases. An OkHttp interceptor timestamps the
+ * client's requests; the phases are consecutive slices of the start, so they add up to
+ * {@value #TOTAL}:
+ * <ul>
+ *   <li>{@value #NEGOTIATE}: until the first {@code /negotiate} response;</li>
+ *   <li>{@value #REDIRECT}: until the last {@code /negotiate} response, when the first one
+ *       redirected the client to Azure SignalR Service;</li>
+ *   <li>{@value #UPGRADE}: until the transport answered, the {@code 101} of the WebSocket upgrade
+ *       or the first long poll;</li>
+ *   <li>{@value #HANDSHAKE}: until the hub protocol handshake completed and {@code start()}
+ *       returned.</li>
+ * </ul>
+ * A phase that did not happen, such as negotiate with {@code shouldSkipNegotiate(true)}, is not
+ * recorded. Histograms are kept per mode, e.g. protocol or skip-negotiate.
+ */
+public final class ConnectPhases {
+    public static final String NEGOTIATE = "negotiate";
+    public static final String REDIRECT = "redirect";
+    public static final String UPGRADE = "upgrade";
+    public static final String HANDSHAKE = "handshake";
+    public static final String TOTAL = "total";
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    /**
+     * Builds a connection from {@code builder} with the timing interceptor installed. This replaces
+     * any {@code setHttpClientBuilderCallback} set on the builder.
+     */
+    public Start prepare(String mode, HttpHubConnectionBuilder builder) {
+        return new Start(this, mode, builder);
+    }
+
+    /** {@code {mode: {phase: {count, p50Ms, p99Ms, p999Ms, maxMs}}}}. */
+    public Map<String, Object> toMap() {
+        return recorder.toMap();
+    }
+
+    /** A built, not yet started connection; register handlers on {@link #connection()} first. */
+    public static final class Start implements Interceptor {
+        private final LatencyRecorder recorder;
+        private final String mode;
+        private final HubConnection connection;
+        private final AtomicInteger negotiates = new AtomicInteger();
+        private final AtomicLong firstNegotiateAt = new AtomicLong();
+        private final AtomicLong lastNegotiateAt = new AtomicLong();
+        private final AtomicLong transportAt = new AtomicLong();
+
+        Start(ConnectPhases phases, String mode, HttpHubConnectionBuilder builder) {
+            this.recorder = phases.recorder;
+            this.mode = mode;
+            connection = builder.setHttpClientBuilderCallback(client -> client.addInterceptor(this)).build();
+        }
+
+        public HubConnection connection() {
+            return connection;
+        }
+
+        /** Starts the connection, records its phases and returns the whole start time in nanoseconds. */
+        public long await(long timeout, TimeUnit unit) {
+            long begin = System.nanoTime();
+            connection.start().timeout(timeout, unit).blockingAwait();
+            long end = System.nanoTime();
+
+            phases(begin, negotiates.get(), firstNegotiateAt.get(), lastNegotiateAt.get(), transportAt.get(), end)
+                .forEach((phase, nanos) -> LatencyRecorder.record(recorder.histogram(mode, phase), nanos));
+            return end - begin;
+        }
+
+        /**
+         * The phases of a start from its timestamps, in order; a {@code transportAt} of 0 means no
+         * transport request was seen. Phases that never happened are left out, so they leave no
+         * empty histogram.
+         */
+        static Map<String, Long> phases(long begin, int negotiates, long firstNegotiateAt, long lastNegotiateAt,
+                                        long transportAt, long end) {
+            Map<String, Long> phases = new LinkedHashMap<>();
+            long negotiated = begin;
+            if (negotiates > 0) {
+                phases.put(NEGOTIATE, firstNegotiateAt - begin);
+                negotiated = firstNegotiateAt;
+            }
+            if (negotiates > 1) {
+                phases.put(REDIRECT, lastNegotiateAt - negotiated);
+                negotiated = lastNegotiateAt;
+            }
+            long transported = negotiated;
+            if (transportAt != 0) {
+                phases.put(UPGRADE, transportAt - negotiated);
+                transported = transportAt;
+            }
+            phases.put(HANDSHAKE, end - transported);
+            phases.put(TOTAL, end - begin);
+            return phases;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            long now = System.nanoTime();
+            if (transportAt.get() != 0) {
+                // Polls, sends and the DELETE of stop() come after the start.
+                return response;
+            }
+            if (request.url().encodedPath().endsWith("/negotiate")) {
+                if (negotiates.getAndIncrement() == 0) {
+                    firstNegotiateAt.set(now);
+                }
+                lastNegotiateAt.set(now);
+            } else {
+                transportAt.compareAndSet(0, now);
+            }
+            return response;
+        }
+    }
+}
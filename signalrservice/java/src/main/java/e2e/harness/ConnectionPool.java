@@ -0,0 +1,187 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.HubConnectionState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Warm, started {@link HubConnection}s shared across test cases so each case skips negotiate
+ * and the WebSocket handshake. A {@link Lease} hands out one connection exclusively; releasing
+ * it removes the handlers registered for the pool's client methods and returns it to the pool,
+ * unless it is no longer connected, in which case it is evicted and stopped. The same pattern
+ * serves backend-to-hub fan-out: lease, send, release.
+ *
+ * <p>Every fresh connection's start time and every stop time is measured, so {@link #toMap()}
+ * can estimate the time reuse saved.
+ */
+public final class ConnectionPool implements AutoCloseable {
+    private final Supplier<HubConnection> factory;
+    private final int maxIdle;
+    private final List<String> clientMethods;
+    private final ConcurrentLinkedDeque<HubConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger leases = new AtomicInteger();
+    private final AtomicInteger evicted = new AtomicInteger();
+    private final AtomicInteger stopped = new AtomicInteger();
+    private final AtomicLong startNanos = new AtomicLong();
+    private final AtomicLong stopNanos = new AtomicLong();
+    private final Metrics.Counter opened = Metrics.global().counter(Metrics.CONNECTIONS_OPENED, "scenario", "pool");
+    private final Metrics.Gauge active = Metrics.global().gauge(Metrics.CONNECTIONS_ACTIVE, "scenario", "pool");
+    private final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "pool");
+    private volatile int startTimeoutSeconds = 10;
+    private volatile boolean shutdown;
+
+    /**
+     * @param factory builds a new, unstarted connection
+     * @param maxIdle connections kept warm; 0 starts and stops a connection per lease, which is
+     *                the baseline the savings are measured against
+     * @param clientMethods names passed to {@code connection.on}, removed on every release
+     */
+    public ConnectionPool(Supplier<HubConnection> factory, int maxIdle, String... clientMethods) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+        this.clientMethods = Arrays.asList(clientMethods);
+    }
+
+    public ConnectionPool startTimeoutSeconds(int value) {
+        startTimeoutSeconds = value;
+        return this;
+    }
+
+    /** A started connection, reused if one is idle and still connected. */
+    public Lease acquire() {
+        HubConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (isUsable(connection)) {
+                leases.incrementAndGet();
+                return new Lease(connection);
+            }
+            evict(connection);
+        }
+        HubConnection fresh = factory.get();
+        long begin = System.nanoTime();
+        try {
+            fresh.start().timeout(startTimeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+        } catch (RuntimeException e) {
+            errors.increment();
+            stop(fresh);
+            throw e;
+        }
+        startNanos.addAndGet(System.nanoTime() - begin);
+        opened.increment();
+        active.increment();
+        fresh.onClosed(error -> {
+            active.decrement();
+            if (error != null) {
+                errors.increment();
+            }
+        });
+        created.incrementAndGet();
+        leases.incrementAndGet();
+        return new Lease(fresh);
+    }
+
+    // A connection that closed, with or without an error, is no longer CONNECTED; tracking closes
+    // in a set as well would keep every stopped connection reachable.
+    private boolean isUsable(HubConnection connection) {
+        return connection.getConnectionState() == HubConnectionState.CONNECTED;
+    }
+
+    void release(HubConnection connection) {
+        for (String method : clientMethods) {
+            connection.remove(method);
+        }
+        if (!isUsable(connection)) {
+            evict(connection);
+        } else if (!shutdown && idle.size() < maxIdle) {
+            idle.offerFirst(connection);
+        } else {
+            stop(connection);
+        }
+    }
+
+    private void evict(HubConnection connection) {
+        evicted.incrementAndGet();
+        stop(connection);
+    }
+
+    private void stop(HubConnection connection) {
+        long begin = System.nanoTime();
+        try {
+            connection.stop().timeout(startTimeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+        } catch (RuntimeException e) {
+            // Already broken; it is out of the pool either way.
+        }
+        stopNanos.addAndGet(System.nanoTime() - begin);
+        stopped.incrementAndGet();
+    }
+
+    /** Stops every idle connection. Leased connections are stopped when released. */
+    @Override
+    public void close() {
+        shutdown = true;
+        List<HubConnection> connections = new ArrayList<>();
+        HubConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connections.add(connection);
+        }
+        connections.forEach(this::stop);
+    }
+
+    /**
+     * Pool counters, with {@code estimatedSavedMs}: leases that reused a connection, times the
+     * mean measured start plus stop time of a connection.
+     */
+    public Map<String, Object> toMap() {
+        int started = created.get();
+        int reused = leases.get() - started;
+        double meanStartMs = started == 0 ? 0 : startNanos.get() / 1e6 / started;
+        double meanStopMs = stopped.get() == 0 ? 0 : stopNanos.get() / 1e6 / stopped.get();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("maxIdle", maxIdle);
+        map.put("leases", leases.get());
+        map.put("connectionsStarted", started);
+        map.put("reused", reused);
+        map.put("evicted", evicted.get());
+        map.put("meanStartMs", meanStartMs);
+        map.put("meanStopMs", meanStopMs);
+        map.put("estimatedSavedMs", reused * (meanStartMs + meanStopMs));
+        return map;
+    }
+
+    /** Exclusive use of one pooled connection until {@link #close()}. */
+    public final class Lease implements AutoCloseable {
+        private final HubConnection connection;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(HubConnection connection) {
+            this.connection = connection;
+        }
+
+        public HubConnection connection() {
+            return connection;
+        }
+
+        /** Returns the connection to the pool; safe to call more than once, from any thread. */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import java.util.List;
+import java.util.Objects;
+
+// Custom class for testing complex object serialization
+public class CustomClass {
+    private String str;
+    private List<Integer> arr;
+
+    public CustomClass() {
+    }
+
+    public CustomClass(String str, List<Integer> arr) {
+        this.str = str;
+        this.arr = arr;
+    }
+
+    public String getStr() {
+        return str;
+    }
+
+    public void setStr(String str) {
+        this.str = str;
+    }
+
+    public List<Integer> getArr() {
+        return arr;
+    }
+
+    public void setArr(List<Integer> arr) {
+        this.arr = arr;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomClass that = (CustomClass) o;
+        return Objects.equals(str, that.str) && Objects.equals(arr, that.arr);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(str, arr);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomClass{str=" + str + ", arr=" + arr + "}";
+    }
+}
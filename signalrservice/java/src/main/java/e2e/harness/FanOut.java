@@ -0,0 +1,368 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group and broadcast fan-out: connects M receivers, then one sender publishes numbered messages
+ * at a fixed rate through {@code SendToGroup} (receivers joined the group) or {@code Broadcast}
+ * (every connection of the run). Reports delivery latency to every receiver and to the last
+ * receiver of each message, the rate each receiver keeps up with, and the messages receivers
+ * dropped. Pass a run-isolated URL ({@link HubTarget#isolated(String)}) so broadcasts reach only
+ * this run's connections.
+ */
+public final class FanOut {
+    public static final String GROUP = "fanout";
+
+    private final Options options;
+
+    public FanOut(Options options) {
+        this.options = options;
+    }
+
+    public Result run(String url, Protocol protocol, int receiverCount) throws InterruptedException {
+        Result result = new Result(options, receiverCount);
+        List<HubConnection> connections = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(options.connectConcurrency);
+        try {
+            List<Future<HubConnection>> starts = new ArrayList<>(receiverCount);
+            for (int i = 0; i < receiverCount; i++) {
+                int receiver = i;
+                starts.add(executor.submit(() -> connectReceiver(url, protocol, receiver, result)));
+            }
+            for (Future<HubConnection> start : starts) {
+                try {
+                    connections.add(start.get());
+                } catch (Exception e) {
+                    result.connectFailures.incrementAndGet();
+                    result.errors.increment();
+                    if (result.error == null) {
+                        result.error = String.valueOf(e.getCause() != null ? e.getCause() : e);
+                    }
+                }
+            }
+
+            HubConnection sender = protocol.builder(url).build();
+            // The sender is part of the run, so broadcasts reach it too.
+            sender.on("BroadcastMessage", (message, sentAt) -> { }, String.class, Long.class);
+            sender.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            connections.add(sender);
+            publish(sender, result);
+        } catch (RuntimeException e) {
+            result.error = String.valueOf(e);
+            result.errors.increment();
+        } finally {
+            for (HubConnection connection : connections) {
+                try {
+                    connection.stop().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                } catch (RuntimeException e) {
+                    // Stopping does not change the measurements.
+                }
+            }
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private HubConnection connectReceiver(String url, Protocol protocol, int receiver, Result result) {
+        HubConnection connection = protocol.builder(url).build();
+        if (options.mode == Mode.GROUP) {
+            connection.on("GroupMessage", (group, message, sentAt) -> result.onMessage(receiver, message, sentAt),
+                String.class, String.class, Long.class);
+        } else {
+            connection.on("BroadcastMessage", (message, sentAt) -> result.onMessage(receiver, message, sentAt),
+                String.class, Long.class);
+        }
+        connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+        if (options.mode == Mode.GROUP) {
+            try {
+                connection.invoke("JoinGroup", GROUP).timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            } catch (RuntimeException e) {
+                // Not returned, so run() would never stop it.
+                try {
+                    connection.stop().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                } catch (RuntimeException stopFailure) {
+                    e.addSuppressed(stopFailure);
+                }
+                throw e;
+            }
+        }
+        result.joined.set(receiver, 1);
+        result.connected.incrementAndGet();
+        return connection;
+    }
+
+    private void publish(HubConnection sender, Result result) {
+        char[] padding = new char[options.payloadBytes];
+        Arrays.fill(padding, 'x');
+        String payload = new String(padding);
+        long intervalNanos = (long) (1e9 / options.messagesPerSecond);
+        long begin = System.nanoTime();
+        for (int seq = 0; seq < options.messages; seq++) {
+            parkUntil(begin + seq * intervalNanos);
+            // The sequence number leads the message so receivers can tell which one arrived.
+            String message = seq + ":" + payload;
+            long sentAt = System.nanoTime();
+            result.sentAt.set(seq, sentAt);
+            if (options.mode == Mode.GROUP) {
+                sender.send("SendToGroup", GROUP, message, sentAt);
+            } else {
+                sender.send("Broadcast", message, sentAt);
+            }
+            result.messagesSent.increment();
+        }
+        result.publishNanos = System.nanoTime() - begin;
+
+        // Wait for the stragglers, then count what never arrived as dropped.
+        long expected = (long) options.messages * result.connected.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.settleSeconds);
+        while (result.totalReceived() < expected && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        result.finish();
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** Who receives each message. */
+    public enum Mode {
+        /** {@code SendToGroup}: receivers that joined {@value FanOut#GROUP}. */
+        GROUP,
+        /** {@code Broadcast}: every connection of the run. */
+        BROADCAST
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code fanout.*} properties. */
+    public static final class Options {
+        Mode mode = Mode.GROUP;
+        int messages = 200;
+        double messagesPerSecond = 20;
+        int payloadBytes = 64;
+        int connectConcurrency = 16;
+        int settleSeconds = 10;
+        int timeoutSeconds = 30;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.messages = Integer.getInteger("fanout.messages", options.messages);
+            String rate = System.getProperty("fanout.messageRate");
+            if (rate != null && !rate.isEmpty()) {
+                options.messagesPerSecond = Double.parseDouble(rate);
+            }
+            options.payloadBytes = Integer.getInteger("fanout.payloadBytes", options.payloadBytes);
+            options.connectConcurrency = Integer.getInteger("fanout.connectConcurrency", options.connectConcurrency);
+            options.settleSeconds = Integer.getInteger("fanout.settleSeconds", options.settleSeconds);
+            options.timeoutSeconds = Integer.getInteger("fanout.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        public Options mode(Mode value) {
+            mode = value;
+            return this;
+        }
+
+        /** Messages the sender publishes per run. */
+        public Options messages(int value) {
+            messages = value;
+            return this;
+        }
+
+        /** Publish rate; each message reaches every receiver. */
+        public Options messagesPerSecond(double value) {
+            messagesPerSecond = value;
+            return this;
+        }
+
+        /** Padding after the sequence number in each message. */
+        public Options payloadBytes(int value) {
+            payloadBytes = value;
+            return this;
+        }
+
+        /** Threads starting receivers. */
+        public Options connectConcurrency(int value) {
+            connectConcurrency = value;
+            return this;
+        }
+
+        /** How long to wait for outstanding deliveries after the last publish. */
+        public Options settleSeconds(int value) {
+            settleSeconds = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("mode", mode.name().toLowerCase(Locale.ROOT));
+            map.put("messages", messages);
+            map.put("messagesPerSecond", messagesPerSecond);
+            map.put("payloadBytes", payloadBytes);
+            return map;
+        }
+    }
+
+    /** Measurements of one run with M receivers. */
+    public static final class Result {
+        final int receivers;
+        final int messages;
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger connectFailures = new AtomicInteger();
+        final AtomicLongArray sentAt;
+        // Per message: deliveries so far and the latest arrival.
+        final AtomicIntegerArray deliveries;
+        final AtomicLongArray lastArrival;
+        // Per receiver: whether it joined, messages received, and when the first and last one arrived.
+        final AtomicIntegerArray joined;
+        final AtomicIntegerArray received;
+        final AtomicLongArray firstAt;
+        final AtomicLongArray lastAt;
+        final Histogram delivery = new LatencyRecorder().histogram("fanout", "delivery");
+        final Histogram lastReceiver = new LatencyRecorder().histogram("fanout", "lastReceiver");
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "fanout");
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "fanout");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "fanout");
+        volatile String error;
+        long publishNanos;
+
+        Result(Options options, int receivers) {
+            this.receivers = receivers;
+            this.messages = options.messages;
+            this.sentAt = new AtomicLongArray(messages);
+            this.deliveries = new AtomicIntegerArray(messages);
+            this.lastArrival = new AtomicLongArray(messages);
+            this.joined = new AtomicIntegerArray(receivers);
+            this.received = new AtomicIntegerArray(receivers);
+            this.firstAt = new AtomicLongArray(receivers);
+            this.lastAt = new AtomicLongArray(receivers);
+        }
+
+        void onMessage(int receiver, String message, Long sentNanos) {
+            long now = System.nanoTime();
+            int seq = Integer.parseInt(message.substring(0, message.indexOf(':')));
+            LatencyRecorder.record(delivery, now - sentNanos);
+            messagesReceived.increment();
+            lastArrival.accumulateAndGet(seq, now, Math::max);
+            deliveries.incrementAndGet(seq);
+            if (received.getAndIncrement(receiver) == 0) {
+                firstAt.set(receiver, now);
+            }
+            lastAt.set(receiver, now);
+        }
+
+        /** Records the latency to the last receiver of every message all receivers got. */
+        void finish() {
+            for (int seq = 0; seq < messages; seq++) {
+                if (deliveries.get(seq) >= connected.get()) {
+                    LatencyRecorder.record(lastReceiver, lastArrival.get(seq) - sentAt.get(seq));
+                }
+            }
+        }
+
+        long totalReceived() {
+            long total = 0;
+            for (int i = 0; i < receivers; i++) {
+                total += received.get(i);
+            }
+            return total;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public int connected() {
+            return connected.get();
+        }
+
+        /** Deliveries that never arrived: every connected receiver should get every message. */
+        public long dropped() {
+            return (long) messages * connected.get() - totalReceived();
+        }
+
+        /** Connected receivers that missed at least one message. */
+        public int laggingReceivers() {
+            int lagging = 0;
+            for (int i = 0; i < receivers; i++) {
+                if (joined.get(i) == 1 && received.get(i) < messages) {
+                    lagging++;
+                }
+            }
+            return lagging;
+        }
+
+        /** The rate the slowest receiver took messages in at, first to last arrival. */
+        public double minReceiverMessagesPerSecond() {
+            double min = Double.MAX_VALUE;
+            for (int i = 0; i < receivers; i++) {
+                long span = lastAt.get(i) - firstAt.get(i);
+                if (received.get(i) > 1 && span > 0) {
+                    min = Math.min(min, (received.get(i) - 1) / (span / 1e9));
+                }
+            }
+            return min == Double.MAX_VALUE ? 0 : min;
+        }
+
+        public double publishedPerSecond() {
+            return publishNanos == 0 ? 0 : messages / (publishNanos / 1e9);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("receivers", receivers);
+            map.put("connected", connected.get());
+            map.put("connectFailures", connectFailures.get());
+            map.put("publishedPerSecond", publishedPerSecond());
+            map.put("minReceiverMessagesPerSecond", minReceiverMessagesPerSecond());
+            map.put("deliveriesPerSecond", publishNanos == 0 ? 0 : totalReceived() / (publishNanos / 1e9));
+            map.put("delivery", LatencyRecorder.summarize(delivery));
+            map.put("lastReceiver", LatencyRecorder.summarize(lastReceiver));
+            map.put("dropped", dropped());
+            map.put("laggingReceivers", laggingReceivers());
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("M=%-6d connected=%-6d delivery p50=%.2fms p99=%.2fms  last receiver p50=%.2fms p99=%.2fms"
+                    + "  %.0f/s published, slowest receiver %.0f/s  dropped=%d lagging=%d%s",
+                receivers, connected.get(),
+                LatencyRecorder.millis(delivery.getValueAtPercentile(50)),
+                LatencyRecorder.millis(delivery.getValueAtPercentile(99)),
+                LatencyRecorder.millis(lastReceiver.getValueAtPercentile(50)),
+                LatencyRecorder.millis(lastReceiver.getValueAtPercentile(99)),
+                publishedPerSecond(), minReceiverMessagesPerSecond(), dropped(), laggingReceivers(),
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import e2e.hub.StandInHub;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * The hub a test or benchmark run talks to, resolved from {@code SIGNALR_INTEGRATION_TEST_URL}.
+ * The value {@code in-process} starts a {@link StandInHub} on a random port for the run. When
+ * any {@code proxy.*} property is set, the client reaches the hub through a {@link ShapingProxy}.
+ *
+ * <p>Runs that share a server keep apart through {@link #isolated(String)}: the hub adds every
+ * connection to the group named by its {@code run} query parameter, and scopes fan-out to it.
+ */
+public final class HubTarget implements AutoCloseable {
+    public static final String URL_VARIABLE = "SIGNALR_INTEGRATION_TEST_URL";
+    public static final String IN_PROCESS = "in-process";
+    /** Query parameter naming the group a connection is isolated in. */
+    public static final String RUN_PARAMETER = "run";
+    private static final String DEFAULT_HUB_PATH = "/test";
+    // -Dhub.run pins the id, e.g. to the CI run; otherwise every JVM gets its own
+    private static final String RUN_ID = System.getProperty("hub.run", UUID.randomUUID().toString().substring(0, 8));
+
+    private final String url;
+    private final StandInHub standInHub;
+    private final ShapingProxy proxy;
+
+    private HubTarget(String url, StandInHub standInHub, ShapingProxy proxy) {
+        this.url = url;
+        this.standInHub = standInHub;
+        this.proxy = proxy;
+    }
+
+    /**
+     * Resolves the target from {@code SIGNALR_INTEGRATION_TEST_URL}, falling back to
+     * {@code defaultUrl} (which may itself be {@link #IN_PROCESS}) when it is unset.
+     */
+    public static HubTarget resolve(String defaultUrl) {
+        String value = System.getenv(URL_VARIABLE);
+        return of(value == null || value.isEmpty() ? defaultUrl : value);
+    }
+
+    public static HubTarget of(String value) {
+        return of(value, ShapingProxy.Options.fromSystemProperties());
+    }
+
+    /** Like {@link #of(String)}, with the given shaping; a disabled one connects directly. */
+    public static HubTarget of(String value, ShapingProxy.Options shaping) {
+        StandInHub hub = null;
+        String url = value;
+        if (IN_PROCESS.equals(value)) {
+            try {
+                hub = StandInHub.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start the stand-in hub", e);
+            }
+            url = hub.url(DEFAULT_HUB_PATH);
+        }
+        if (!shaping.isEnabled()) {
+            return new HubTarget(url, hub, null);
+        }
+        URI uri = URI.create(url);
+        ShapingProxy proxy;
+        try {
+            proxy = ShapingProxy.start(uri.getHost(), uri.getPort() < 0 ? 80 : uri.getPort(), shaping);
+        } catch (IOException e) {
+            if (hub != null) {
+                hub.close();
+            }
+            throw new UncheckedIOException("Failed to start the shaping proxy", e);
+        }
+        try {
+            return new HubTarget(proxy.url(url), hub, proxy);
+        } catch (IllegalArgumentException e) {
+            // An https or wss URL, which the proxy cannot forward.
+            proxy.close();
+            if (hub != null) {
+                hub.close();
+            }
+            throw e;
+        }
+    }
+
+    /** URL of the default hub. */
+    public String url() {
+        return url;
+    }
+
+    /** URL of another hub on the same server, e.g. {@code url("/test-java")}. */
+    public String url(String hubPath) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getRawAuthority() + (hubPath.startsWith("/") ? hubPath : "/" + hubPath);
+    }
+
+    /**
+     * URL of the default hub isolated to {@code worker} within this run, e.g.
+     * {@code isolated("json")} for {@code http://localhost:8080/test?run=1a2b3c4d-json}.
+     */
+    public String isolated(String worker) {
+        try {
+            String run = URLEncoder.encode(RUN_ID + "-" + worker, StandardCharsets.UTF_8.name());
+            return url + (url.contains("?") ? "&" : "?") + RUN_PARAMETER + "=" + run;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Id shared by every worker of this JVM, from {@code -Dhub.run} or random. */
+    public static String runId() {
+        return RUN_ID;
+    }
+
+    /** The in-process hub, or {@code null} when targeting an external server. */
+    public StandInHub standInHub() {
+        return standInHub;
+    }
+
+    /** The proxy shaping this target's traffic, or {@code null} when connecting directly. */
+    public ShapingProxy proxy() {
+        return proxy;
+    }
+
+    public boolean isInProcess() {
+        return standInHub != null;
+    }
+
+    @Override
+    public void close() {
+        if (proxy != null) {
+            proxy.close();
+        }
+        if (standInHub != null) {
+            standInHub.close();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.HubConnectionState;
+import e2e.hub.StandInHub;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idle-connection scalability: grows a set of idle connections in steps, each tuned with
+ * {@code withKeepAliveInterval} and {@code withServerTimeout}, and holds every step for a while
+ * doing nothing. Per step it reports the process CPU and context switches (wakeups) spent while
+ * idle, the keep-alive pings the in-process hub received, and the JVM's threads grouped by name,
+ * which shows whether timers or schedulers grow with the connection count. It stops at the first
+ * step that fails to connect or loses a connection, and reports the largest step held.
+ *
+ * <p>The in-process stand-in hub shares the JVM, so its CPU and threads are included; its
+ * keep-alive interval is lowered to half the server timeout when needed.
+ */
+public final class IdleConnections {
+    private final Options options;
+
+    public IdleConnections(Options options) {
+        this.options = options;
+    }
+
+    public Result run(HubTarget target, Protocol protocol, int[] steps) throws InterruptedException {
+        Result result = new Result();
+        StandInHub hub = target.standInHub();
+        if (hub != null && options.serverTimeoutMillis / 2 < TimeUnit.SECONDS.toMillis(15)) {
+            hub.keepAliveInterval(options.serverTimeoutMillis / 2);
+        }
+        List<HubConnection> connections = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(options.connectConcurrency);
+        try {
+            for (int step : steps) {
+                Step measured = new Step(step);
+                result.steps.add(measured);
+                if (!grow(target.url(), protocol, step, connections, executor, measured)) {
+                    break;
+                }
+                hold(connections, hub, measured);
+                if (measured.disconnected > 0) {
+                    break;
+                }
+                result.maxIdleConnections = step;
+            }
+        } finally {
+            executor.shutdownNow();
+            for (HubConnection connection : connections) {
+                try {
+                    connection.stop().timeout(options.connectTimeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                } catch (RuntimeException e) {
+                    // Stopping does not change the measurements.
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean grow(String url, Protocol protocol, int count, List<HubConnection> connections,
+        ExecutorService executor, Step step) throws InterruptedException {
+        List<Future<HubConnection>> starts = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int i = connections.size(); i < count; i++) {
+            starts.add(executor.submit(() -> {
+                HubConnection connection = protocol.builder(url)
+                    .withKeepAliveInterval(options.keepAliveMillis)
+                    .withServerTimeout(options.serverTimeoutMillis)
+                    .build();
+                connection.start().timeout(options.connectTimeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                return connection;
+            }));
+        }
+        for (Future<HubConnection> start : starts) {
+            try {
+                connections.add(start.get());
+            } catch (Exception e) {
+                step.connectFailures++;
+                if (step.error == null) {
+                    step.error = String.valueOf(e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        }
+        step.connectNanos = System.nanoTime() - begin;
+        step.connected = connections.size();
+        return step.connectFailures == 0;
+    }
+
+    private void hold(List<HubConnection> connections, StandInHub hub, Step step) throws InterruptedException {
+        long cpu = processCpuNanos();
+        long switches = contextSwitches();
+        long pings = hub == null ? 0 : hub.pingsReceived();
+        long begin = System.nanoTime();
+        TimeUnit.SECONDS.sleep(options.holdSeconds);
+        step.holdNanos = System.nanoTime() - begin;
+        step.cpuNanos = cpu < 0 ? -1 : processCpuNanos() - cpu;
+        step.contextSwitches = switches < 0 ? -1 : contextSwitches() - switches;
+        step.pingsReceived = hub == null ? -1 : hub.pingsReceived() - pings;
+        step.threads = threadsByName();
+        step.heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (HubConnection connection : connections) {
+            if (connection.getConnectionState() != HubConnectionState.CONNECTED) {
+                step.disconnected++;
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /** Voluntary and involuntary context switches of every thread, from Linux procfs; -1 elsewhere. */
+    private static long contextSwitches() {
+        Path tasks = Paths.get("/proc/self/task");
+        if (!Files.isDirectory(tasks)) {
+            return -1;
+        }
+        long total = 0;
+        try (DirectoryStream<Path> threads = Files.newDirectoryStream(tasks)) {
+            for (Path thread : threads) {
+                try {
+                    for (String line : Files.readAllLines(thread.resolve("status"), StandardCharsets.UTF_8)) {
+                        if (line.startsWith("voluntary_ctxt_switches:") || line.startsWith("nonvoluntary_ctxt_switches:")) {
+                            total += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                        }
+                    }
+                } catch (IOException e) {
+                    // The thread ended while we listed it.
+                }
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return total;
+    }
+
+    /** Live threads by name with the numbers removed, so {@code OkHttp-12} and {@code OkHttp-13} count together. */
+    private static Map<String, Integer> threadsByName() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<String, Integer> byName = new TreeMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null) {
+                byName.merge(info.getThreadName().replaceAll("\\d+", "N"), 1, Integer::sum);
+            }
+        }
+        return byName;
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code idle.*} properties. */
+    public static final class Options {
+        long keepAliveMillis = 15000;
+        long serverTimeoutMillis = 30000;
+        int holdSeconds = 60;
+        int connectConcurrency = 64;
+        int connectTimeoutSeconds = 30;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.keepAliveMillis = Long.getLong("idle.keepAliveMillis", options.keepAliveMillis);
+            options.serverTimeoutMillis = Long.getLong("idle.serverTimeoutMillis", options.serverTimeoutMillis);
+            options.holdSeconds = Integer.getInteger("idle.holdSeconds", options.holdSeconds);
+            options.connectConcurrency = Integer.getInteger("idle.connectConcurrency", options.connectConcurrency);
+            options.connectTimeoutSeconds = Integer.getInteger("idle.connectTimeoutSeconds", options.connectTimeoutSeconds);
+            return options;
+        }
+
+        /** {@code withKeepAliveInterval}: how often each idle client pings the server. */
+        public Options keepAliveMillis(long value) {
+            keepAliveMillis = value;
+            return this;
+        }
+
+        /** {@code withServerTimeout}: how long a client waits for any server message. */
+        public Options serverTimeoutMillis(long value) {
+            serverTimeoutMillis = value;
+            return this;
+        }
+
+        /** How long each step sits idle before it is measured. */
+        public Options holdSeconds(int value) {
+            holdSeconds = value;
+            return this;
+        }
+
+        public Options connectConcurrency(int value) {
+            connectConcurrency = value;
+            return this;
+        }
+
+        public Options connectTimeoutSeconds(int value) {
+            connectTimeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("keepAliveMillis", keepAliveMillis);
+            map.put("serverTimeoutMillis", serverTimeoutMillis);
+            map.put("holdSeconds", holdSeconds);
+            map.put("connectConcurrency", connectConcurrency);
+            return map;
+        }
+    }
+
+    /** Measurements of one step, N connections held idle. */
+    public static final class Step {
+        final int connections;
+        int connected;
+        int connectFailures;
+        int disconnected;
+        String error;
+        long connectNanos;
+        long holdNanos;
+        long cpuNanos;
+        long contextSwitches;
+        long pingsReceived;
+        long heapBytes;
+        Map<String, Integer> threads = new TreeMap<>();
+
+        Step(int connections) {
+            this.connections = connections;
+        }
+
+        private double perSecond(long value) {
+            return value < 0 || holdNanos == 0 ? -1 : value / (holdNanos / 1e9);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("connections", connections);
+            map.put("connected", connected);
+            map.put("connectFailures", connectFailures);
+            map.put("disconnected", disconnected);
+            map.put("connectMs", connectNanos / 1e6);
+            map.put("idleCpuCores", cpuNanos < 0 || holdNanos == 0 ? -1 : (double) cpuNanos / holdNanos);
+            map.put("idleCpuMicrosPerConnectionPerSecond", cpuNanos < 0 || connected == 0 ? -1 : perSecond(cpuNanos) / 1000 / connected);
+            map.put("wakeupsPerSecond", perSecond(contextSwitches));
+            map.put("keepAlivePingsPerSecond", perSecond(pingsReceived));
+            map.put("heapBytes", heapBytes);
+            int total = 0;
+            for (int count : threads.values()) {
+                total += count;
+            }
+            map.put("threads", total);
+            map.put("threadsByName", threads);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            Map<String, Object> map = toMap();
+            return String.format("N=%-6d connected=%-6d disconnected=%-4d idle cpu=%.3f cores  %.0f wakeups/s  %.0f pings/s  %s threads%s",
+                connections, connected, disconnected, (Double) map.get("idleCpuCores"), (Double) map.get("wakeupsPerSecond"),
+                (Double) map.get("keepAlivePingsPerSecond"), map.get("threads"), error == null ? "" : "  error=" + error);
+        }
+    }
+
+    /** All steps, and the largest one held without failures. */
+    public static final class Result {
+        final List<Step> steps = new ArrayList<>();
+        int maxIdleConnections;
+
+        public List<Step> steps() {
+            return steps;
+        }
+
+        /** The largest step that connected fully and lost no connection while idle. */
+        public int maxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("maxIdleConnections", maxIdleConnections);
+            List<Object> stepMaps = new ArrayList<>();
+            steps.forEach(step -> stepMaps.add(step.toMap()));
+            map.put("steps", stepMaps);
+            return map;
+        }
+    }
+}
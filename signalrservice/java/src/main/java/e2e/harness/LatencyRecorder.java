@@ -0,0 +1,138 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip latencies per operation and payload label, in nanoseconds. Look up a histogram
+ * once with {@link #histogram(String, String)} before the timed section; recording into it is
+ * wait-free and allocation-free because the value range is fixed up front. {@link #record} also
+ * adds each value to the {@link Metrics} series for the operation and label, so a recorder can be
+ * created per run without growing the exported registry.
+ */
+public final class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Map<String, Histogram>> histograms = new LinkedHashMap<>();
+
+    public synchronized Histogram histogram(String operation, String label) {
+        return histograms
+            .computeIfAbsent(operation, k -> new LinkedHashMap<>())
+            .computeIfAbsent(label, k -> new Exported(Metrics.global().histogram(Metrics.LATENCY, "operation", operation, "label", label)));
+    }
+
+    /** Records {@code nanos}, clamped to the trackable range so an outlier never throws. */
+    public static void record(Histogram histogram, long nanos) {
+        long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS);
+        histogram.recordValue(value);
+        if (histogram instanceof Exported) {
+            ((Exported) histogram).series.recordValue(value);
+        }
+    }
+
+    static Histogram newHistogram() {
+        return new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    /** {@code {operation: {label: {count, p50Ms, p99Ms, p999Ms, maxMs}}}}. */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Histogram>> operation : histograms.entrySet()) {
+            Map<String, Object> labels = new LinkedHashMap<>();
+            for (Map.Entry<String, Histogram> label : operation.getValue().entrySet()) {
+                labels.put(label.getKey(), summarize(label.getValue()));
+            }
+            report.put(operation.getKey(), labels);
+        }
+        return report;
+    }
+
+    /** One message per operation and label whose latency exceeds the budget. */
+    public synchronized List<String> violations(Budget budget) {
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Histogram>> operation : histograms.entrySet()) {
+            for (Map.Entry<String, Histogram> label : operation.getValue().entrySet()) {
+                Histogram histogram = label.getValue();
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                String name = operation.getKey() + "[" + label.getKey() + "]";
+                check(violations, name, "p50", millis(histogram.getValueAtPercentile(50)), budget.p50Millis);
+                check(violations, name, "p99", millis(histogram.getValueAtPercentile(99)), budget.p99Millis);
+                check(violations, name, "p99.9", millis(histogram.getValueAtPercentile(99.9)), budget.p999Millis);
+                check(violations, name, "max", millis(histogram.getMaxValue()), budget.maxMillis);
+            }
+        }
+        return violations;
+    }
+
+    static Map<String, Object> summarize(Histogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMs", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void check(List<String> violations, String name, String percentile, double actual, Double limit) {
+        if (limit != null && actual > limit) {
+            violations.add(String.format("%s %s %.3fms exceeds budget %.3fms", name, percentile, actual, limit));
+        }
+    }
+
+    /**
+     * Latency limits in milliseconds, from {@code latency.budget.p50Ms}, {@code .p99Ms},
+     * {@code .p999Ms} and {@code .maxMs}. Unset limits are not checked.
+     */
+    public static final class Budget {
+        final Double p50Millis;
+        final Double p99Millis;
+        final Double p999Millis;
+        final Double maxMillis;
+
+        public Budget(Double p50Millis, Double p99Millis, Double p999Millis, Double maxMillis) {
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.p999Millis = p999Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public static Budget fromSystemProperties() {
+            return new Budget(property("latency.budget.p50Ms"), property("latency.budget.p99Ms"),
+                property("latency.budget.p999Ms"), property("latency.budget.maxMs"));
+        }
+
+        private static Double property(String name) {
+            String value = System.getProperty(name);
+            return value == null || value.isEmpty() ? null : Double.valueOf(value);
+        }
+    }
+
+    /** A recorder's histogram that {@link #record} mirrors into a shared {@link Metrics} series. */
+    private static final class Exported extends ConcurrentHistogram {
+        private static final long serialVersionUID = 1L;
+
+        final Histogram series;
+
+        Exported(Histogram series) {
+            super(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+            this.series = series;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.HttpHubConnectionBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-driver version of {@code testMultipleConnections}: starts N connections concurrently from
+ * a bounded executor with an optional connect-rate ramp-up, drives steady-state Echo traffic at
+ * a target rate, then stops everything and reports connection-establishment percentiles, split
+ * into {@link ConnectPhases}.
+ */
+public final class LoadDriver {
+    private final Options options;
+
+    public LoadDriver(Options options) {
+        this.options = options;
+    }
+
+    public Result run(String url, Protocol protocol, int connectionCount) throws InterruptedException {
+        Result result = new Result(connectionCount);
+        // Concurrency 0 gives every client its own (virtual, on Java 21+) thread.
+        ExecutorService executor = options.concurrency > 0
+            ? new ThreadPoolExecutor(options.concurrency, options.concurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>())
+            : ClientThreads.executor();
+        try {
+            List<HubConnection> connections = connect(url, protocol, connectionCount, executor, result);
+            if (!connections.isEmpty() && options.durationSeconds > 0 && options.messagesPerSecond > 0) {
+                echo(connections, result);
+            }
+            disconnect(connections, executor);
+        } finally {
+            if (executor != ClientThreads.executor()) {
+                executor.shutdownNow();
+            }
+        }
+        return result;
+    }
+
+    private List<HubConnection> connect(String url, Protocol protocol, int count, ExecutorService executor, Result result)
+        throws InterruptedException {
+        List<Future<HubConnection>> starts = new ArrayList<>(count);
+        long rampStart = System.nanoTime();
+        long intervalNanos = options.connectsPerSecond > 0 ? (long) (1e9 / options.connectsPerSecond) : 0;
+        for (int i = 0; i < count; i++) {
+            if (intervalNanos > 0) {
+                parkUntil(rampStart + i * intervalNanos);
+            }
+            starts.add(executor.submit(() -> {
+                ConnectPhases.Start start = result.phases.prepare(options.skipNegotiate ? "skipNegotiate" : "negotiate", builder(url, protocol));
+                HubConnection connection = start.connection();
+                connection.on("EchoBack", (message, sentAt) -> result.onEcho(sentAt), String.class, Long.class);
+                long nanos = start.await(options.connectTimeoutSeconds, TimeUnit.SECONDS);
+                result.connectNanos[result.connected.getAndIncrement()] = nanos;
+                result.opened.increment();
+                result.active.increment();
+                connection.onClosed(error -> {
+                    result.active.decrement();
+                    if (error != null) {
+                        result.errors.increment();
+                    }
+                });
+                return connection;
+            }));
+        }
+        List<HubConnection> connections = new ArrayList<>(count);
+        for (Future<HubConnection> start : starts) {
+            try {
+                connections.add(start.get());
+            } catch (Exception e) {
+                result.connectFailures.incrementAndGet();
+                result.errors.increment();
+                if (result.firstError == null) {
+                    result.firstError = String.valueOf(e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        }
+        result.rampNanos = System.nanoTime() - rampStart;
+        return connections;
+    }
+
+    private HttpHubConnectionBuilder builder(String url, Protocol protocol) {
+        // Skipping negotiate only works straight over WebSockets
+        return options.skipNegotiate
+            ? protocol.builder(url, Transport.WEBSOCKETS).shouldSkipNegotiate(true)
+            : protocol.builder(url);
+    }
+
+    private void echo(List<HubConnection> connections, Result result) {
+        long begin = System.nanoTime();
+        long end = begin + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        double perNano = options.messagesPerSecond / 1e9;
+        long sent = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long due = (long) ((now - begin) * perNano);
+            for (; sent < due; sent++) {
+                HubConnection connection = connections.get((int) (sent % connections.size()));
+                try {
+                    connection.send("Echo", "load", System.nanoTime());
+                    result.sent.incrementAndGet();
+                    result.messagesSent.increment();
+                } catch (RuntimeException e) {
+                    result.sendFailures.incrementAndGet();
+                    result.errors.increment();
+                }
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        result.steadyNanos = System.nanoTime() - begin;
+        // Give in-flight echoes a moment to land before counting them.
+        parkUntil(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static void disconnect(List<HubConnection> connections, ExecutorService executor)
+        throws InterruptedException {
+        List<Future<?>> stops = new ArrayList<>(connections.size());
+        for (HubConnection connection : connections) {
+            stops.add(executor.submit(() -> connection.stop().blockingAwait()));
+        }
+        for (Future<?> stop : stops) {
+            try {
+                stop.get();
+            } catch (Exception e) {
+                // A failed stop does not change the measurements.
+            }
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** Load-driver settings; {@link #fromSystemProperties()} reads the {@code load.*} properties. */
+    public static final class Options {
+        int concurrency = 16;
+        double connectsPerSecond;
+        double messagesPerSecond = 100;
+        int durationSeconds = 10;
+        int connectTimeoutSeconds = 30;
+        boolean skipNegotiate;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.concurrency = Integer.getInteger("load.concurrency", options.concurrency);
+            options.connectsPerSecond = doubleProperty("load.connectRate", options.connectsPerSecond);
+            options.messagesPerSecond = doubleProperty("load.messageRate", options.messagesPerSecond);
+            options.durationSeconds = Integer.getInteger("load.durationSeconds", options.durationSeconds);
+            options.connectTimeoutSeconds = Integer.getInteger("load.connectTimeoutSeconds", options.connectTimeoutSeconds);
+            options.skipNegotiate = Boolean.getBoolean("load.skipNegotiate");
+            return options;
+        }
+
+        /** Threads starting and stopping connections; 0 for one {@link ClientThreads} thread per client. */
+        public Options concurrency(int value) {
+            concurrency = value;
+            return this;
+        }
+
+        /** Ramp-up rate; 0 starts every connection as fast as the executor allows. */
+        public Options connectsPerSecond(double value) {
+            connectsPerSecond = value;
+            return this;
+        }
+
+        /** Steady-state Echo rate across all connections. */
+        public Options messagesPerSecond(double value) {
+            messagesPerSecond = value;
+            return this;
+        }
+
+        public Options durationSeconds(int value) {
+            durationSeconds = value;
+            return this;
+        }
+
+        public Options connectTimeoutSeconds(int value) {
+            connectTimeoutSeconds = value;
+            return this;
+        }
+
+        /** Connects straight over WebSockets with {@code shouldSkipNegotiate(true)}. */
+        public Options skipNegotiate(boolean value) {
+            skipNegotiate = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("concurrency", concurrency);
+            map.put("virtualThreads", concurrency == 0 && ClientThreads.isVirtual());
+            map.put("connectsPerSecond", connectsPerSecond);
+            map.put("messagesPerSecond", messagesPerSecond);
+            map.put("durationSeconds", durationSeconds);
+            map.put("skipNegotiate", skipNegotiate);
+            return map;
+        }
+
+        private static double doubleProperty(String name, double defaultValue) {
+            String value = System.getProperty(name);
+            return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    /** Measurements of one run. */
+    public static final class Result {
+        final int connections;
+        final long[] connectNanos;
+        final ConnectPhases phases = new ConnectPhases();
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger connectFailures = new AtomicInteger();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong sendFailures = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong echoNanosTotal = new AtomicLong();
+        final AtomicLong echoNanosMax = new AtomicLong();
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "load");
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "load");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "load");
+        final Metrics.Counter opened = Metrics.global().counter(Metrics.CONNECTIONS_OPENED, "scenario", "load");
+        final Metrics.Gauge active = Metrics.global().gauge(Metrics.CONNECTIONS_ACTIVE, "scenario", "load");
+        volatile String firstError;
+        long rampNanos;
+        long steadyNanos;
+
+        Result(int connections) {
+            this.connections = connections;
+            this.connectNanos = new long[connections];
+        }
+
+        void onEcho(Long sentAt) {
+            received.incrementAndGet();
+            messagesReceived.increment();
+            if (sentAt != null) {
+                long latency = System.nanoTime() - sentAt;
+                echoNanosTotal.addAndGet(latency);
+                echoNanosMax.accumulateAndGet(latency, Math::max);
+            }
+        }
+
+        public int connected() {
+            return connected.get();
+        }
+
+        public int connectFailures() {
+            return connectFailures.get();
+        }
+
+        /** Connection start time at the given percentile (0-100), in milliseconds. */
+        public double connectMillis(double percentile) {
+            long[] sorted = Arrays.copyOf(connectNanos, connected.get());
+            if (sorted.length == 0) {
+                return 0;
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+
+        public double connectsPerSecond() {
+            return rampNanos == 0 ? 0 : connected.get() / (rampNanos / 1e9);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("connections", connections);
+            map.put("connected", connected.get());
+            map.put("connectFailures", connectFailures.get());
+            map.put("connectP50Ms", connectMillis(50));
+            map.put("connectP90Ms", connectMillis(90));
+            map.put("connectP99Ms", connectMillis(99));
+            map.put("connectMaxMs", connectMillis(100));
+            map.put("connectsPerSecond", connectsPerSecond());
+            map.put("connectPhases", phases.toMap());
+            map.put("messagesSent", sent.get());
+            map.put("messagesReceived", received.get());
+            map.put("sendFailures", sendFailures.get());
+            map.put("messagesPerSecond", steadyNanos == 0 ? 0 : received.get() / (steadyNanos / 1e9));
+            map.put("echoMeanMs", received.get() == 0 ? 0 : echoNanosTotal.get() / 1e6 / received.get());
+            map.put("echoMaxMs", echoNanosMax.get() / 1e6);
+            if (firstError != null) {
+                map.put("firstError", firstError);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("N=%-6d connected=%-6d failed=%-4d connect p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms"
+                    + " (%.0f conn/s)  echo sent=%d received=%d",
+                connections, connected.get(), connectFailures.get(), connectMillis(50), connectMillis(90),
+                connectMillis(99), connectMillis(100), connectsPerSecond(), sent.get(), received.get());
+        }
+    }
+}
@@ -0,0 +1,342 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Memory per {@link HubConnection}: opens N connections the {@code testMultipleConnections} way
+ * and takes a {@link Snapshot} (heap retained after GC, direct buffers, live threads) with them
+ * idle, then while they carry {@code Echo} traffic, and again after they stop. Finally it runs
+ * start/stop cycles and reports how much retained heap, direct memory and threads each cycle
+ * leaves behind. The in-process stand-in hub shares the JVM, so its share of the numbers is
+ * included; point {@code SIGNALR_INTEGRATION_TEST_URL} at an external server for the client alone.
+ */
+public final class MemoryFootprint {
+    private final Options options;
+
+    public MemoryFootprint(Options options) {
+        this.options = options;
+    }
+
+    public Result run(String url, Protocol protocol, int connectionCount) {
+        Result result = new Result(connectionCount);
+        result.baseline = Snapshot.take();
+
+        List<HubConnection> connections = new ArrayList<>(connectionCount);
+        AtomicLong received = new AtomicLong();
+        try {
+            for (int i = 0; i < connectionCount; i++) {
+                HubConnection connection = protocol.builder(url).build();
+                connection.on("EchoBack", (message, sentAt) -> received.incrementAndGet(), String.class, Long.class);
+                connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                connections.add(connection);
+            }
+            result.idle = Snapshot.take();
+
+            echo(connections, received);
+            result.active = Snapshot.take();
+            result.echoes = received.get();
+        } finally {
+            stop(connections);
+            connections.clear();
+        }
+        result.stopped = Snapshot.take();
+
+        for (int cycle = 0; cycle < options.cycles; cycle++) {
+            try {
+                for (int i = 0; i < options.cycleConnections; i++) {
+                    HubConnection connection = protocol.builder(url).build();
+                    connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                    connections.add(connection);
+                }
+            } finally {
+                stop(connections);
+                connections.clear();
+            }
+            result.cycles.add(Snapshot.take());
+        }
+        return result;
+    }
+
+    private void echo(List<HubConnection> connections, AtomicLong received) {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.activeSeconds);
+        char[] padding = new char[options.payloadBytes];
+        Arrays.fill(padding, 'x');
+        String payload = new String(padding);
+        while (System.nanoTime() - end < 0) {
+            for (HubConnection connection : connections) {
+                connection.send("Echo", payload, System.nanoTime());
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(options.activeIntervalMillis));
+        }
+    }
+
+    private void stop(List<HubConnection> connections) {
+        for (HubConnection connection : connections) {
+            try {
+                connection.stop().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            } catch (RuntimeException e) {
+                // A failed stop is what the leak check looks for; keep going.
+            }
+        }
+    }
+
+    /** Retained heap, direct buffer memory and live threads at one point in the run. */
+    public static final class Snapshot {
+        final long heapBytes;
+        final long directBytes;
+        final int threads;
+
+        Snapshot(long heapBytes, long directBytes, int threads) {
+            this.heapBytes = heapBytes;
+            this.directBytes = directBytes;
+            this.threads = threads;
+        }
+
+        /** Collects garbage until heap use settles, then measures. */
+        static Snapshot take() {
+            long used = Long.MAX_VALUE;
+            for (int i = 0; i < 10; i++) {
+                WeakReference<Object> sentinel = new WeakReference<>(new Object());
+                System.gc();
+                // Bounded, since -XX:+DisableExplicitGC turns System.gc() into a no-op.
+                for (int wait = 0; wait < 1000 && sentinel.get() != null; wait++) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                // Give closing sockets and finishing threads a moment between passes.
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                long now = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+                if (used - now < 64 * 1024) {
+                    used = now;
+                    break;
+                }
+                used = now;
+            }
+            long direct = 0;
+            for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+                if ("direct".equals(pool.getName())) {
+                    direct = pool.getMemoryUsed();
+                }
+            }
+            return new Snapshot(used, direct, ManagementFactory.getThreadMXBean().getThreadCount());
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("heapBytes", heapBytes);
+            map.put("directBytes", directBytes);
+            map.put("threads", threads);
+            return map;
+        }
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code memory.*} properties. */
+    public static final class Options {
+        int activeSeconds = 5;
+        int activeIntervalMillis = 100;
+        int payloadBytes = 256;
+        int cycles = 10;
+        int cycleConnections = 10;
+        int timeoutSeconds = 30;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.activeSeconds = Integer.getInteger("memory.activeSeconds", options.activeSeconds);
+            options.activeIntervalMillis = Integer.getInteger("memory.activeIntervalMillis", options.activeIntervalMillis);
+            options.payloadBytes = Integer.getInteger("memory.payloadBytes", options.payloadBytes);
+            options.cycles = Integer.getInteger("memory.cycles", options.cycles);
+            options.cycleConnections = Integer.getInteger("memory.cycleConnections", options.cycleConnections);
+            options.timeoutSeconds = Integer.getInteger("memory.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        /** How long the connections carry traffic before the active snapshot. */
+        public Options activeSeconds(int value) {
+            activeSeconds = value;
+            return this;
+        }
+
+        /** Pause between rounds of one {@code Echo} per connection. */
+        public Options activeIntervalMillis(int value) {
+            activeIntervalMillis = value;
+            return this;
+        }
+
+        public Options payloadBytes(int value) {
+            payloadBytes = value;
+            return this;
+        }
+
+        /** Start/stop cycles of the leak check. */
+        public Options cycles(int value) {
+            cycles = value;
+            return this;
+        }
+
+        /** Connections started and stopped per cycle. */
+        public Options cycleConnections(int value) {
+            cycleConnections = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("activeSeconds", activeSeconds);
+            map.put("activeIntervalMillis", activeIntervalMillis);
+            map.put("payloadBytes", payloadBytes);
+            map.put("cycles", cycles);
+            map.put("cycleConnections", cycleConnections);
+            return map;
+        }
+    }
+
+    /** Snapshots of one run with N connections. */
+    public static final class Result {
+        final int connections;
+        final List<Snapshot> cycles = new ArrayList<>();
+        Snapshot baseline;
+        Snapshot idle;
+        Snapshot active;
+        Snapshot stopped;
+        long echoes;
+
+        Result(int connections) {
+            this.connections = connections;
+        }
+
+        public double idleHeapPerConnection() {
+            return (double) (idle.heapBytes - baseline.heapBytes) / connections;
+        }
+
+        public double activeHeapPerConnection() {
+            return (double) (active.heapBytes - baseline.heapBytes) / connections;
+        }
+
+        public double directPerConnection() {
+            return (double) (Math.max(idle.directBytes, active.directBytes) - baseline.directBytes) / connections;
+        }
+
+        public double threadsPerConnection() {
+            return (double) (Math.max(idle.threads, active.threads) - baseline.threads) / connections;
+        }
+
+        /**
+         * Retained heap each start/stop cycle leaves behind: the growth from the first cycle to
+         * the last, so one-time class loading and pool warm-up do not count.
+         */
+        public double leakedHeapPerCycle() {
+            return cycles.size() < 2 ? 0
+                : (double) (cycles.get(cycles.size() - 1).heapBytes - cycles.get(0).heapBytes) / (cycles.size() - 1);
+        }
+
+        public double leakedDirectPerCycle() {
+            return cycles.size() < 2 ? 0
+                : (double) (cycles.get(cycles.size() - 1).directBytes - cycles.get(0).directBytes) / (cycles.size() - 1);
+        }
+
+        /** Threads still alive after every connection stopped, compared with before the run. */
+        public int leakedThreads() {
+            Snapshot last = cycles.isEmpty() ? stopped : cycles.get(cycles.size() - 1);
+            return last.threads - baseline.threads;
+        }
+
+        /** One message per per-connection or per-cycle figure above its budget. */
+        public List<String> violations(Budget budget) {
+            List<String> violations = new ArrayList<>();
+            check(violations, "heap per connection", Math.max(idleHeapPerConnection(), activeHeapPerConnection()) / 1024,
+                budget.heapPerConnectionKb, "KB");
+            check(violations, "direct memory per connection", directPerConnection() / 1024, budget.directPerConnectionKb, "KB");
+            check(violations, "threads per connection", threadsPerConnection(), budget.threadsPerConnection, "");
+            check(violations, "heap leaked per cycle", leakedHeapPerCycle() / 1024, budget.leakPerCycleKb, "KB");
+            check(violations, "threads leaked", leakedThreads(), budget.leakedThreads, "");
+            return violations;
+        }
+
+        private void check(List<String> violations, String name, double actual, Double limit, String unit) {
+            if (limit != null && actual > limit) {
+                violations.add(String.format("N=%d %s %.2f%s exceeds budget %.2f%s", connections, name, actual, unit, limit, unit));
+            }
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("connections", connections);
+            map.put("idleHeapBytesPerConnection", idleHeapPerConnection());
+            map.put("activeHeapBytesPerConnection", activeHeapPerConnection());
+            map.put("directBytesPerConnection", directPerConnection());
+            map.put("threadsPerConnection", threadsPerConnection());
+            map.put("echoesReceived", echoes);
+            map.put("leakedHeapBytesPerCycle", leakedHeapPerCycle());
+            map.put("leakedDirectBytesPerCycle", leakedDirectPerCycle());
+            map.put("leakedThreads", leakedThreads());
+            map.put("baseline", baseline.toMap());
+            map.put("idle", idle.toMap());
+            map.put("active", active.toMap());
+            map.put("stopped", stopped.toMap());
+            List<Object> cycleSnapshots = new ArrayList<>();
+            cycles.forEach(snapshot -> cycleSnapshots.add(snapshot.toMap()));
+            map.put("cycles", cycleSnapshots);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("N=%-6d heap idle=%.1fKB active=%.1fKB  direct=%.1fKB  threads=%.2f per connection"
+                    + "  leak %.1fKB/cycle, %d threads",
+                connections, idleHeapPerConnection() / 1024, activeHeapPerConnection() / 1024,
+                directPerConnection() / 1024, threadsPerConnection(), leakedHeapPerCycle() / 1024, leakedThreads());
+        }
+    }
+
+    /**
+     * Limits from {@code memory.budget.heapPerConnectionKb}, {@code .directPerConnectionKb},
+     * {@code .threadsPerConnection}, {@code .leakPerCycleKb} and {@code .leakedThreads}. Unset
+     * limits are not checked.
+     */
+    public static final class Budget {
+        final Double heapPerConnectionKb;
+        final Double directPerConnectionKb;
+        final Double threadsPerConnection;
+        final Double leakPerCycleKb;
+        final Double leakedThreads;
+
+        public Budget(Double heapPerConnectionKb, Double directPerConnectionKb, Double threadsPerConnection,
+            Double leakPerCycleKb, Double leakedThreads) {
+            this.heapPerConnectionKb = heapPerConnectionKb;
+            this.directPerConnectionKb = directPerConnectionKb;
+            this.threadsPerConnection = threadsPerConnection;
+            this.leakPerCycleKb = leakPerCycleKb;
+            this.leakedThreads = leakedThreads;
+        }
+
+        public static Budget fromSystemProperties() {
+            return new Budget(property("memory.budget.heapPerConnectionKb"), property("memory.budget.directPerConnectionKb"),
+                property("memory.budget.threadsPerConnection"), property("memory.budget.leakPerCycleKb"),
+                property("memory.budget.leakedThreads"));
+        }
+
+        private static Double property(String name) {
+            String value = System.getProperty(name);
+            return value == null || value.isEmpty() ? null : Double.valueOf(value);
+        }
+    }
+}
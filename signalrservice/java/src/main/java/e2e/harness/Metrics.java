@@ -0,0 +1,302 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.HdrHistogram.Histogram;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters, gauges and latency histograms, exported when the JVM exits to
+ * {@code <report dir>/metrics.prom} in the Prometheus text format and {@code metrics.json}, so
+ * runs can be compared and graphed without a collector; point node_exporter's textfile
+ * collector at the report directory to scrape them.
+ *
+ * <p>Look instruments up once, outside the hot path, as with {@link LatencyRecorder}: updating a
+ * {@link Counter} is a {@link LongAdder} increment and a {@link Gauge} an atomic add. Latencies
+ * recorded through {@link LatencyRecorder} are also added to one histogram per operation and
+ * label, exported as {@value #LATENCY}, so the registry stays the same size however many runs
+ * create recorders.
+ *
+ * <p>{@code -Dmetrics.format=prometheus|json|none} picks one format (both by default) and
+ * {@code -Dmetrics.file} the file name without extension.
+ */
+public final class Metrics {
+    public static final String CONNECTIONS_OPENED = "signalr_connections_opened_total";
+    public static final String CONNECTIONS_ACTIVE = "signalr_connections_active";
+    public static final String MESSAGES_SENT = "signalr_messages_sent_total";
+    public static final String MESSAGES_RECEIVED = "signalr_messages_received_total";
+    public static final String ERRORS = "signalr_errors_total";
+    public static final String RECONNECTS = "signalr_reconnects_total";
+    public static final String LATENCY = "signalr_latency_seconds";
+
+    private static final Map<String, String> HELP = new LinkedHashMap<>();
+    private static final Metrics GLOBAL = new Metrics();
+
+    static {
+        HELP.put(CONNECTIONS_OPENED, "Connections started successfully");
+        HELP.put(CONNECTIONS_ACTIVE, "Connections started and not closed yet");
+        HELP.put(MESSAGES_SENT, "Hub messages sent by clients");
+        HELP.put(MESSAGES_RECEIVED, "Hub messages received by clients");
+        HELP.put(ERRORS, "Failed starts and sends, and connections closed with an error");
+        HELP.put(RECONNECTS, "Connections restarted after they dropped");
+        HELP.put(LATENCY, "Latencies recorded by the harness");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!GLOBAL.isEmpty()) {
+                GLOBAL.export(GLOBAL.fileName);
+            }
+        }, "metrics-export"));
+    }
+
+    private final ConcurrentMap<Series, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Series, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Series, Histogram> histograms = new ConcurrentHashMap<>();
+    private volatile String fileName = System.getProperty("metrics.file", "metrics");
+
+    /** The registry exported at exit. */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /** @param labels label names and values, alternating */
+    public Counter counter(String name, String... labels) {
+        return counters.computeIfAbsent(new Series(name, labels), k -> new Counter());
+    }
+
+    /** @param labels label names and values, alternating */
+    public Gauge gauge(String name, String... labels) {
+        return gauges.computeIfAbsent(new Series(name, labels), k -> new Gauge());
+    }
+
+    /** The series' histogram, in nanoseconds, with {@link LatencyRecorder}'s range; safe to record into concurrently. */
+    public Histogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(new Series(name, labels), k -> LatencyRecorder.newHistogram());
+    }
+
+    /** File name, without extension, written at exit; e.g. one per benchmark. */
+    public void fileName(String value) {
+        fileName = value;
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty() && gauges.isEmpty() && histograms.isEmpty();
+    }
+
+    /** Writes the formats selected by {@code metrics.format} and returns the files written. */
+    public List<Path> export(String name) {
+        String format = System.getProperty("metrics.format", "prometheus,json").toLowerCase(Locale.ROOT);
+        List<Path> paths = new ArrayList<>();
+        if (format.contains("prometheus")) {
+            paths.add(Reports.write(name + ".prom", toPrometheus()));
+        }
+        if (format.contains("json")) {
+            paths.add(Reports.writeJson(name + ".json", toMap()));
+        }
+        return paths;
+    }
+
+    /** Prometheus text exposition format; histograms become summaries with p50, p99 and p99.9. */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Map<Series, Object>> family : families().entrySet()) {
+            String name = family.getKey();
+            Object first = family.getValue().values().iterator().next();
+            String type = first instanceof Counter ? "counter" : first instanceof Gauge ? "gauge" : "summary";
+            if (HELP.containsKey(name)) {
+                out.append("# HELP ").append(name).append(' ').append(HELP.get(name)).append('\n');
+            }
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<Series, Object> series : family.getValue().entrySet()) {
+                Object value = series.getValue();
+                if (value instanceof Counter) {
+                    sample(out, name, series.getKey(), null, ((Counter) value).get());
+                } else if (value instanceof Gauge) {
+                    sample(out, name, series.getKey(), null, ((Gauge) value).get());
+                } else {
+                    Histogram histogram = (Histogram) value;
+                    for (double quantile : new double[] {0.5, 0.99, 0.999}) {
+                        sample(out, name, series.getKey(), quantile, histogram.getValueAtPercentile(quantile * 100) / 1e9);
+                    }
+                    sample(out, name + "_sum", series.getKey(), null, histogram.getMean() * histogram.getTotalCount() / 1e9);
+                    sample(out, name + "_count", series.getKey(), null, histogram.getTotalCount());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /** {@code {name: {type, help, series: [{labels, value}]}}}; histograms as {@link LatencyRecorder} summaries. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Series, Object>> family : families().entrySet()) {
+            List<Object> series = new ArrayList<>();
+            String type = "summary";
+            for (Map.Entry<Series, Object> entry : family.getValue().entrySet()) {
+                Map<String, Object> sample = new LinkedHashMap<>();
+                sample.put("labels", entry.getKey().labels);
+                Object value = entry.getValue();
+                if (value instanceof Counter) {
+                    type = "counter";
+                    sample.put("value", ((Counter) value).get());
+                } else if (value instanceof Gauge) {
+                    type = "gauge";
+                    sample.put("value", ((Gauge) value).get());
+                } else {
+                    sample.putAll(LatencyRecorder.summarize((Histogram) value));
+                }
+                series.add(sample);
+            }
+            Map<String, Object> metric = new LinkedHashMap<>();
+            metric.put("type", type);
+            if (HELP.containsKey(family.getKey())) {
+                metric.put("help", HELP.get(family.getKey()));
+            }
+            metric.put("series", series);
+            map.put(family.getKey(), metric);
+        }
+        return map;
+    }
+
+    /** Current values by metric name, then series; histograms are copied so they can be read while recording. */
+    private Map<String, Map<Series, Object>> families() {
+        Map<String, Map<Series, Object>> families = new TreeMap<>();
+        counters.forEach((series, counter) -> family(families, series).put(series, counter));
+        gauges.forEach((series, gauge) -> family(families, series).put(series, gauge));
+        histograms.forEach((series, histogram) -> family(families, series).put(series, histogram.copy()));
+        return families;
+    }
+
+    private static Map<Series, Object> family(Map<String, Map<Series, Object>> families, Series series) {
+        return families.computeIfAbsent(series.name, k -> new TreeMap<>());
+    }
+
+    private static void sample(StringBuilder out, String name, Series series, Double quantile, double value) {
+        out.append(name);
+        Map<String, String> labels = series.labels;
+        if (!labels.isEmpty() || quantile != null) {
+            out.append('{');
+            String separator = "";
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                out.append(separator).append(label.getKey()).append("=\"").append(escape(label.getValue())).append('"');
+                separator = ",";
+            }
+            if (quantile != null) {
+                out.append(separator).append("quantile=\"").append(quantile).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /** Monotonic count. */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /** Value that goes up and down, e.g. open connections. */
+    public static final class Gauge {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void decrement() {
+            value.decrementAndGet();
+        }
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /** A metric name with its labels, ordered by name then labels for stable output. */
+    private static final class Series implements Comparable<Series> {
+        final String name;
+        // Sorted by label name, which orders both the rendering and compareTo
+        final Map<String, String> labels;
+
+        Series(String name, String... labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels come in name/value pairs: " + String.join(",", labels));
+            }
+            Map<String, String> map = new TreeMap<>();
+            for (int i = 0; i < labels.length; i += 2) {
+                map.put(labels[i], labels[i + 1]);
+            }
+            this.name = name;
+            this.labels = Collections.unmodifiableMap(map);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Series && name.equals(((Series) other).name) && labels.equals(((Series) other).labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + labels.hashCode();
+        }
+
+        @Override
+        public int compareTo(Series other) {
+            int byName = name.compareTo(other.name);
+            if (byName != 0) {
+                return byName;
+            }
+            Iterator<Map.Entry<String, String>> mine = labels.entrySet().iterator();
+            Iterator<Map.Entry<String, String>> theirs = other.labels.entrySet().iterator();
+            while (mine.hasNext() && theirs.hasNext()) {
+                Map.Entry<String, String> a = mine.next();
+                Map.Entry<String, String> b = theirs.next();
+                int byLabel = a.getKey().compareTo(b.getKey());
+                if (byLabel == 0) {
+                    byLabel = a.getValue().compareTo(b.getValue());
+                }
+                if (byLabel != 0) {
+                    return byLabel;
+                }
+            }
+            return Boolean.compare(mine.hasNext(), theirs.hasNext());
+        }
+    }
+}
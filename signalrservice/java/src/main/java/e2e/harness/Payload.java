@@ -0,0 +1,36 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The payload cases of {@code testSendAndOn} and {@code testInvoke}, for harnesses and benchmarks
+ * that iterate over the same types.
+ */
+public enum Payload {
+    STRING("hello"),
+    INT(1),
+    DOUBLE(1.2),
+    BOOLEAN(true),
+    MAP(Collections.singletonMap("key", "value")),
+    CUSTOM(new CustomClass("Hello, World!", Arrays.asList(1, 2, 3)));
+
+    private final Object value;
+
+    Payload(Object value) {
+        this.value = value;
+    }
+
+    public Object value() {
+        return value;
+    }
+
+    /** Return type to pass to {@code invoke}, as {@code testInvokeCore} does with {@code item.getClass()}. */
+    public Class<?> type() {
+        return this == MAP ? Map.class : value.getClass();
+    }
+}
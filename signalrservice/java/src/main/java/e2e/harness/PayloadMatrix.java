@@ -0,0 +1,275 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.HubMessage;
+import com.microsoft.signalr.HubProtocol;
+import com.microsoft.signalr.InvocationBinder;
+import com.microsoft.signalr.TypeReference;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload-size matrix for {@code Echo}/{@code Invoke}: grows the List, Map and {@link CustomClass}
+ * payloads of {@code testInvoke} from bytes to megabytes and, per hub protocol, measures the
+ * client's serialization and deserialization time and allocation and the {@code Invoke} round
+ * trip. Payloads are deserialized into their generic {@link Type}, as {@code invoke(Type, ...)}
+ * does.
+ */
+public final class PayloadMatrix {
+    static final String MESSAGE = "Hello, World!";
+
+    /** Payload shapes, each scaled to an approximate JSON size. */
+    public enum Shape {
+        /** {@code List<Integer>}. */
+        LIST(new TypeReference<List<Integer>>() { }.getType()),
+        /** {@code Map<String, String>} with short keys and values. */
+        MAP(new TypeReference<Map<String, String>>() { }.getType()),
+        /** {@link CustomClass} with a growing {@code arr}. */
+        CUSTOM(CustomClass.class);
+
+        private final Type type;
+
+        Shape(Type type) {
+            this.type = type;
+        }
+
+        /** The generic type to pass to {@code invoke}. */
+        public Type type() {
+            return type;
+        }
+
+        /** A payload whose JSON encoding is roughly {@code bytes} long. */
+        public Object payload(int bytes) {
+            switch (this) {
+                case MAP: {
+                    // "k00000":"vvvvvvvv", is about 20 bytes
+                    Map<String, String> map = new LinkedHashMap<>();
+                    for (int i = 0; i < Math.max(1, bytes / 20); i++) {
+                        map.put(String.format("k%05d", i), "vvvvvvvv");
+                    }
+                    return map;
+                }
+                case CUSTOM:
+                    return new CustomClass(MESSAGE, numbers(bytes));
+                default:
+                    return numbers(bytes);
+            }
+        }
+
+        private static List<Integer> numbers(int bytes) {
+            // Six-digit numbers plus a comma
+            List<Integer> numbers = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, bytes / 7); i++) {
+                numbers.add(100000 + i % 900000);
+            }
+            return numbers;
+        }
+    }
+
+    private final Options options;
+
+    public PayloadMatrix(Options options) {
+        this.options = options;
+    }
+
+    /** Codec costs of one cell, measured on the calling thread after a warm-up. */
+    public Cell measure(Protocol protocol, Shape shape, int bytes) {
+        HubProtocol hubProtocol = protocol.hubProtocol();
+        Object payload = shape.payload(bytes);
+        InvocationBinder binder = new Binder(shape.type());
+        Cell cell = new Cell(protocol, shape, bytes, payload);
+
+        ByteBuffer encoded = null;
+        for (int i = 0; i < options.warmupIterations; i++) {
+            encoded = Protocol.encodeInvocation(hubProtocol, "Invoke", MESSAGE, payload);
+            hubProtocol.parseMessages(encoded.duplicate(), binder);
+        }
+
+        long allocated = allocatedBytes();
+        long begin = System.nanoTime();
+        for (int i = 0; i < options.iterations; i++) {
+            encoded = Protocol.encodeInvocation(hubProtocol, "Invoke", MESSAGE, payload);
+        }
+        cell.serializeNanos = (System.nanoTime() - begin) / options.iterations;
+        cell.serializeAllocated = perIteration(allocatedBytes() - allocated);
+        cell.encodedBytes = encoded.remaining();
+
+        allocated = allocatedBytes();
+        begin = System.nanoTime();
+        List<HubMessage> parsed = null;
+        for (int i = 0; i < options.iterations; i++) {
+            parsed = hubProtocol.parseMessages(encoded.duplicate(), binder);
+        }
+        cell.deserializeNanos = (System.nanoTime() - begin) / options.iterations;
+        cell.deserializeAllocated = perIteration(allocatedBytes() - allocated);
+        if (parsed == null || parsed.size() != 1) {
+            throw new IllegalStateException("Expected one parsed message, got " + parsed);
+        }
+        return cell;
+    }
+
+    /**
+     * Times {@code invoke(type, "Invoke", message, payload)} round trips into the cell, and
+     * returns the last result so callers can check it came back intact.
+     */
+    public Object roundTrips(HubConnection connection, Cell cell) {
+        Object result = null;
+        for (int i = 0; i < options.roundTrips; i++) {
+            long begin = System.nanoTime();
+            result = connection.invoke(cell.shape.type(), "Invoke", MESSAGE, cell.payload)
+                .timeout(options.timeoutSeconds, TimeUnit.SECONDS)
+                .blockingGet();
+            LatencyRecorder.record(cell.roundTrip, System.nanoTime() - begin);
+        }
+        return result;
+    }
+
+    private long perIteration(long allocated) {
+        return allocated < 0 ? -1 : allocated / options.iterations;
+    }
+
+    /** Bytes allocated by this thread so far, or a negative value when the JVM cannot tell. */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /** Binds {@code Invoke(string, payload)} the way the client binds a hub invocation. */
+    private static final class Binder implements InvocationBinder {
+        private final List<Type> parameterTypes;
+
+        Binder(Type payloadType) {
+            this.parameterTypes = Arrays.asList(String.class, payloadType);
+        }
+
+        @Override
+        public Type getReturnType(String invocationId) {
+            return parameterTypes.get(1);
+        }
+
+        @Override
+        public List<Type> getParameterTypes(String methodName) {
+            return parameterTypes;
+        }
+
+        @Override
+        public Type getStreamItemType(String invocationId) {
+            return parameterTypes.get(1);
+        }
+    }
+
+    /** Matrix settings; {@link #fromSystemProperties()} reads the {@code payload.*} properties. */
+    public static final class Options {
+        List<Integer> sizes = Arrays.asList(64, 1024, 16 * 1024, 64 * 1024, 1024 * 1024);
+        List<Shape> shapes = Arrays.asList(Shape.values());
+        int warmupIterations = 10;
+        int iterations = 20;
+        int roundTrips = 10;
+        int timeoutSeconds = 60;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            String sizes = System.getProperty("payload.sizes");
+            if (sizes != null && !sizes.trim().isEmpty()) {
+                options.sizes = new ArrayList<>();
+                for (String size : sizes.split(",")) {
+                    options.sizes.add(Integer.parseInt(size.trim()));
+                }
+            }
+            String shapes = System.getProperty("payload.shapes");
+            if (shapes != null && !shapes.trim().isEmpty()) {
+                options.shapes = new ArrayList<>();
+                for (String shape : shapes.split(",")) {
+                    options.shapes.add(Shape.valueOf(shape.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+            options.iterations = Integer.getInteger("payload.iterations", options.iterations);
+            options.roundTrips = Integer.getInteger("payload.roundTrips", options.roundTrips);
+            return options;
+        }
+
+        /** Approximate JSON payload sizes in bytes. */
+        public List<Integer> sizes() {
+            return sizes;
+        }
+
+        public List<Shape> shapes() {
+            return shapes;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sizes", sizes);
+            map.put("shapes", shapes.toString());
+            map.put("iterations", iterations);
+            map.put("roundTrips", roundTrips);
+            return map;
+        }
+    }
+
+    /** One protocol, shape and size. */
+    public static final class Cell {
+        final Protocol protocol;
+        final Shape shape;
+        final int targetBytes;
+        final Object payload;
+        final Histogram roundTrip = new LatencyRecorder().histogram("payload", "roundTrip");
+        int encodedBytes;
+        long serializeNanos;
+        long serializeAllocated;
+        long deserializeNanos;
+        long deserializeAllocated;
+
+        Cell(Protocol protocol, Shape shape, int targetBytes, Object payload) {
+            this.protocol = protocol;
+            this.shape = shape;
+            this.targetBytes = targetBytes;
+            this.payload = payload;
+        }
+
+        public Object payload() {
+            return payload;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("protocol", protocol.protocolName());
+            map.put("shape", shape.name());
+            map.put("targetBytes", targetBytes);
+            map.put("encodedBytes", encodedBytes);
+            map.put("serializeUs", serializeNanos / 1e3);
+            map.put("serializeAllocatedBytes", serializeAllocated);
+            map.put("deserializeUs", deserializeNanos / 1e3);
+            map.put("deserializeAllocatedBytes", deserializeAllocated);
+            if (roundTrip.getTotalCount() > 0) {
+                map.put("roundTrip", LatencyRecorder.summarize(roundTrip));
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-11s %-6s %9d B -> %9d B  ser %9.1fus %10d B  deser %9.1fus %10d B  rt p50 %.2fms",
+                protocol, shape, targetBytes, encodedBytes, serializeNanos / 1e3, serializeAllocated,
+                deserializeNanos / 1e3, deserializeAllocated,
+                LatencyRecorder.millis(roundTrip.getValueAtPercentile(50)));
+        }
+    }
+}
@@ -0,0 +1,306 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Pipelined version of {@code testSendAndOnCore}: several threads share one connection and fire
+ * sequence-numbered {@code Echo} messages without waiting, and a {@link SequenceTracker} per
+ * thread checks the {@code EchoBack}s for order and completeness. Each thread's sends are ordered,
+ * so its echoes must come back in that order; threads are not ordered against each other. Comparing
+ * send throughput across thread counts shows whether the client's send path serializes.
+ */
+public final class PipelinedSends {
+    private final Options options;
+
+    public PipelinedSends(Options options) {
+        this.options = options;
+    }
+
+    public Result run(HubConnection connection, int threads) throws Exception {
+        Result result = new Result(threads, options.messagesPerThread);
+        long total = (long) threads * options.messagesPerThread;
+        CountDownLatch done = new CountDownLatch(1);
+        Semaphore window = options.window > 0 ? new Semaphore(options.window) : null;
+        connection.on("EchoBack", (message, sentAt) -> {
+            int colon = message.indexOf(':');
+            int thread = Integer.parseInt(message.substring(0, colon));
+            int seq = Integer.parseInt(message.substring(colon + 1));
+            result.trackers[thread].onReceived(seq);
+            LatencyRecorder.record(result.echo, System.nanoTime() - sentAt);
+            result.messagesReceived.increment();
+            if (window != null) {
+                window.release();
+            }
+            if (result.received.incrementAndGet() == total) {
+                result.lastReceivedAt = System.nanoTime();
+                done.countDown();
+            }
+        }, String.class, Long.class);
+
+        CyclicBarrier ready = new CyclicBarrier(threads + 1);
+        List<Thread> senders = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread sender = new Thread(() -> {
+                try {
+                    ready.await();
+                    for (int seq = 0; seq < options.messagesPerThread; seq++) {
+                        if (window != null && !window.tryAcquire(options.timeoutSeconds, TimeUnit.SECONDS)) {
+                            throw new IllegalStateException("No EchoBack within " + options.timeoutSeconds + " seconds");
+                        }
+                        long begin = System.nanoTime();
+                        connection.send("Echo", thread + ":" + seq, begin);
+                        LatencyRecorder.record(result.sendCall, System.nanoTime() - begin);
+                        result.messagesSent.increment();
+                    }
+                } catch (Exception e) {
+                    result.error = String.valueOf(e);
+                    result.errors.increment();
+                    // The missing echoes will never come; don't make run() wait out the timeout.
+                    done.countDown();
+                }
+            }, "pipelined-sender-" + t);
+            senders.add(sender);
+            sender.start();
+        }
+        try {
+            ready.await();
+            result.firstSentAt = System.nanoTime();
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            result.lastSentAt = System.nanoTime();
+            if (!done.await(options.timeoutSeconds, TimeUnit.SECONDS) && result.error == null) {
+                result.errors.increment();
+                result.error = "Only " + result.received.get() + "/" + total + " echoes within " + options.timeoutSeconds + " seconds";
+            }
+        } finally {
+            connection.remove("EchoBack");
+        }
+        return result;
+    }
+
+    /**
+     * Send throughput of each run relative to the first (fewest threads). A send path that
+     * serializes stays near 1 as threads are added.
+     */
+    public static Map<String, Object> scaling(List<Result> results) {
+        Map<String, Object> scaling = new LinkedHashMap<>();
+        if (results.isEmpty()) {
+            return scaling;
+        }
+        double baseline = results.get(0).sendsPerSecond();
+        for (Result result : results) {
+            scaling.put(String.valueOf(result.threads), baseline == 0 ? 0 : result.sendsPerSecond() / baseline);
+        }
+        return scaling;
+    }
+
+    /**
+     * Lock-free order and completeness check for one sender's sequence numbers, 0 to n - 1. A
+     * bitmap of received sequence numbers catches duplicates and, at the end, losses. The highest
+     * number seen so far catches reordering: an arrival below it came back out of order.
+     */
+    public static final class SequenceTracker {
+        private final int expected;
+        private final AtomicLongArray seen;
+        private final AtomicLong highest = new AtomicLong(-1);
+        private final AtomicLong reordered = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+
+        public SequenceTracker(int expected) {
+            this.expected = expected;
+            this.seen = new AtomicLongArray((expected + 63) / 64);
+        }
+
+        public void onReceived(int seq) {
+            if (seq < 0 || seq >= expected) {
+                // Never sent, so it can only be a corrupted or repeated message.
+                duplicates.incrementAndGet();
+                return;
+            }
+            int word = seq >>> 6;
+            long bit = 1L << (seq & 63);
+            long current;
+            do {
+                current = seen.get(word);
+                if ((current & bit) != 0) {
+                    duplicates.incrementAndGet();
+                    return;
+                }
+            } while (!seen.compareAndSet(word, current, current | bit));
+            if (highest.getAndAccumulate(seq, Math::max) > seq) {
+                reordered.incrementAndGet();
+            }
+        }
+
+        public long received() {
+            long count = 0;
+            for (int i = 0; i < seen.length(); i++) {
+                count += Long.bitCount(seen.get(i));
+            }
+            return count;
+        }
+
+        public long missing() {
+            return expected - received();
+        }
+
+        public long reordered() {
+            return reordered.get();
+        }
+
+        public long duplicates() {
+            return duplicates.get();
+        }
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code pipeline.*} properties. */
+    public static final class Options {
+        int messagesPerThread = 10000;
+        int window;
+        int timeoutSeconds = 60;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.messagesPerThread = Integer.getInteger("pipeline.messages", options.messagesPerThread);
+            options.window = Integer.getInteger("pipeline.window", options.window);
+            options.timeoutSeconds = Integer.getInteger("pipeline.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        /** Messages each thread sends. */
+        public Options messagesPerThread(int value) {
+            messagesPerThread = value;
+            return this;
+        }
+
+        /**
+         * Echoes in flight at most across all threads; 0 sends without waiting. OkHttp closes a
+         * WebSocket whose outgoing queue passes 16 MB, so bound large runs.
+         */
+        public Options window(int value) {
+            window = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("messagesPerThread", messagesPerThread);
+            map.put("window", window);
+            return map;
+        }
+    }
+
+    /** Measurements of one run with T sender threads. */
+    public static final class Result {
+        final int threads;
+        final SequenceTracker[] trackers;
+        final Histogram sendCall = new LatencyRecorder().histogram("pipeline", "send");
+        final Histogram echo = new LatencyRecorder().histogram("pipeline", "echo");
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "pipeline");
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "pipeline");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "pipeline");
+        final AtomicLong received = new AtomicLong();
+        volatile String error;
+        volatile long lastReceivedAt;
+        long firstSentAt;
+        long lastSentAt;
+
+        Result(int threads, int messagesPerThread) {
+            this.threads = threads;
+            this.trackers = new SequenceTracker[threads];
+            for (int t = 0; t < threads; t++) {
+                trackers[t] = new SequenceTracker(messagesPerThread);
+            }
+        }
+
+        public String error() {
+            return error;
+        }
+
+        /** Rate at which the threads got their messages through {@code send()}. */
+        public double sendsPerSecond() {
+            long nanos = lastSentAt - firstSentAt;
+            return nanos <= 0 ? 0 : sendCall.getTotalCount() / (nanos / 1e9);
+        }
+
+        /** Rate of echoes back, from the first send to the last echo. */
+        public double echoesPerSecond() {
+            long nanos = (lastReceivedAt == 0 ? lastSentAt : lastReceivedAt) - firstSentAt;
+            return nanos <= 0 ? 0 : received.get() / (nanos / 1e9);
+        }
+
+        public long missing() {
+            long missing = 0;
+            for (SequenceTracker tracker : trackers) {
+                missing += tracker.missing();
+            }
+            return missing;
+        }
+
+        public long reordered() {
+            long reordered = 0;
+            for (SequenceTracker tracker : trackers) {
+                reordered += tracker.reordered();
+            }
+            return reordered;
+        }
+
+        public long duplicates() {
+            long duplicates = 0;
+            for (SequenceTracker tracker : trackers) {
+                duplicates += tracker.duplicates();
+            }
+            return duplicates;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("threads", threads);
+            map.put("sent", sendCall.getTotalCount());
+            map.put("received", received.get());
+            map.put("sendsPerSecond", sendsPerSecond());
+            map.put("echoesPerSecond", echoesPerSecond());
+            map.put("sendCall", LatencyRecorder.summarize(sendCall));
+            map.put("echo", LatencyRecorder.summarize(echo));
+            map.put("missing", missing());
+            map.put("reordered", reordered());
+            map.put("duplicates", duplicates());
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("threads=%-3d %.0f sends/s  %.0f echoes/s  send() p50=%.3fms p99=%.3fms"
+                    + "  missing=%d reordered=%d duplicates=%d%s",
+                threads, sendsPerSecond(), echoesPerSecond(),
+                LatencyRecorder.millis(sendCall.getValueAtPercentile(50)),
+                LatencyRecorder.millis(sendCall.getValueAtPercentile(99)),
+                missing(), reordered(), duplicates(), error == null ? "" : "  error=" + error);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.GsonHubProtocol;
+import com.microsoft.signalr.HttpHubConnectionBuilder;
+import com.microsoft.signalr.HubConnectionBuilder;
+import com.microsoft.signalr.HubProtocol;
+import com.microsoft.signalr.InvocationMessage;
+import com.microsoft.signalr.messagepack.MessagePackHubProtocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hub protocols the server registers in {@code Program.cs}. Tests and benchmarks build their
+ * connections through {@link #builder(String)} so the same code runs under each protocol.
+ */
+public enum Protocol {
+    JSON("json"),
+    MESSAGEPACK("messagepack");
+
+    /** Comma-separated protocols to run, e.g. {@code json}; all of them when unset. */
+    public static final String PROPERTY = "signalr.protocols";
+
+    private final String protocolName;
+
+    Protocol(String protocolName) {
+        this.protocolName = protocolName;
+    }
+
+    /** Name sent in the handshake. */
+    public String protocolName() {
+        return protocolName;
+    }
+
+    public HubProtocol hubProtocol() {
+        return this == MESSAGEPACK ? new MessagePackHubProtocol() : new GsonHubProtocol();
+    }
+
+    /**
+     * Connection builder for {@code url} over the transport selected by {@link Transport#PROPERTY};
+     * JSON keeps the client's default protocol.
+     */
+    public HttpHubConnectionBuilder builder(String url) {
+        return builder(url, Transport.fromSystemProperties());
+    }
+
+    public HttpHubConnectionBuilder builder(String url, Transport transport) {
+        HttpHubConnectionBuilder builder = transport.apply(HubConnectionBuilder.create(url));
+        return this == JSON ? builder : builder.withHubProtocol(hubProtocol());
+    }
+
+    /**
+     * Encoded size of {@code send(target, args)} on the wire, framing included: the record
+     * separator for JSON and the length prefix for MessagePack.
+     */
+    public int invocationSize(String target, Object... args) {
+        return encodeInvocation(hubProtocol(), target, args).remaining();
+    }
+
+    /** The bytes {@code protocol} writes for {@code send(target, args)}. */
+    public static ByteBuffer encodeInvocation(HubProtocol protocol, String target, Object... args) {
+        return protocol.writeMessage(new InvocationMessage(null, null, target, args, Collections.<String>emptyList()));
+    }
+
+    public static Protocol of(String value) {
+        String name = value.trim().toLowerCase(Locale.ROOT);
+        for (Protocol protocol : values()) {
+            if (protocol.protocolName.equals(name)) {
+                return protocol;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hub protocol '" + value + "', expected json or messagepack");
+    }
+
+    /** Protocols selected by {@value #PROPERTY}. */
+    public static List<Protocol> fromSystemProperties() {
+        String value = System.getProperty(PROPERTY);
+        List<Protocol> protocols = new ArrayList<>();
+        if (value == null || value.trim().isEmpty()) {
+            Collections.addAll(protocols, values());
+            return protocols;
+        }
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) {
+                protocols.add(of(name));
+            }
+        }
+        return protocols;
+    }
+
+    @Override
+    public String toString() {
+        return protocolName;
+    }
+}
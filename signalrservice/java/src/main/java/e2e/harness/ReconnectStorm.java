@@ -0,0 +1,492 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Connection-loss scenario: starts N connections with steady {@code Echo} traffic, drops every
+ * transport at once (e.g. {@code StandInHub.restart}), and has each client reconnect on its own
+ * retry schedule, because the Java client has no automatic reconnect. Reports the time until
+ * every client is back, how reconnect attempts spread over time, the echoes lost across the gap
+ * and the process CPU used during the storm.
+ */
+public final class ReconnectStorm {
+    /** Retry delays after a drop; both grow exponentially from the base delay up to the cap. */
+    public enum Schedule {
+        /** Exactly {@code base * 2^attempt}: every client dropped together retries together. */
+        UNJITTERED,
+        /** A random delay between 0 and {@code base * 2^attempt} ("full jitter"). */
+        JITTERED
+    }
+
+    // Attempts are counted in 100 ms buckets to find the peak attempt rate.
+    private static final long BUCKET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Options options;
+
+    public ReconnectStorm(Options options) {
+        this.options = options;
+    }
+
+    /** Retry delay before {@code attempt} (0-based) under the configured schedule. */
+    long delayMillis(int attempt) {
+        long delay = Math.min(options.maxDelayMillis, options.baseDelayMillis << Math.min(attempt, 20));
+        return options.schedule == Schedule.JITTERED ? ThreadLocalRandom.current().nextLong(delay + 1) : delay;
+    }
+
+    /**
+     * @param drop cuts every connection's transport, e.g. {@code () -> hub.restart(downtime)}
+     */
+    public Result run(String url, Protocol protocol, int connectionCount, Runnable drop) throws InterruptedException {
+        Result result = new Result(options, connectionCount);
+        ScheduledExecutorService retries = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "reconnect-storm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean stopping = new AtomicBoolean();
+        List<Client> clients = new ArrayList<>();
+        try {
+            clients = connect(url, protocol, connectionCount, result, retries, stopping);
+            if (clients.isEmpty()) {
+                return result;
+            }
+            Traffic traffic = new Traffic(clients, result);
+            Thread sender = new Thread(traffic, "reconnect-storm-traffic");
+            sender.setDaemon(true);
+            sender.start();
+            sleepSeconds(options.settleSeconds);
+
+            result.cpuBefore = processCpuNanos();
+            result.droppedAt = System.nanoTime();
+            drop.run();
+            if (!result.awaitRecovered(options.recoveryTimeoutSeconds)) {
+                result.error = result.dropped.get() == 0
+                    ? "No connection dropped within " + options.recoveryTimeoutSeconds + " seconds"
+                    : "Not every dropped connection recovered within " + options.recoveryTimeoutSeconds + " seconds";
+            }
+            result.stormNanos = System.nanoTime() - result.droppedAt;
+            result.cpuDuring = processCpuNanos() - result.cpuBefore;
+
+            sleepSeconds(options.settleSeconds);
+            traffic.stop();
+            sender.join();
+            // Give in-flight echoes a moment to land before counting them.
+            sleepSeconds(1);
+        } finally {
+            stopping.set(true);
+            retries.shutdownNow();
+            stop(clients);
+        }
+        return result;
+    }
+
+    private List<Client> connect(String url, Protocol protocol, int count, Result result, ScheduledExecutorService retries,
+        AtomicBoolean stopping) throws InterruptedException {
+        List<Future<Client>> starts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            starts.add(ClientThreads.executor().submit(() -> {
+                Client client = new Client(protocol.builder(url).build(), result, retries, stopping);
+                client.connection.start().timeout(options.connectTimeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                return client;
+            }));
+        }
+        List<Client> clients = new ArrayList<>(count);
+        for (Future<Client> start : starts) {
+            try {
+                clients.add(start.get());
+            } catch (Exception e) {
+                result.connectFailures.incrementAndGet();
+            }
+        }
+        result.connected = clients.size();
+        return clients;
+    }
+
+    private static void stop(List<Client> clients) throws InterruptedException {
+        List<Future<?>> stops = new ArrayList<>(clients.size());
+        for (Client client : clients) {
+            stops.add(ClientThreads.executor().submit(() -> client.connection.stop().blockingAwait()));
+        }
+        for (Future<?> stop : stops) {
+            try {
+                stop.get();
+            } catch (Exception e) {
+                // A failed stop does not change the measurements.
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static void sleepSeconds(int seconds) throws InterruptedException {
+        TimeUnit.SECONDS.sleep(seconds);
+    }
+
+    /** One connection and its reconnect loop. */
+    private final class Client {
+        final HubConnection connection;
+        final Result result;
+        final ScheduledExecutorService retries;
+        final AtomicBoolean stopping;
+        final AtomicBoolean reconnecting = new AtomicBoolean();
+        volatile long droppedAt;
+
+        Client(HubConnection connection, Result result, ScheduledExecutorService retries, AtomicBoolean stopping) {
+            this.connection = connection;
+            this.result = result;
+            this.retries = retries;
+            this.stopping = stopping;
+            connection.on("EchoBack", (message, sequence) -> {
+                result.received.incrementAndGet();
+                result.messagesReceived.increment();
+            }, String.class, Long.class);
+            connection.onClosed(error -> onClosed());
+        }
+
+        private void onClosed() {
+            // A handshake failure during a reconnect may close the connection again; one loop is enough.
+            if (stopping.get() || !reconnecting.compareAndSet(false, true)) {
+                return;
+            }
+            droppedAt = System.nanoTime();
+            result.onDropped();
+            schedule(0);
+        }
+
+        private void schedule(int attempt) {
+            if (stopping.get()) {
+                return;
+            }
+            try {
+                retries.schedule(() -> attempt(attempt), delayMillis(attempt), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Rejected: the run is over.
+            }
+        }
+
+        private void attempt(int attempt) {
+            long now = System.nanoTime();
+            result.onAttempt(now);
+            connection.start().subscribe(() -> {
+                reconnecting.set(false);
+                result.onRecovered(System.nanoTime() - droppedAt, attempt + 1);
+            }, error -> {
+                if (attempt + 1 >= options.maxAttempts) {
+                    result.onGaveUp();
+                } else {
+                    schedule(attempt + 1);
+                }
+            });
+        }
+    }
+
+    /** Round-robin {@code Echo} sends at the configured rate; sends fail while disconnected. */
+    private final class Traffic implements Runnable {
+        final List<Client> clients;
+        final Result result;
+        volatile boolean running = true;
+
+        Traffic(List<Client> clients, Result result) {
+            this.clients = clients;
+            this.result = result;
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            long begin = System.nanoTime();
+            double perNano = options.messagesPerSecond / 1e9;
+            long sequence = 0;
+            while (running) {
+                long due = (long) ((System.nanoTime() - begin) * perNano);
+                for (; sequence < due && running; sequence++) {
+                    try {
+                        clients.get((int) (sequence % clients.size())).connection.send("Echo", "storm", sequence);
+                        result.sent.incrementAndGet();
+                        result.messagesSent.increment();
+                    } catch (RuntimeException e) {
+                        result.sendFailures.incrementAndGet();
+                        result.errors.increment();
+                    }
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /** Storm settings; {@link #fromSystemProperties()} reads the {@code storm.*} properties. */
+    public static final class Options {
+        Schedule schedule = Schedule.JITTERED;
+        long baseDelayMillis = 500;
+        long maxDelayMillis = 10_000;
+        int maxAttempts = 20;
+        long downtimeMillis = 2000;
+        double messagesPerSecond = 200;
+        int settleSeconds = 2;
+        int recoveryTimeoutSeconds = 120;
+        int connectTimeoutSeconds = 30;
+
+        /** Reads everything but the schedule, which callers usually sweep. */
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.baseDelayMillis = Long.getLong("storm.baseDelayMillis", options.baseDelayMillis);
+            options.maxDelayMillis = Long.getLong("storm.maxDelayMillis", options.maxDelayMillis);
+            options.maxAttempts = Integer.getInteger("storm.maxAttempts", options.maxAttempts);
+            options.downtimeMillis = Long.getLong("storm.downtimeMillis", options.downtimeMillis);
+            String rate = System.getProperty("storm.messageRate");
+            if (rate != null && !rate.isEmpty()) {
+                options.messagesPerSecond = Double.parseDouble(rate);
+            }
+            options.settleSeconds = Integer.getInteger("storm.settleSeconds", options.settleSeconds);
+            options.recoveryTimeoutSeconds = Integer.getInteger("storm.recoveryTimeoutSeconds", options.recoveryTimeoutSeconds);
+            return options;
+        }
+
+        public long downtimeMillis() {
+            return downtimeMillis;
+        }
+
+        public Options schedule(Schedule value) {
+            schedule = value;
+            return this;
+        }
+
+        /** First retry delay; later ones double up to {@link #maxDelayMillis(long)}. */
+        public Options baseDelayMillis(long value) {
+            baseDelayMillis = value;
+            return this;
+        }
+
+        public Options maxDelayMillis(long value) {
+            maxDelayMillis = value;
+            return this;
+        }
+
+        /** Failed attempts after which a client gives up. */
+        public Options maxAttempts(int value) {
+            maxAttempts = value;
+            return this;
+        }
+
+        /** How long the hub refuses connections after the drop; read by the caller's drop. */
+        public Options downtimeMillis(long value) {
+            downtimeMillis = value;
+            return this;
+        }
+
+        /** Echo rate across all connections, before, during and after the storm. */
+        public Options messagesPerSecond(double value) {
+            messagesPerSecond = value;
+            return this;
+        }
+
+        /** Traffic before the drop and after recovery. */
+        public Options settleSeconds(int value) {
+            settleSeconds = value;
+            return this;
+        }
+
+        public Options recoveryTimeoutSeconds(int value) {
+            recoveryTimeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("schedule", schedule.name());
+            map.put("baseDelayMillis", baseDelayMillis);
+            map.put("maxDelayMillis", maxDelayMillis);
+            map.put("maxAttempts", maxAttempts);
+            map.put("downtimeMillis", downtimeMillis);
+            map.put("messagesPerSecond", messagesPerSecond);
+            return map;
+        }
+    }
+
+    /** Measurements of one storm. */
+    public static final class Result {
+        final Options options;
+        final int connections;
+        final Histogram recovery = new LatencyRecorder().histogram("reconnect", "recovery");
+        final Histogram attemptOffsets = new LatencyRecorder().histogram("reconnect", "attempt");
+        final AtomicIntegerArray attemptBuckets;
+        final AtomicInteger connectFailures = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        final AtomicInteger recovered = new AtomicInteger();
+        final AtomicInteger gaveUp = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger maxAttemptsUsed = new AtomicInteger();
+        // Dropped connections that have not recovered or given up yet
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicLong lastRecoveredAt = new AtomicLong();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong sendFailures = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "reconnect-storm");
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "reconnect-storm");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "reconnect-storm");
+        final Metrics.Counter reconnects = Metrics.global().counter(Metrics.RECONNECTS, "scenario", "reconnect-storm");
+        int connected;
+        volatile long droppedAt;
+        long stormNanos;
+        long cpuBefore;
+        long cpuDuring;
+        String error;
+
+        Result(Options options, int connections) {
+            this.options = options;
+            this.connections = connections;
+            this.attemptBuckets = new AtomicIntegerArray(options.recoveryTimeoutSeconds * 10 + 1);
+        }
+
+        void onDropped() {
+            // Pending first, so a waiter never sees the drop counted without it
+            pending.incrementAndGet();
+            dropped.incrementAndGet();
+        }
+
+        /**
+         * Waits until a connection has dropped and every dropped one has recovered or given up.
+         * Only connections that actually closed are waited for, so a partial drop completes too.
+         */
+        boolean awaitRecovered(int timeoutSeconds) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (dropped.get() == 0 || pending.get() > 0) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+            return true;
+        }
+
+        void onAttempt(long now) {
+            attempts.incrementAndGet();
+            LatencyRecorder.record(attemptOffsets, now - droppedAt);
+            int bucket = (int) ((now - droppedAt) / BUCKET_NANOS);
+            if (bucket >= 0 && bucket < attemptBuckets.length()) {
+                attemptBuckets.incrementAndGet(bucket);
+            }
+        }
+
+        void onRecovered(long downtimeNanos, int attemptsUsed) {
+            LatencyRecorder.record(recovery, downtimeNanos);
+            reconnects.increment();
+            maxAttemptsUsed.accumulateAndGet(attemptsUsed, Math::max);
+            recovered.incrementAndGet();
+            lastRecoveredAt.accumulateAndGet(System.nanoTime(), Math::max);
+            pending.decrementAndGet();
+        }
+
+        void onGaveUp() {
+            gaveUp.incrementAndGet();
+            errors.increment();
+            pending.decrementAndGet();
+        }
+
+        public int connected() {
+            return connected;
+        }
+
+        public int dropped() {
+            return dropped.get();
+        }
+
+        public int recovered() {
+            return recovered.get();
+        }
+
+        public String error() {
+            return error;
+        }
+
+        /** From the drop until the last connection was back, or -1 if some never came back. */
+        public double fullRecoveryMillis() {
+            return recovered.get() < connected ? -1 : (lastRecoveredAt.get() - droppedAt) / 1e6;
+        }
+
+        /** Most reconnect attempts that started within one 100 ms window. */
+        public int peakAttemptsPer100Ms() {
+            int peak = 0;
+            for (int i = 0; i < attemptBuckets.length(); i++) {
+                peak = Math.max(peak, attemptBuckets.get(i));
+            }
+            return peak;
+        }
+
+        /** Echoes that were sent but never came back: lost in flight when the transport dropped. */
+        public long messagesLost() {
+            return Math.max(0, sent.get() - received.get());
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("connections", connections);
+            map.put("connected", connected);
+            map.put("connectFailures", connectFailures.get());
+            map.put("dropped", dropped.get());
+            map.put("recovered", recovered.get());
+            map.put("gaveUp", gaveUp.get());
+            map.put("fullRecoveryMs", fullRecoveryMillis());
+            map.put("recovery", LatencyRecorder.summarize(recovery));
+            map.put("attempts", attempts.get());
+            map.put("maxAttemptsPerConnection", maxAttemptsUsed.get());
+            map.put("attemptOffset", LatencyRecorder.summarize(attemptOffsets));
+            map.put("peakAttemptsPer100Ms", peakAttemptsPer100Ms());
+            map.put("messagesSent", sent.get());
+            map.put("messagesReceived", received.get());
+            map.put("messagesLost", messagesLost());
+            map.put("sendFailures", sendFailures.get());
+            if (cpuBefore >= 0 && stormNanos > 0) {
+                map.put("stormCpuMs", cpuDuring / 1e6);
+                map.put("stormCpuCores", (double) cpuDuring / stormNanos);
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s N=%-5d dropped=%d recovered=%d gaveUp=%d full recovery %.0fms  recovery p50=%.0fms p99=%.0fms"
+                    + "  attempts=%d peak %d/100ms  lost=%d sendFailures=%d  cpu %.2f cores%s",
+                options.schedule, connections, dropped.get(), recovered.get(), gaveUp.get(), fullRecoveryMillis(),
+                LatencyRecorder.millis(recovery.getValueAtPercentile(50)),
+                LatencyRecorder.millis(recovery.getValueAtPercentile(99)),
+                attempts.get(), peakAttemptsPer100Ms(), messagesLost(), sendFailures.get(),
+                stormNanos == 0 ? 0 : (double) cpuDuring / stormNanos,
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
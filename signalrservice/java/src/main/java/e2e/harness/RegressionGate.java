@@ -0,0 +1,353 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performance regression gate between two SignalR client versions. {@link #record} runs a fixed
+ * set of latency and throughput scenarios for several rounds and keeps one value per round, so a
+ * baseline and a candidate run, each in its own JVM and built with {@code -Dsignalr.version}, can
+ * be saved and compared. {@link #compare} flags a metric as regressed only when the candidate's
+ * median is worse by more than {@code regression.thresholdPercent} and a two-sided Mann-Whitney U
+ * test over the rounds puts the difference below {@code regression.alpha}; round-to-round noise
+ * alone does not fail the gate.
+ */
+public final class RegressionGate {
+    /** Scenarios and whether a larger value is better. */
+    enum Metric {
+        CONNECT_MS("connectMs", false),
+        INVOKE_P50_MS("invokeP50Ms", false),
+        INVOKE_P99_MS("invokeP99Ms", false),
+        ECHO_PER_SECOND("echoPerSecond", true);
+
+        final String label;
+        final boolean higherIsBetter;
+
+        Metric(String label, boolean higherIsBetter) {
+            this.label = label;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    private static final String MESSAGE = "regression";
+
+    private final Options options;
+
+    public RegressionGate(Options options) {
+        this.options = options;
+    }
+
+    /** The SignalR client version on the class path, from the jar's Maven metadata. */
+    public static String clientVersion() {
+        try (InputStream in = HubConnection.class.getResourceAsStream(
+            "/META-INF/maven/com.microsoft.signalr/signalr/pom.properties")) {
+            if (in != null) {
+                Properties properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version", "unknown");
+            }
+        } catch (IOException e) {
+            // Fall through to the manifest.
+        }
+        String version = HubConnection.class.getPackage().getImplementationVersion();
+        return version == null ? "unknown" : version;
+    }
+
+    /**
+     * Runs {@code regression.warmupRounds} unrecorded rounds, then {@code regression.rounds}
+     * recorded ones, and returns one list of per-round values per metric.
+     */
+    public Map<String, List<Double>> record(String url, Protocol protocol) throws Exception {
+        Map<String, List<Double>> samples = new LinkedHashMap<>();
+        for (Metric metric : Metric.values()) {
+            samples.put(metric.label, new ArrayList<>());
+        }
+        for (int round = 0; round < options.warmupRounds + options.rounds; round++) {
+            boolean recorded = round >= options.warmupRounds;
+            long begin = System.nanoTime();
+            HubConnection connection = protocol.builder(url).build();
+            connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            double connectMs = (System.nanoTime() - begin) / 1e6;
+            try {
+                double[] invoke = invokeLatencies(connection);
+                double echo = echoThroughput(connection);
+                if (recorded) {
+                    samples.get(Metric.CONNECT_MS.label).add(connectMs);
+                    samples.get(Metric.INVOKE_P50_MS.label).add(percentile(invoke, 50));
+                    samples.get(Metric.INVOKE_P99_MS.label).add(percentile(invoke, 99));
+                    samples.get(Metric.ECHO_PER_SECOND.label).add(echo);
+                }
+            } finally {
+                connection.stop().blockingAwait();
+            }
+        }
+        return samples;
+    }
+
+    private double[] invokeLatencies(HubConnection connection) {
+        double[] millis = new double[options.invokes];
+        for (int i = 0; i < options.invokes; i++) {
+            long begin = System.nanoTime();
+            connection.invoke(String.class, "Invoke", MESSAGE, MESSAGE)
+                .timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingGet();
+            millis[i] = (System.nanoTime() - begin) / 1e6;
+        }
+        return millis;
+    }
+
+    private double echoThroughput(HubConnection connection) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger received = new AtomicInteger();
+        connection.on("EchoBack", (message, sentAt) -> {
+            if (received.incrementAndGet() == options.echoes) {
+                done.countDown();
+            }
+        }, String.class, Long.class);
+        try {
+            long begin = System.nanoTime();
+            for (int i = 0; i < options.echoes; i++) {
+                connection.send("Echo", MESSAGE, System.nanoTime());
+            }
+            if (!done.await(options.timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Only " + received.get() + "/" + options.echoes + " echoes within "
+                    + options.timeoutSeconds + " seconds");
+            }
+            return options.echoes / ((System.nanoTime() - begin) / 1e9);
+        } finally {
+            connection.remove("EchoBack");
+        }
+    }
+
+    /**
+     * Compares the per-round samples of one protocol. Metrics missing on either side are skipped,
+     * so recordings from an older gate still compare on what they share.
+     */
+    public List<Comparison> compare(Map<String, ?> baseline, Map<String, ?> candidate) {
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            double[] base = values(baseline.get(metric.label));
+            double[] cand = values(candidate.get(metric.label));
+            if (base.length == 0 || cand.length == 0) {
+                continue;
+            }
+            comparisons.add(new Comparison(metric, base, cand, options));
+        }
+        return comparisons;
+    }
+
+    private static double[] values(Object samples) {
+        if (!(samples instanceof List)) {
+            return new double[0];
+        }
+        List<?> list = (List<?>) samples;
+        double[] values = new double[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return values;
+    }
+
+    static double percentile(double[] values, double percentile) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Two-sided p-value of the Mann-Whitney U test, by the normal approximation with tie
+     * correction. Good enough from about 8 rounds per side; fewer rounds rarely reach 0.05.
+     */
+    static double mannWhitneyP(double[] a, double[] b) {
+        int n1 = a.length;
+        int n2 = b.length;
+        int n = n1 + n2;
+        double[] all = new double[n];
+        System.arraycopy(a, 0, all, 0, n1);
+        System.arraycopy(b, 0, all, n1, n2);
+        double[] sorted = all.clone();
+        Arrays.sort(sorted);
+
+        double rankSumA = 0;
+        for (double value : a) {
+            rankSumA += rank(sorted, value);
+        }
+        double ties = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) {
+                j++;
+            }
+            double t = j - i;
+            ties += t * t * t - t;
+            i = j;
+        }
+        double u = rankSumA - n1 * (n1 + 1) / 2.0;
+        double mean = n1 * n2 / 2.0;
+        double variance = n1 * n2 / 12.0 * ((n + 1) - ties / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = (Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1, 2 * (1 - normalCdf(Math.max(0, z))));
+    }
+
+    /** Average 1-based rank of {@code value} in {@code sorted}, so ties share their mean rank. */
+    private static double rank(double[] sorted, double value) {
+        int first = 0;
+        while (sorted[first] < value) {
+            first++;
+        }
+        int last = first;
+        while (last + 1 < sorted.length && sorted[last + 1] == value) {
+            last++;
+        }
+        return (first + last) / 2.0 + 1;
+    }
+
+    /** Standard normal CDF (Abramowitz and Stegun 26.2.17, error below 1e-7). */
+    private static double normalCdf(double z) {
+        double t = 1 / (1 + 0.2316419 * Math.abs(z));
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        double tail = Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI) * poly;
+        return z >= 0 ? 1 - tail : tail;
+    }
+
+    /** One metric, baseline against candidate. */
+    public static final class Comparison {
+        final Metric metric;
+        final double baselineMedian;
+        final double candidateMedian;
+        final double changePercent;
+        final double p;
+        final boolean regressed;
+
+        Comparison(Metric metric, double[] baseline, double[] candidate, Options options) {
+            this.metric = metric;
+            this.baselineMedian = median(baseline);
+            this.candidateMedian = median(candidate);
+            this.changePercent = baselineMedian == 0 ? 0 : (candidateMedian - baselineMedian) / baselineMedian * 100;
+            this.p = mannWhitneyP(baseline, candidate);
+            double worsePercent = metric.higherIsBetter ? -changePercent : changePercent;
+            this.regressed = worsePercent > options.thresholdPercent && p < options.alpha;
+        }
+
+        public boolean regressed() {
+            return regressed;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("metric", metric.label);
+            map.put("baselineMedian", baselineMedian);
+            map.put("candidateMedian", candidateMedian);
+            map.put("changePercent", changePercent);
+            map.put("p", p);
+            map.put("regressed", regressed);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-15s baseline=%.3f candidate=%.3f change=%+.1f%% p=%.4f%s",
+                metric.label, baselineMedian, candidateMedian, changePercent, p, regressed ? "  REGRESSED" : "");
+        }
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code regression.*} properties. */
+    public static final class Options {
+        int warmupRounds = 2;
+        int rounds = 10;
+        int invokes = 200;
+        int echoes = 5000;
+        double thresholdPercent = 5;
+        double alpha = 0.01;
+        int timeoutSeconds = 60;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.warmupRounds = Integer.getInteger("regression.warmupRounds", options.warmupRounds);
+            options.rounds = Integer.getInteger("regression.rounds", options.rounds);
+            options.invokes = Integer.getInteger("regression.invokes", options.invokes);
+            options.echoes = Integer.getInteger("regression.echoes", options.echoes);
+            options.thresholdPercent = Double.parseDouble(System.getProperty("regression.thresholdPercent",
+                String.valueOf(options.thresholdPercent)));
+            options.alpha = Double.parseDouble(System.getProperty("regression.alpha", String.valueOf(options.alpha)));
+            options.timeoutSeconds = Integer.getInteger("regression.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        /** Rounds run before recording, so JIT warm-up is not compared. */
+        public Options warmupRounds(int value) {
+            warmupRounds = value;
+            return this;
+        }
+
+        /** Recorded rounds per side; each gives one sample per metric. */
+        public Options rounds(int value) {
+            rounds = value;
+            return this;
+        }
+
+        /** Sequential {@code Invoke} round trips per round. */
+        public Options invokes(int value) {
+            invokes = value;
+            return this;
+        }
+
+        /** {@code Echo} sends per round, timed until the last {@code EchoBack}. */
+        public Options echoes(int value) {
+            echoes = value;
+            return this;
+        }
+
+        /** How much worse the candidate's median must be before it can count as a regression. */
+        public Options thresholdPercent(double value) {
+            thresholdPercent = value;
+            return this;
+        }
+
+        /** Significance level of the Mann-Whitney U test. */
+        public Options alpha(double value) {
+            alpha = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("warmupRounds", warmupRounds);
+            map.put("rounds", rounds);
+            map.put("invokes", invokes);
+            map.put("echoes", echoes);
+            map.put("thresholdPercent", thresholdPercent);
+            map.put("alpha", alpha);
+            return map;
+        }
+    }
+}
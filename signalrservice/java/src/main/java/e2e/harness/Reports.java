@@ -0,0 +1,53 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import e2e.hub.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes machine-readable run reports under {@code target/} (or {@code -Dreport.dir}).
+ */
+public final class Reports {
+    private Reports() {
+    }
+
+    public static Path directory() {
+        return Paths.get(System.getProperty("report.dir", "target"));
+    }
+
+    /** Writes {@code value} as JSON to {@code <report dir>/<fileName>} and returns the path. */
+    public static Path writeJson(String fileName, Object value) {
+        return write(fileName, Json.write(value));
+    }
+
+    public static Path write(String fileName, String content) {
+        return write(fileName, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+    }
+
+    /** Appends {@code content} to {@code <report dir>/<fileName>}, for reports written as a run goes. */
+    public static Path append(String fileName, String content) {
+        return write(fileName, content, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static Path write(String fileName, String content, OpenOption... options) {
+        Path path = directory().resolve(fileName);
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, content.getBytes(StandardCharsets.UTF_8), options);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write report " + path, e);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,498 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-threaded NIO TCP proxy that shapes traffic between the client and the hub: one-way
+ * latency with jitter, a bandwidth cap per direction, and periodic stalls. It forwards bytes, so
+ * negotiate, WebSockets and both hub protocols pass through unchanged. Bytes keep their order;
+ * when a direction has {@link Options#bufferBytes(int)} queued, the proxy stops reading from the
+ * sender, so a slow link pushes back through TCP the way a real one does.
+ *
+ * <pre>
+ * try (ShapingProxy proxy = ShapingProxy.start("localhost", 8080, new ShapingProxy.Options().latencyMillis(50))) {
+ *     HubConnection connection = HubConnectionBuilder.create(proxy.url("http://localhost:8080/test")).build();
+ *     ...
+ * }
+ * </pre>
+ *
+ * Only the first hop is shaped: after an Azure SignalR Service redirect the client connects to
+ * the service directly.
+ */
+public final class ShapingProxy implements AutoCloseable {
+    private static final int READ_BYTES = 16 * 1024;
+
+    private final Options options;
+    private final InetSocketAddress upstream;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread ioThread;
+    private final Set<Link> links = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BYTES);
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger cuts = new AtomicInteger();
+    private final AtomicLong bytesToServer = new AtomicLong();
+    private final AtomicLong bytesToClient = new AtomicLong();
+    private final AtomicLong stalledChunks = new AtomicLong();
+    private volatile boolean running = true;
+
+    private ShapingProxy(InetSocketAddress upstream, Options options) throws IOException {
+        this.upstream = upstream;
+        this.options = options;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        ioThread = new Thread(this::runLoop, "shaping-proxy-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /** Starts a proxy on a random local port that forwards to {@code host:port}. */
+    public static ShapingProxy start(String host, int port, Options options) throws IOException {
+        return new ShapingProxy(new InetSocketAddress(host, port), options);
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /** {@code upstreamUrl} with its host and port replaced by the proxy's. */
+    public String url(String upstreamUrl) {
+        URI uri = URI.create(upstreamUrl);
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"ws".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("The shaping proxy forwards plain TCP; " + upstreamUrl + " needs TLS");
+        }
+        return uri.getScheme() + "://localhost:" + port() + uri.getRawPath()
+            + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    public Options options() {
+        return options;
+    }
+
+    /**
+     * Closes every proxied connection at once, as a network failure would; new connections are
+     * still accepted.
+     *
+     * @return the number of connections cut
+     */
+    public int cut() {
+        int count = links.size();
+        tasks.add(() -> {
+            for (Link link : new ArrayList<>(links)) {
+                link.close();
+            }
+        });
+        selector.wakeup();
+        cuts.incrementAndGet();
+        return count;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>(options.toMap());
+        map.put("connections", accepted.get());
+        map.put("cuts", cuts.get());
+        map.put("bytesToServer", bytesToServer.get());
+        map.put("bytesToClient", bytesToClient.get());
+        map.put("stalledChunks", stalledChunks.get());
+        return map;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                long next = nextReleaseNanos();
+                long wait = next - System.nanoTime();
+                if (next == Long.MAX_VALUE) {
+                    selector.select();
+                } else if (wait > 0) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                } else {
+                    selector.selectNow();
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+                for (Link link : links) {
+                    link.deliver();
+                }
+            }
+        } catch (IOException e) {
+            // The selector failed; close everything below.
+        } finally {
+            for (Link link : links) {
+                link.close();
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Shutting down anyway.
+            }
+        }
+    }
+
+    private long nextReleaseNanos() {
+        long next = Long.MAX_VALUE;
+        for (Link link : links) {
+            if (link.connected) {
+                next = Math.min(next, Math.min(link.toServer.nextRelease(), link.toClient.nextRelease()));
+            }
+        }
+        return next;
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Link link = (Link) key.attachment();
+        try {
+            if (key.isConnectable() && link.serverChannel.finishConnect()) {
+                link.connected = true;
+            }
+            if (key.isReadable()) {
+                link.read(key.channel() == link.clientChannel ? link.toServer : link.toClient);
+            }
+            if (key.isValid() && key.isWritable()) {
+                link.deliver();
+            }
+            link.updateInterest();
+        } catch (IOException e) {
+            link.close();
+        }
+    }
+
+    private void accept() {
+        SocketChannel client = null;
+        try {
+            client = server.accept();
+            if (client == null) {
+                return;
+            }
+            client.configureBlocking(false);
+            client.socket().setTcpNoDelay(true);
+            SocketChannel serverSide = SocketChannel.open();
+            serverSide.configureBlocking(false);
+            serverSide.socket().setTcpNoDelay(true);
+            Link link = new Link(client, serverSide);
+            link.clientKey = client.register(selector, SelectionKey.OP_READ, link);
+            link.serverKey = serverSide.register(selector, SelectionKey.OP_CONNECT, link);
+            link.connected = serverSide.connect(upstream);
+            links.add(link);
+            accepted.incrementAndGet();
+            link.updateInterest();
+        } catch (IOException e) {
+            if (client != null) {
+                try {
+                    client.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+        }
+    }
+
+    /** When {@code nanos} falls in a stall window, the end of that window; otherwise {@code nanos}. */
+    private long afterStall(long nanos) {
+        if (options.stallEveryMillis <= 0 || options.stallMillis <= 0) {
+            return nanos;
+        }
+        long every = TimeUnit.MILLISECONDS.toNanos(options.stallEveryMillis);
+        long stall = Math.min(TimeUnit.MILLISECONDS.toNanos(options.stallMillis), every);
+        long offset = (nanos - startNanos) % every;
+        // The last stallMillis of every period are a stall.
+        if (offset >= every - stall) {
+            stalledChunks.incrementAndGet();
+            return nanos - offset + every;
+        }
+        return nanos;
+    }
+
+    /** One client connection and its upstream connection. */
+    private final class Link {
+        final SocketChannel clientChannel;
+        final SocketChannel serverChannel;
+        final Direction toServer;
+        final Direction toClient;
+        SelectionKey clientKey;
+        SelectionKey serverKey;
+        boolean connected;
+        boolean closed;
+
+        Link(SocketChannel clientChannel, SocketChannel serverChannel) {
+            this.clientChannel = clientChannel;
+            this.serverChannel = serverChannel;
+            this.toServer = new Direction(clientChannel, serverChannel, bytesToServer);
+            this.toClient = new Direction(serverChannel, clientChannel, bytesToClient);
+        }
+
+        void read(Direction direction) throws IOException {
+            readBuffer.clear();
+            int read = direction.source.read(readBuffer);
+            if (read < 0) {
+                direction.sourceClosed = true;
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            readBuffer.flip();
+            ByteBuffer chunk = ByteBuffer.allocate(read);
+            chunk.put(readBuffer).flip();
+            direction.enqueue(chunk, System.nanoTime());
+        }
+
+        void deliver() {
+            if (closed || !connected) {
+                return;
+            }
+            try {
+                toServer.deliver(System.nanoTime());
+                toClient.deliver(System.nanoTime());
+                if (toServer.finished() && toClient.finished()) {
+                    close();
+                    return;
+                }
+                updateInterest();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void updateInterest() {
+            if (closed) {
+                return;
+            }
+            if (clientKey.isValid()) {
+                clientKey.interestOps(toServer.readInterest() | toClient.writeInterest());
+            }
+            if (serverKey.isValid()) {
+                serverKey.interestOps(connected
+                    ? toClient.readInterest() | toServer.writeInterest() : SelectionKey.OP_CONNECT);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            links.remove(this);
+            try {
+                clientChannel.close();
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+        }
+    }
+
+    /** Bytes from one side to the other, each chunk held until its release time. */
+    private final class Direction {
+        final SocketChannel source;
+        final SocketChannel sink;
+        final AtomicLong forwarded;
+        final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+        final ArrayDeque<Long> releases = new ArrayDeque<>();
+        long queuedBytes;
+        long linkFreeAt;
+        long lastRelease;
+        boolean sourceClosed;
+        boolean sinkShutdown;
+        boolean blocked;
+
+        Direction(SocketChannel source, SocketChannel sink, AtomicLong forwarded) {
+            this.source = source;
+            this.sink = sink;
+            this.forwarded = forwarded;
+        }
+
+        void enqueue(ByteBuffer chunk, long now) {
+            // Serialization at the capped bandwidth, then propagation with jitter; never reorder.
+            long start = Math.max(now, linkFreeAt);
+            linkFreeAt = start + (options.bytesPerSecond() > 0
+                ? (long) (chunk.remaining() * 1e9 / options.bytesPerSecond()) : 0);
+            long delay = TimeUnit.MILLISECONDS.toNanos(options.latencyMillis);
+            if (options.jitterMillis > 0) {
+                long jitter = TimeUnit.MILLISECONDS.toNanos(options.jitterMillis);
+                delay = Math.max(0, delay + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1));
+            }
+            long release = Math.max(lastRelease, afterStall(linkFreeAt + delay));
+            lastRelease = release;
+            chunks.addLast(chunk);
+            releases.addLast(release);
+            queuedBytes += chunk.remaining();
+        }
+
+        long nextRelease() {
+            Long next = releases.peekFirst();
+            return next == null || blocked ? Long.MAX_VALUE : next;
+        }
+
+        void deliver(long now) throws IOException {
+            blocked = false;
+            while (!chunks.isEmpty() && releases.peekFirst() <= now) {
+                ByteBuffer chunk = chunks.peekFirst();
+                int written = sink.write(chunk);
+                forwarded.addAndGet(written);
+                queuedBytes -= written;
+                if (chunk.hasRemaining()) {
+                    // The receiver is slow; wait for OP_WRITE.
+                    blocked = true;
+                    return;
+                }
+                chunks.pollFirst();
+                releases.pollFirst();
+            }
+            if (chunks.isEmpty() && sourceClosed && !sinkShutdown) {
+                sinkShutdown = true;
+                sink.shutdownOutput();
+            }
+        }
+
+        boolean finished() {
+            return sinkShutdown;
+        }
+
+        int readInterest() {
+            return sourceClosed || queuedBytes >= options.bufferBytes ? 0 : SelectionKey.OP_READ;
+        }
+
+        int writeInterest() {
+            return blocked ? SelectionKey.OP_WRITE : 0;
+        }
+    }
+
+    /** Shaping settings; {@link #fromSystemProperties()} reads the {@code proxy.*} properties. */
+    public static final class Options {
+        long latencyMillis;
+        long jitterMillis;
+        long bandwidthKbps;
+        long stallEveryMillis;
+        long stallMillis;
+        int bufferBytes = 4 * 1024 * 1024;
+        boolean enabled;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.latencyMillis = Long.getLong("proxy.latencyMillis", options.latencyMillis);
+            options.jitterMillis = Long.getLong("proxy.jitterMillis", options.jitterMillis);
+            options.bandwidthKbps = Long.getLong("proxy.bandwidthKbps", options.bandwidthKbps);
+            options.stallEveryMillis = Long.getLong("proxy.stallEveryMillis", options.stallEveryMillis);
+            options.stallMillis = Long.getLong("proxy.stallMillis", options.stallMillis);
+            options.bufferBytes = Integer.getInteger("proxy.bufferBytes", options.bufferBytes);
+            options.enabled = Boolean.getBoolean("proxy.enabled");
+            return options;
+        }
+
+        /** Whether any shaping is configured, or {@code proxy.enabled} asks for a plain pass-through. */
+        public boolean isEnabled() {
+            return enabled || latencyMillis > 0 || jitterMillis > 0 || bandwidthKbps > 0
+                || (stallEveryMillis > 0 && stallMillis > 0);
+        }
+
+        /** One-way delay added in each direction. */
+        public Options latencyMillis(long value) {
+            latencyMillis = value;
+            return this;
+        }
+
+        /** Uniform variation of the delay, plus or minus; bytes stay in order. */
+        public Options jitterMillis(long value) {
+            jitterMillis = value;
+            return this;
+        }
+
+        /** Cap per direction in kilobits per second; 0 for no cap. */
+        public Options bandwidthKbps(long value) {
+            bandwidthKbps = value;
+            return this;
+        }
+
+        /** Every this many milliseconds, both directions stop for {@link #stallMillis(long)}. */
+        public Options stallEveryMillis(long value) {
+            stallEveryMillis = value;
+            return this;
+        }
+
+        public Options stallMillis(long value) {
+            stallMillis = value;
+            return this;
+        }
+
+        /** Queued bytes per direction before the proxy stops reading from the sender. */
+        public Options bufferBytes(int value) {
+            bufferBytes = value;
+            return this;
+        }
+
+        long bytesPerSecond() {
+            return bandwidthKbps * 1000 / 8;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("latencyMillis", latencyMillis);
+            map.put("jitterMillis", jitterMillis);
+            map.put("bandwidthKbps", bandwidthKbps);
+            map.put("stallEveryMillis", stallEveryMillis);
+            map.put("stallMillis", stallMillis);
+            map.put("bufferBytes", bufferBytes);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,517 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.Function1Single;
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.HubConnectionState;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Soak mode: drives a weighted mix of the suite's operations over a fixed pool of connections
+ * for hours, and appends one CSV row per sample interval with throughput, latency percentiles,
+ * GC pauses and heap, so slow degradation shows up as a trend. Operations are issued at a fixed
+ * rate with at most {@code maxInFlight} outstanding; an operation that finds no free slot is
+ * counted as {@code skipped} rather than queued, so a slowing server cannot grow the client's
+ * backlog without bound.
+ */
+public final class Soak {
+    private static final String MESSAGE = "soak";
+
+    private final Options options;
+
+    public Soak(Options options) {
+        this.options = options;
+    }
+
+    public Result run(String url, Protocol protocol) throws InterruptedException {
+        Result result = new Result();
+        List<HubConnection> connections = new ArrayList<>();
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "soak-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        GcPauses gcPauses = new GcPauses();
+        Path csv = Reports.write(options.csvFile, Sample.header() + "\n");
+        result.csv = csv;
+        try {
+            for (int i = 0; i < options.connections; i++) {
+                HubConnection connection = protocol.builder(url).build();
+                connection.on("EchoBack", (message, sentAt) -> result.complete(Operation.ECHO, sentAt), String.class, Long.class);
+                connection.onWithResult("ClientResult", (Function1Single<String, String>) Single::just, String.class);
+                connection.onClosed(error -> {
+                    if (!result.stopping) {
+                        result.connectionsLost.incrementAndGet();
+                    }
+                });
+                connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                connections.add(connection);
+            }
+            long begin = System.nanoTime();
+            result.begin = begin;
+            sampler.scheduleAtFixedRate(() -> Reports.append(options.csvFile, result.sample(gcPauses).toCsv() + "\n"),
+                options.sampleSeconds, options.sampleSeconds, TimeUnit.SECONDS);
+
+            long end = begin + TimeUnit.MINUTES.toNanos(options.durationMinutes);
+            long intervalNanos = (long) (1e9 / options.operationsPerSecond);
+            int[] weights = options.cumulativeWeights();
+            for (long n = 0; ; n++) {
+                long due = begin + n * intervalNanos;
+                if (due - end >= 0) {
+                    break;
+                }
+                parkUntil(due);
+                HubConnection connection = connections.get((int) (n % connections.size()));
+                if (connection.getConnectionState() != HubConnectionState.CONNECTED) {
+                    result.skipped.incrementAndGet();
+                    continue;
+                }
+                Operation operation = pick(weights);
+                if (operation != Operation.ECHO && !inFlight.tryAcquire()) {
+                    result.skipped.incrementAndGet();
+                    continue;
+                }
+                issue(connection, operation, inFlight, result);
+            }
+        } finally {
+            sampler.shutdownNow();
+            sampler.awaitTermination(options.timeoutSeconds, TimeUnit.SECONDS);
+            if (result.begin != 0) {
+                Reports.append(options.csvFile, result.sample(gcPauses).toCsv() + "\n");
+            }
+            gcPauses.close();
+            result.stopping = true;
+            for (HubConnection connection : connections) {
+                try {
+                    connection.stop().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+                } catch (RuntimeException e) {
+                    // Stopping does not change the measurements.
+                }
+            }
+        }
+        return result;
+    }
+
+    private void issue(HubConnection connection, Operation operation, Semaphore inFlight, Result result) {
+        long sentAt = System.nanoTime();
+        result.issued.get(operation).incrementAndGet();
+        result.messagesSent.increment();
+        Completable call;
+        switch (operation) {
+            case ECHO:
+                // Completes through EchoBack and holds no in-flight slot.
+                connection.send("Echo", MESSAGE, sentAt);
+                return;
+            case INVOKE:
+                call = connection.invoke(String.class, "Invoke", MESSAGE, MESSAGE).ignoreElement();
+                break;
+            case STREAM:
+                call = connection.stream(String.class, "StreamItems", options.streamItems, options.payloadBytes).ignoreElements();
+                break;
+            case CLIENT_STREAM:
+                call = connection.invoke(Integer.class, "AddNumbers", 0, Observable.range(0, options.streamItems)).ignoreElement();
+                break;
+            default:
+                call = connection.invoke(long[].class, "InvokeClientResults", MESSAGE, 1, 1).ignoreElement();
+                break;
+        }
+        call.timeout(options.timeoutSeconds, TimeUnit.SECONDS).subscribe(() -> {
+            result.complete(operation, sentAt);
+            inFlight.release();
+        }, error -> {
+            result.errors.incrementAndGet();
+            result.errorCount.increment();
+            inFlight.release();
+        });
+    }
+
+    private static Operation pick(int[] cumulativeWeights) {
+        int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.ECHO;
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** The operations of the mix, each the soak version of an {@code IntegrationTests} case. */
+    public enum Operation {
+        /** {@code Echo} answered by {@code EchoBack}, as in {@code testSendAndOn}. */
+        ECHO,
+        /** {@code Invoke}, as in {@code testInvoke}. */
+        INVOKE,
+        /** {@code StreamItems}, a server-to-client stream. */
+        STREAM,
+        /** {@code AddNumbers} with a client stream, as in {@code testClientStream}. */
+        CLIENT_STREAM,
+        /** One hub-to-client {@code ClientResult} round trip through {@code InvokeClientResults}. */
+        CLIENT_RESULT;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace("_", "");
+        }
+
+        /** Parses a label of {@code soak.mix}, e.g. {@code clientresult} or {@code client_result}. */
+        static Operation of(String value) {
+            String label = value.trim().toLowerCase(Locale.ROOT).replace("_", "");
+            for (Operation operation : values()) {
+                if (operation.label().equals(label)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown soak operation '" + value
+                + "', expected echo, invoke, stream, clientstream or clientresult");
+        }
+    }
+
+    /** GC pauses reported by the JVM's collection notifications. */
+    static final class GcPauses implements NotificationListener, AutoCloseable {
+        final Recorder pauses = new Recorder(3);
+        final AtomicLong collections = new AtomicLong();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) {
+                    ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+                    emitters.add((NotificationEmitter) gc);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // Includes the concurrent phases of collectors such as G1's concurrent cycle.
+                pauses.recordValue(TimeUnit.MILLISECONDS.toMicros(info.getGcInfo().getDuration()));
+                collections.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (Exception e) {
+                    // Already removed.
+                }
+            }
+        }
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code soak.*} properties. */
+    public static final class Options {
+        int durationMinutes = 60;
+        int connections = 8;
+        double operationsPerSecond = 50;
+        int maxInFlight = 200;
+        int sampleSeconds = 60;
+        int streamItems = 10;
+        int payloadBytes = 64;
+        int timeoutSeconds = 30;
+        String csvFile = "soak.csv";
+        final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+        public Options() {
+            mix.put(Operation.ECHO, 40);
+            mix.put(Operation.INVOKE, 30);
+            mix.put(Operation.STREAM, 10);
+            mix.put(Operation.CLIENT_STREAM, 10);
+            mix.put(Operation.CLIENT_RESULT, 10);
+        }
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.durationMinutes = Integer.getInteger("soak.durationMinutes", options.durationMinutes);
+            options.connections = Integer.getInteger("soak.connections", options.connections);
+            String rate = System.getProperty("soak.operationRate");
+            if (rate != null && !rate.isEmpty()) {
+                options.operationsPerSecond = Double.parseDouble(rate);
+            }
+            options.maxInFlight = Integer.getInteger("soak.maxInFlight", options.maxInFlight);
+            options.sampleSeconds = Integer.getInteger("soak.sampleSeconds", options.sampleSeconds);
+            options.streamItems = Integer.getInteger("soak.streamItems", options.streamItems);
+            options.payloadBytes = Integer.getInteger("soak.payloadBytes", options.payloadBytes);
+            options.timeoutSeconds = Integer.getInteger("soak.timeoutSeconds", options.timeoutSeconds);
+            options.csvFile = System.getProperty("soak.csv", options.csvFile);
+            String mix = System.getProperty("soak.mix");
+            if (mix != null && !mix.trim().isEmpty()) {
+                options.mix.replaceAll((operation, weight) -> 0);
+                for (String entry : mix.split(",")) {
+                    String[] pair = entry.split("=");
+                    options.mix(Operation.of(pair[0]), Integer.parseInt(pair[1].trim()));
+                }
+            }
+            return options;
+        }
+
+        public Options durationMinutes(int value) {
+            durationMinutes = value;
+            return this;
+        }
+
+        /** Size of the fixed connection pool the operations rotate over. */
+        public Options connections(int value) {
+            connections = value;
+            return this;
+        }
+
+        /** Operations started per second across the pool. */
+        public Options operationsPerSecond(double value) {
+            operationsPerSecond = value;
+            return this;
+        }
+
+        /** Outstanding invocations and streams at most; more are skipped. */
+        public Options maxInFlight(int value) {
+            maxInFlight = value;
+            return this;
+        }
+
+        /** Seconds between CSV rows. */
+        public Options sampleSeconds(int value) {
+            sampleSeconds = value;
+            return this;
+        }
+
+        /** Relative weight of {@code operation} in the mix; 0 leaves it out. */
+        public Options mix(Operation operation, int weight) {
+            mix.put(operation, weight);
+            return this;
+        }
+
+        int[] cumulativeWeights() {
+            int[] cumulative = new int[Operation.values().length];
+            int total = 0;
+            for (Operation operation : Operation.values()) {
+                total += mix.getOrDefault(operation, 0);
+                cumulative[operation.ordinal()] = total;
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("soak.mix gives every operation weight 0");
+            }
+            return cumulative;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("durationMinutes", durationMinutes);
+            map.put("connections", connections);
+            map.put("operationsPerSecond", operationsPerSecond);
+            map.put("maxInFlight", maxInFlight);
+            map.put("sampleSeconds", sampleSeconds);
+            Map<String, Object> weights = new LinkedHashMap<>();
+            mix.forEach((operation, weight) -> weights.put(operation.label(), weight));
+            map.put("mix", weights);
+            return map;
+        }
+    }
+
+    /** One CSV row: the interval since the previous sample. */
+    static final class Sample {
+        double elapsedMinutes;
+        double operationsPerSecond;
+        long errors;
+        long skipped;
+        final Map<Operation, Histogram> latency = new EnumMap<>(Operation.class);
+        long gcCount;
+        double gcPauseTotalMs;
+        double gcPauseMaxMs;
+        double heapUsedMb;
+        double heapAfterGcMb;
+        int connectionsLost;
+
+        static String header() {
+            StringBuilder header = new StringBuilder("elapsedMinutes,operationsPerSecond,errors,skipped");
+            for (Operation operation : Operation.values()) {
+                header.append(',').append(operation.label()).append("P50Ms,").append(operation.label()).append("P99Ms");
+            }
+            return header.append(",gcCount,gcPauseTotalMs,gcPauseMaxMs,heapUsedMb,heapAfterGcMb,connectionsLost").toString();
+        }
+
+        String toCsv() {
+            StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%.2f,%.1f,%d,%d",
+                elapsedMinutes, operationsPerSecond, errors, skipped));
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = latency.get(operation);
+                row.append(String.format(Locale.ROOT, ",%.3f,%.3f",
+                    LatencyRecorder.millis(histogram.getValueAtPercentile(50)),
+                    LatencyRecorder.millis(histogram.getValueAtPercentile(99))));
+            }
+            return row.append(String.format(Locale.ROOT, ",%d,%.1f,%.1f,%.1f,%.1f,%d",
+                gcCount, gcPauseTotalMs, gcPauseMaxMs, heapUsedMb, heapAfterGcMb, connectionsLost)).toString();
+        }
+    }
+
+    /** Totals over the whole soak, plus the first and last samples to compare. */
+    public static final class Result {
+        final Map<Operation, AtomicLong> issued = new EnumMap<>(Operation.class);
+        final Map<Operation, Recorder> interval = new EnumMap<>(Operation.class);
+        final Map<Operation, Histogram> total = new EnumMap<>(Operation.class);
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong connectionsLost = new AtomicLong();
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "soak");
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "soak");
+        final Metrics.Counter errorCount = Metrics.global().counter(Metrics.ERRORS, "scenario", "soak");
+        final List<Sample> samples = new ArrayList<>();
+        Path csv;
+        long begin;
+        volatile boolean stopping;
+        private long lastSampleAt;
+        private long lastCompleted;
+        private long lastErrors;
+        private long lastSkipped;
+        private long lastGcCount;
+
+        Result() {
+            LatencyRecorder recorder = new LatencyRecorder();
+            for (Operation operation : Operation.values()) {
+                issued.put(operation, new AtomicLong());
+                interval.put(operation, new Recorder(3));
+                total.put(operation, recorder.histogram("soak", operation.label()));
+            }
+        }
+
+        void complete(Operation operation, Long sentAt) {
+            long nanos = System.nanoTime() - sentAt;
+            interval.get(operation).recordValue(Math.max(nanos, 0));
+            LatencyRecorder.record(total.get(operation), nanos);
+            completed.incrementAndGet();
+            messagesReceived.increment();
+        }
+
+        synchronized Sample sample(GcPauses gcPauses) {
+            long now = System.nanoTime();
+            long since = lastSampleAt == 0 ? begin : lastSampleAt;
+            Sample sample = new Sample();
+            sample.elapsedMinutes = (now - begin) / 60e9;
+            long completedNow = completed.get();
+            sample.operationsPerSecond = now == since ? 0 : (completedNow - lastCompleted) / ((now - since) / 1e9);
+            sample.errors = errors.get() - lastErrors;
+            sample.skipped = skipped.get() - lastSkipped;
+            for (Operation operation : Operation.values()) {
+                sample.latency.put(operation, interval.get(operation).getIntervalHistogram());
+            }
+            Histogram pauses = gcPauses.pauses.getIntervalHistogram();
+            long gcCount = gcPauses.collections.get();
+            sample.gcCount = gcCount - lastGcCount;
+            sample.gcPauseTotalMs = pauses.getMean() * pauses.getTotalCount() / 1000;
+            sample.gcPauseMaxMs = pauses.getMaxValue() / 1000.0;
+            sample.heapUsedMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1048576.0;
+            sample.heapAfterGcMb = heapAfterLastGc() / 1048576.0;
+            sample.connectionsLost = (int) connectionsLost.get();
+            lastSampleAt = now;
+            lastCompleted = completedNow;
+            lastErrors = errors.get();
+            lastSkipped = skipped.get();
+            lastGcCount = gcCount;
+            samples.add(sample);
+            return sample;
+        }
+
+        /** Heap in use right after the last collection of each pool: the live set, which leaks grow. */
+        private static long heapAfterLastGc() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                    used += pool.getCollectionUsage().getUsed();
+                }
+            }
+            return used;
+        }
+
+        public long errors() {
+            return errors.get();
+        }
+
+        public long connectionsLost() {
+            return connectionsLost.get();
+        }
+
+        public Path csv() {
+            return csv;
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("completed", completed.get());
+            map.put("errors", errors.get());
+            map.put("skipped", skipped.get());
+            map.put("connectionsLost", connectionsLost.get());
+            Map<String, Object> operations = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("issued", issued.get(operation).get());
+                summary.putAll(LatencyRecorder.summarize(total.get(operation)));
+                operations.put(operation.label(), summary);
+            }
+            map.put("operations", operations);
+            if (samples.size() >= 2) {
+                // Full intervals only: the last sample may cover a partial one.
+                Sample first = samples.get(0);
+                Sample last = samples.get(samples.size() - (samples.size() > 2 ? 2 : 1));
+                Map<String, Object> trend = new LinkedHashMap<>();
+                trend.put("throughputRatio", first.operationsPerSecond == 0 ? 0 : last.operationsPerSecond / first.operationsPerSecond);
+                trend.put("heapAfterGcGrowthMb", last.heapAfterGcMb - first.heapAfterGcMb);
+                trend.put("samples", samples.size());
+                map.put("trend", trend);
+            }
+            map.put("csv", String.valueOf(csv));
+            return map;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder line = new StringBuilder(String.format("completed=%d errors=%d skipped=%d connectionsLost=%d samples=%d",
+                completed.get(), errors.get(), skipped.get(), connectionsLost.get(), samples.size()));
+            for (Operation operation : Operation.values()) {
+                line.append(String.format("  %s p99=%.2fms", operation.label(),
+                    LatencyRecorder.millis(total.get(operation).getValueAtPercentile(99))));
+            }
+            return line.toString();
+        }
+    }
+}
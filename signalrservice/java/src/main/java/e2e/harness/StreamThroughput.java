@@ -0,0 +1,219 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Observable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streaming-throughput version of {@code testStreamCore}: consumes {@code TestHub.StreamItems}
+ * through a bounded, backpressure-aware {@code Flowable} and reports items and bytes per second
+ * together with heap growth, sampled while the stream runs.
+ */
+public final class StreamThroughput {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final Options options;
+
+    public StreamThroughput(Options options) {
+        this.options = options;
+    }
+
+    public Result run(HubConnection connection) {
+        return consume(connection.stream(String.class, "StreamItems", options.items, options.itemSize));
+    }
+
+    /** Consumes {@code items} as {@link #run} does; the stream is any source, not only a hub. */
+    Result consume(Observable<String> items) {
+        Result result = new Result(options);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.gc();
+        result.heapBaseline = usedHeap();
+        result.heapPeak.set(result.heapBaseline);
+        sampler.scheduleAtFixedRate(() -> result.heapPeak.accumulateAndGet(usedHeap(), Math::max),
+            0, 50, TimeUnit.MILLISECONDS);
+        long delayNanos = TimeUnit.MICROSECONDS.toNanos(options.consumerDelayMicros);
+        long begin = System.nanoTime();
+        try {
+            // The client buffers pushed items itself; the Flowable decides what happens to them
+            // when this consumer, prefetching bufferSize at a time, falls behind.
+            items.toFlowable(options.backpressure)
+                .timeout(options.idleTimeoutSeconds, TimeUnit.SECONDS)
+                .blockingSubscribe(item -> {
+                    result.received++;
+                    result.bytes += item.length();
+                    if (delayNanos > 0) {
+                        LockSupport.parkNanos(delayNanos);
+                    }
+                }, error -> result.error = String.valueOf(error), () -> { }, options.bufferSize);
+        } finally {
+            result.elapsedNanos = System.nanoTime() - begin;
+            sampler.shutdownNow();
+            // Added once rather than per item, which would slow the consumer being measured.
+            result.messagesReceived.add(result.received);
+            if (result.error != null) {
+                result.errors.increment();
+            }
+        }
+        result.heapPeak.accumulateAndGet(usedHeap(), Math::max);
+        System.gc();
+        result.heapRetained = usedHeap();
+        return result;
+    }
+
+    private static long usedHeap() {
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    /** Stream settings; {@link #fromSystemProperties()} reads the {@code stream.*} properties. */
+    public static final class Options {
+        int items = 1_000_000;
+        int itemSize = 16;
+        BackpressureStrategy backpressure = BackpressureStrategy.BUFFER;
+        int bufferSize = 128;
+        long consumerDelayMicros;
+        int idleTimeoutSeconds = 30;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.items = Integer.getInteger("stream.items", options.items);
+            options.itemSize = Integer.getInteger("stream.itemSize", options.itemSize);
+            options.backpressure = BackpressureStrategy.valueOf(
+                System.getProperty("stream.backpressure", options.backpressure.name()).toUpperCase(Locale.ROOT));
+            options.bufferSize = Integer.getInteger("stream.bufferSize", options.bufferSize);
+            options.consumerDelayMicros = Long.getLong("stream.consumerDelayMicros", options.consumerDelayMicros);
+            options.idleTimeoutSeconds = Integer.getInteger("stream.idleTimeoutSeconds", options.idleTimeoutSeconds);
+            return options;
+        }
+
+        public int items() {
+            return items;
+        }
+
+        public BackpressureStrategy backpressure() {
+            return backpressure;
+        }
+
+        public Options items(int value) {
+            items = value;
+            return this;
+        }
+
+        /** Characters per streamed string. */
+        public Options itemSize(int value) {
+            itemSize = value;
+            return this;
+        }
+
+        /** What to do with items the consumer has not requested yet; BUFFER loses nothing. */
+        public Options backpressure(BackpressureStrategy value) {
+            backpressure = value;
+            return this;
+        }
+
+        /** Items the consumer requests at a time. */
+        public Options bufferSize(int value) {
+            bufferSize = value;
+            return this;
+        }
+
+        /** Simulated per-item work, to see how a slow consumer affects buffering. */
+        public Options consumerDelayMicros(long value) {
+            consumerDelayMicros = value;
+            return this;
+        }
+
+        /** Fails the stream when no item arrives for this long. */
+        public Options idleTimeoutSeconds(int value) {
+            idleTimeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("items", items);
+            map.put("itemSize", itemSize);
+            map.put("backpressure", backpressure.name());
+            map.put("bufferSize", bufferSize);
+            map.put("consumerDelayMicros", consumerDelayMicros);
+            return map;
+        }
+    }
+
+    /** Measurements of one stream. */
+    public static final class Result {
+        final int expected;
+        final AtomicLong heapPeak = new AtomicLong();
+        final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "stream");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "stream");
+        long received;
+        long bytes;
+        long elapsedNanos;
+        long heapBaseline;
+        long heapRetained;
+        String error;
+
+        Result(Options options) {
+            this.expected = options.items;
+        }
+
+        public long received() {
+            return received;
+        }
+
+        /** The error that ended the stream, or null if it completed. */
+        public String error() {
+            return error;
+        }
+
+        public double itemsPerSecond() {
+            return elapsedNanos == 0 ? 0 : received / (elapsedNanos / 1e9);
+        }
+
+        /** Payload (string) bytes per second, excluding framing. */
+        public double bytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / (elapsedNanos / 1e9);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("expected", expected);
+            map.put("received", received);
+            map.put("elapsedMs", elapsedNanos / 1e6);
+            map.put("itemsPerSecond", itemsPerSecond());
+            map.put("bytesPerSecond", bytesPerSecond());
+            map.put("heapBaselineMb", heapBaseline / 1048576.0);
+            map.put("heapPeakGrowthMb", (heapPeak.get() - heapBaseline) / 1048576.0);
+            map.put("heapRetainedGrowthMb", (heapRetained - heapBaseline) / 1048576.0);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("received=%d/%d in %.0fms  %.0f items/s  %.1f MB/s  heap peak +%.1fMB retained +%.1fMB%s",
+                received, expected, elapsedNanos / 1e6, itemsPerSecond(), bytesPerSecond() / 1048576.0,
+                (heapPeak.get() - heapBaseline) / 1048576.0, (heapRetained - heapBaseline) / 1048576.0,
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HttpHubConnectionBuilder;
+import com.microsoft.signalr.TransportEnum;
+
+import java.util.Locale;
+
+/**
+ * Transports the Java client can use. {@link Protocol#builder(String)} applies the one selected
+ * by {@value #PROPERTY}, so the suite and the harness modes run over long polling with
+ * {@code -Dsignalr.transport=longpolling}.
+ */
+public enum Transport {
+    /** Whatever negotiate offers first; the client's default. */
+    ALL("all", TransportEnum.ALL),
+    WEBSOCKETS("websockets", TransportEnum.WEBSOCKETS),
+    LONG_POLLING("longpolling", TransportEnum.LONG_POLLING);
+
+    /** Transport for every connection built through {@link Protocol}; {@code all} when unset. */
+    public static final String PROPERTY = "signalr.transport";
+
+    private final String transportName;
+    private final TransportEnum transportEnum;
+
+    Transport(String transportName, TransportEnum transportEnum) {
+        this.transportName = transportName;
+        this.transportEnum = transportEnum;
+    }
+
+    public String transportName() {
+        return transportName;
+    }
+
+    /** {@code builder.withTransport(...)}; {@link #ALL} leaves the builder as it is. */
+    public HttpHubConnectionBuilder apply(HttpHubConnectionBuilder builder) {
+        return this == ALL ? builder : builder.withTransport(transportEnum);
+    }
+
+    public static Transport of(String value) {
+        String name = value.trim().toLowerCase(Locale.ROOT);
+        for (Transport transport : values()) {
+            if (transport.transportName.equals(name)) {
+                return transport;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transport '" + value + "', expected all, websockets or longpolling");
+    }
+
+    /** The transport selected by {@value #PROPERTY}. */
+    public static Transport fromSystemProperties() {
+        String value = System.getProperty(PROPERTY);
+        return value == null || value.trim().isEmpty() ? ALL : of(value);
+    }
+
+    @Override
+    public String toString() {
+        return transportName;
+    }
+}
@@ -0,0 +1,232 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the same work over one transport: a connection start, sequential {@code Invoke} round
+ * trips, then a windowed burst of {@code Echo} messages. An OkHttp interceptor counts the
+ * client's HTTP requests, so the report shows what each message costs in requests: two for the
+ * whole WebSocket connection, a POST per send and a GET per batch of replies for long polling.
+ */
+public final class TransportComparison {
+    private static final String MESSAGE = "Hello, World!";
+
+    private final Options options;
+
+    public TransportComparison(Options options) {
+        this.options = options;
+    }
+
+    public Result run(String url, Protocol protocol, Transport transport) throws InterruptedException {
+        Result result = new Result(protocol, transport);
+        Interceptor counter = chain -> {
+            Request request = chain.request();
+            result.requests.computeIfAbsent(request.method(), method -> new AtomicInteger()).incrementAndGet();
+            return chain.proceed(request);
+        };
+        HubConnection connection = protocol.builder(url, transport)
+            .setHttpClientBuilderCallback(builder -> builder.addInterceptor(counter))
+            .build();
+        long begin = System.nanoTime();
+        try {
+            connection.start().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            result.connectNanos = System.nanoTime() - begin;
+
+            for (int i = 0; i < options.roundTrips; i++) {
+                long sentAt = System.nanoTime();
+                connection.invoke(String.class, "Invoke", MESSAGE, MESSAGE)
+                    .timeout(options.timeoutSeconds, TimeUnit.SECONDS)
+                    .blockingGet();
+                LatencyRecorder.record(result.roundTrip, System.nanoTime() - sentAt);
+            }
+
+            echo(connection, result);
+        } catch (RuntimeException e) {
+            result.error = String.valueOf(e);
+        } finally {
+            try {
+                connection.stop().timeout(options.timeoutSeconds, TimeUnit.SECONDS).blockingAwait();
+            } catch (RuntimeException e) {
+                // Stopping does not change the measurements.
+            }
+        }
+        return result;
+    }
+
+    private void echo(HubConnection connection, Result result) throws InterruptedException {
+        Semaphore window = new Semaphore(options.window);
+        CountDownLatch done = new CountDownLatch(options.messages);
+        connection.on("EchoBack", (message, sentAt) -> {
+            LatencyRecorder.record(result.echo, System.nanoTime() - sentAt);
+            window.release();
+            done.countDown();
+        }, String.class, Long.class);
+        long requestsBefore = result.totalRequests();
+        long begin = System.nanoTime();
+        for (int i = 0; i < options.messages; i++) {
+            if (!window.tryAcquire(options.timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("No EchoBack within " + options.timeoutSeconds + " seconds");
+            }
+            connection.send("Echo", MESSAGE, System.nanoTime());
+            result.sent.incrementAndGet();
+        }
+        if (!done.await(options.timeoutSeconds, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Only " + (options.messages - done.getCount()) + "/" + options.messages
+                + " echoes within " + options.timeoutSeconds + " seconds");
+        }
+        result.echoNanos = System.nanoTime() - begin;
+        result.echoRequests = result.totalRequests() - requestsBefore;
+        connection.remove("EchoBack");
+    }
+
+    /**
+     * How much worse {@code fallback} is than {@code baseline}: the ratios of round-trip p50 and
+     * p99, of echo throughput, and of HTTP requests per message.
+     */
+    public static Map<String, Object> compare(Result baseline, Result fallback) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("baseline", baseline.transport.transportName());
+        map.put("fallback", fallback.transport.transportName());
+        map.put("roundTripP50Ratio", ratio(fallback.roundTrip.getValueAtPercentile(50), baseline.roundTrip.getValueAtPercentile(50)));
+        map.put("roundTripP99Ratio", ratio(fallback.roundTrip.getValueAtPercentile(99), baseline.roundTrip.getValueAtPercentile(99)));
+        map.put("throughputRatio", ratio(fallback.messagesPerSecond(), baseline.messagesPerSecond()));
+        map.put("requestsPerMessage", fallback.requestsPerMessage());
+        map.put("baselineRequestsPerMessage", baseline.requestsPerMessage());
+        return map;
+    }
+
+    private static double ratio(double value, double baseline) {
+        return baseline == 0 ? 0 : value / baseline;
+    }
+
+    /** Settings; {@link #fromSystemProperties()} reads the {@code transport.*} properties. */
+    public static final class Options {
+        int roundTrips = 200;
+        int messages = 2000;
+        int window = 100;
+        int timeoutSeconds = 120;
+
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.roundTrips = Integer.getInteger("transport.roundTrips", options.roundTrips);
+            options.messages = Integer.getInteger("transport.messages", options.messages);
+            options.window = Integer.getInteger("transport.window", options.window);
+            options.timeoutSeconds = Integer.getInteger("transport.timeoutSeconds", options.timeoutSeconds);
+            return options;
+        }
+
+        /** Sequential {@code Invoke} calls timed one by one. */
+        public Options roundTrips(int value) {
+            roundTrips = value;
+            return this;
+        }
+
+        /** {@code Echo} messages in the throughput burst. */
+        public Options messages(int value) {
+            messages = value;
+            return this;
+        }
+
+        /** Echoes in flight at most during the burst. */
+        public Options window(int value) {
+            window = value;
+            return this;
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("roundTrips", roundTrips);
+            map.put("messages", messages);
+            map.put("window", window);
+            return map;
+        }
+    }
+
+    /** Measurements of one protocol over one transport. */
+    public static final class Result {
+        final Protocol protocol;
+        final Transport transport;
+        final Histogram roundTrip = new LatencyRecorder().histogram("transport", "roundTrip");
+        final Histogram echo = new LatencyRecorder().histogram("transport", "echo");
+        final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        final AtomicLong sent = new AtomicLong();
+        long connectNanos;
+        long echoNanos;
+        long echoRequests;
+        String error;
+
+        Result(Protocol protocol, Transport transport) {
+            this.protocol = protocol;
+            this.transport = transport;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public long totalRequests() {
+            long total = 0;
+            for (AtomicInteger count : requests.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        public double messagesPerSecond() {
+            return echoNanos == 0 ? 0 : echo.getTotalCount() / (echoNanos / 1e9);
+        }
+
+        /** HTTP requests the client made during the echo burst, per message sent. */
+        public double requestsPerMessage() {
+            return sent.get() == 0 ? 0 : (double) echoRequests / sent.get();
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("protocol", protocol.protocolName());
+            map.put("transport", transport.transportName());
+            map.put("connectMs", connectNanos / 1e6);
+            map.put("roundTrip", LatencyRecorder.summarize(roundTrip));
+            map.put("echo", LatencyRecorder.summarize(echo));
+            map.put("messagesPerSecond", messagesPerSecond());
+            map.put("requestsPerMessage", requestsPerMessage());
+            Map<String, Integer> byMethod = new LinkedHashMap<>();
+            requests.forEach((method, count) -> byMethod.put(method, count.get()));
+            map.put("httpRequests", byMethod);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-11s %-11s connect %.0fms  invoke p50=%.2fms p99=%.2fms  echo %.0f/s  %.2f requests/message  %s%s",
+                protocol, transport, connectNanos / 1e6,
+                LatencyRecorder.millis(roundTrip.getValueAtPercentile(50)),
+                LatencyRecorder.millis(roundTrip.getValueAtPercentile(99)),
+                messagesPerSecond(), requestsPerMessage(), requests,
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
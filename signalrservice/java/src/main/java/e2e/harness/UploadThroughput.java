@@ -0,0 +1,300 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.Subscription;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.HdrHistogram.Histogram;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Upload-throughput version of {@code createClientStream()}: pushes a large client stream into
+ * {@code TestHub.Upload*} through {@code send}, {@code invoke} or {@code stream}, one item per
+ * message or batched into arrays, and measures throughput and the latency of the hub's periodic
+ * acknowledgments. The acknowledgments also bound how far the producer runs ahead, because the
+ * client's WebSocket fails once its outgoing queue passes 16 MB.
+ */
+public final class UploadThroughput {
+    /** How the client stream is passed to the hub. */
+    public enum Mode {
+        SEND, INVOKE, STREAM
+    }
+
+    private final Options options;
+
+    public UploadThroughput(Options options) {
+        this.options = options;
+    }
+
+    public Result run(HubConnection connection) throws InterruptedException {
+        int messages = (options.items + options.batchSize - 1) / options.batchSize;
+        boolean batched = options.batchSize > 1;
+        Result result = new Result(options, messages);
+        // Written by the producer thread, read by whichever thread delivers the acks.
+        AtomicLongArray sentAt = new AtomicLongArray(messages);
+        AtomicLong acknowledged = new AtomicLong();
+        // Done after the last ack, and with invoke also after the hub's item count.
+        CountDownLatch done = new CountDownLatch(options.mode == Mode.INVOKE ? 2 : 1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // Each ack carries the number of messages the hub has received so far.
+        LongConsumer onAck = ack -> {
+            int count = (int) ack;
+            if (count > 0) {
+                LatencyRecorder.record(result.ackLatency, System.nanoTime() - sentAt.get(count - 1));
+            }
+            acknowledged.set(count);
+            if (count >= messages) {
+                done.countDown();
+            }
+        };
+        Consumer<Throwable> onError = e -> {
+            error.compareAndSet(null, e);
+            while (done.getCount() > 0) {
+                done.countDown();
+            }
+        };
+
+        // The client subscribes to client streams on the calling thread; produce on another one so
+        // the call returns and acks are consumed while the upload runs.
+        String item = repeat('x', options.itemSize);
+        Observable<Object> upload = Observable.create(emitter -> {
+            for (int i = 0; i < messages && !emitter.isDisposed(); i++) {
+                while (options.window > 0 && i - acknowledged.get() >= options.window && done.getCount() > 0) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                }
+                sentAt.set(i, System.nanoTime());
+                emitter.onNext(batched ? batch(item, Math.min(options.batchSize, options.items - i * options.batchSize)) : item);
+                result.messagesSent.increment();
+            }
+            result.producedNanos = System.nanoTime() - result.begin;
+            emitter.onComplete();
+        }).subscribeOn(Schedulers.io());
+
+        String method = (batched ? "UploadBatches" : "Upload") + (options.mode == Mode.STREAM ? "WithAcks" : "");
+        Subscription acks = options.mode == Mode.STREAM ? null : connection.on("UploadAck", ack -> onAck.accept(ack), Long.class);
+        result.begin = System.nanoTime();
+        try {
+            switch (options.mode) {
+                case SEND:
+                    connection.send(method, options.ackEvery, upload);
+                    break;
+                case INVOKE:
+                    connection.invoke(Long.class, method, options.ackEvery, upload)
+                        .subscribe(items -> {
+                            result.itemsCounted = items;
+                            done.countDown();
+                        }, onError);
+                    break;
+                default:
+                    connection.stream(Long.class, method, options.ackEvery, upload)
+                        .subscribe(ack -> onAck.accept(ack), onError);
+                    break;
+            }
+            if (!done.await(options.timeoutSeconds, TimeUnit.SECONDS)) {
+                error.compareAndSet(null, new IllegalStateException("Upload not acknowledged within "
+                    + options.timeoutSeconds + " seconds (" + acknowledged.get() + "/" + messages + ")"));
+            }
+        } finally {
+            result.elapsedNanos = System.nanoTime() - result.begin;
+            if (acks != null) {
+                acks.unsubscribe();
+            }
+        }
+        result.acknowledged = acknowledged.get();
+        if (error.get() != null) {
+            result.error = String.valueOf(error.get());
+            result.errors.increment();
+        }
+        return result;
+    }
+
+    private static String[] batch(String item, int size) {
+        String[] batch = new String[size];
+        Arrays.fill(batch, item);
+        return batch;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /** Upload settings; {@link #fromSystemProperties()} reads the {@code upload.*} properties. */
+    public static final class Options {
+        int items = 1_000_000;
+        int itemSize = 16;
+        int batchSize = 1;
+        Mode mode = Mode.STREAM;
+        int ackEvery = 100;
+        int window = 10_000;
+        int timeoutSeconds = 300;
+
+        /** Reads everything but the batch size and mode, which callers usually sweep. */
+        public static Options fromSystemProperties() {
+            Options options = new Options();
+            options.items = Integer.getInteger("upload.items", options.items);
+            options.itemSize = Integer.getInteger("upload.itemSize", options.itemSize);
+            options.ackEvery = Math.max(1, Integer.getInteger("upload.ackEvery", options.ackEvery));
+            options.window = Integer.getInteger("upload.window", options.window);
+            options.timeoutSeconds = Integer.getInteger("upload.timeoutSeconds", options.timeoutSeconds);
+            checkWindow(options.window, options.ackEvery);
+            return options;
+        }
+
+        public int items() {
+            return items;
+        }
+
+        public Mode mode() {
+            return mode;
+        }
+
+        public Options items(int value) {
+            items = value;
+            return this;
+        }
+
+        /** Characters per item. */
+        public Options itemSize(int value) {
+            itemSize = value;
+            return this;
+        }
+
+        /** Items per stream message; 1 sends each item as its own message, more sends arrays. */
+        public Options batchSize(int value) {
+            batchSize = Math.max(1, value);
+            return this;
+        }
+
+        public Options mode(Mode value) {
+            mode = value;
+            return this;
+        }
+
+        /** Messages per hub acknowledgment; at most the window. */
+        public Options ackEvery(int value) {
+            checkWindow(window, Math.max(1, value));
+            ackEvery = Math.max(1, value);
+            return this;
+        }
+
+        /**
+         * Unacknowledged messages the producer may run ahead by; 0 for no limit. A smaller window
+         * than {@link #ackEvery(int)} would stall, waiting for an ack the hub has not reached.
+         */
+        public Options window(int value) {
+            checkWindow(value, ackEvery);
+            window = value;
+            return this;
+        }
+
+        private static void checkWindow(int window, int ackEvery) {
+            if (window < 0 || (window > 0 && window < ackEvery)) {
+                throw new IllegalArgumentException("upload.window " + window + " must be 0 or at least upload.ackEvery " + ackEvery);
+            }
+        }
+
+        public Options timeoutSeconds(int value) {
+            timeoutSeconds = value;
+            return this;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("mode", mode.name());
+            map.put("items", items);
+            map.put("itemSize", itemSize);
+            map.put("batchSize", batchSize);
+            map.put("ackEvery", ackEvery);
+            map.put("window", window);
+            return map;
+        }
+    }
+
+    /** Measurements of one upload. */
+    public static final class Result {
+        final Options options;
+        final int messages;
+        final Histogram ackLatency = new LatencyRecorder().histogram("upload", "ack");
+        final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "upload");
+        final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "upload");
+        volatile long begin;
+        volatile long producedNanos;
+        long elapsedNanos;
+        long acknowledged;
+        volatile Long itemsCounted;
+        String error;
+
+        Result(Options options, int messages) {
+            this.options = options;
+            this.messages = messages;
+        }
+
+        /** Messages the hub acknowledged; equals the messages sent when the upload completed. */
+        public long acknowledged() {
+            return acknowledged;
+        }
+
+        public int messages() {
+            return messages;
+        }
+
+        /** Items the hub counted, returned by {@code invoke}; null in the other modes. */
+        public Long itemsCounted() {
+            return itemsCounted;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        /** Acknowledged items per second, from the first item to the last acknowledgment. */
+        public double itemsPerSecond() {
+            return elapsedNanos == 0 ? 0 : Math.min(acknowledged * options.batchSize, options.items) / (elapsedNanos / 1e9);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("messages", messages);
+            map.put("acknowledged", acknowledged);
+            map.put("elapsedMs", elapsedNanos / 1e6);
+            map.put("producedMs", producedNanos / 1e6);
+            map.put("itemsPerSecond", itemsPerSecond());
+            map.put("messagesPerSecond", elapsedNanos == 0 ? 0 : acknowledged / (elapsedNanos / 1e9));
+            map.put("payloadBytesPerSecond", itemsPerSecond() * options.itemSize);
+            map.put("ackLatency", LatencyRecorder.summarize(ackLatency));
+            if (itemsCounted != null) {
+                map.put("itemsCounted", itemsCounted);
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s batch=%d: %d/%d messages in %.0fms  %.0f items/s  ack p50=%.2fms p99=%.2fms%s",
+                options.mode, options.batchSize, acknowledged, messages, elapsedNanos / 1e6, itemsPerSecond(),
+                LatencyRecorder.millis(ackLatency.getValueAtPercentile(50)),
+                LatencyRecorder.millis(ackLatency.getValueAtPercentile(99)),
+                error == null ? "" : "  error=" + error);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Items of a client-to-server stream argument, the Java counterpart of {@code IAsyncEnumerable<T>}
+ * in a hub method signature. Iteration blocks until the client sends the next item or completes.
+ */
+public final class ClientStream implements Iterable<Object>, Iterator<Object> {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> items = new LinkedBlockingQueue<>();
+    private volatile String error;
+    private Object next;
+
+    void push(Object item) {
+        items.add(item == null ? Null.INSTANCE : item);
+    }
+
+    void complete(String error) {
+        this.error = error;
+        items.add(END);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = items.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for stream item", e);
+            }
+        }
+        if (next == END) {
+            items.add(END);
+            if (error != null) {
+                throw new IllegalStateException("Client stream completed with error: " + error);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object item = next;
+        next = null;
+        return item == Null.INSTANCE ? null : item;
+    }
+
+    private enum Null {
+        INSTANCE
+    }
+}
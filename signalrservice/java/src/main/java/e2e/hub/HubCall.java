@@ -0,0 +1,88 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.util.List;
+
+/**
+ * One client invocation of a hub method: its arguments, client-to-server streams, the calling
+ * connection, and for streaming invocations the sink for server-to-client items.
+ */
+public final class HubCall {
+    private final HubClient caller;
+    private final HubMessage message;
+    private final List<ClientStream> streams;
+    private volatile boolean cancelled;
+
+    HubCall(HubClient caller, HubMessage message, List<ClientStream> streams) {
+        this.caller = caller;
+        this.message = message;
+        this.streams = streams;
+    }
+
+    public HubClient caller() {
+        return caller;
+    }
+
+    public String target() {
+        return message.target;
+    }
+
+    String invocationId() {
+        return message.invocationId;
+    }
+
+    boolean isStreaming() {
+        return message.type == HubMessage.STREAM_INVOCATION;
+    }
+
+    public List<Object> arguments() {
+        return message.arguments;
+    }
+
+    public Object argument(int index) {
+        return message.arguments.get(index);
+    }
+
+    public String stringArgument(int index) {
+        Object value = argument(index);
+        return value == null ? null : value.toString();
+    }
+
+    public long longArgument(int index) {
+        return ((Number) argument(index)).longValue();
+    }
+
+    /** The client stream bound to the {@code index}-th stream parameter. */
+    public ClientStream stream(int index) {
+        return streams.get(index);
+    }
+
+    /**
+     * Sends one item of a server-to-client stream, first waiting while the client is too slow to
+     * keep up. Returns {@code false} once the client has cancelled the stream or disconnected, so
+     * generators can stop early.
+     */
+    public boolean emit(Object item) {
+        try {
+            caller.awaitWritable();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (cancelled || caller.isClosed()) {
+            return false;
+        }
+        caller.sendMessage(HubMessage.streamItem(message.invocationId, item));
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || caller.isClosed();
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+}
@@ -0,0 +1,355 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server side of one SignalR connection, the stand-in for {@code Clients.Client(connectionId)}.
+ */
+public final class HubClient {
+    private static final byte[] HANDSHAKE_OK = "{}\u001e".getBytes(StandardCharsets.UTF_8);
+
+    private final StandInHub hub;
+    private final String connectionId;
+    private final String path;
+    private final String run;
+    private final Map<String, ClientStream> clientStreams = new ConcurrentHashMap<>();
+    private final Map<String, HubCall> streamingCalls = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> pendingResults = new ConcurrentHashMap<>();
+    private final AtomicLong invocationIds = new AtomicLong();
+    private final Set<String> groups = ConcurrentHashMap.newKeySet();
+    private final Lane lane = new Lane();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile HubTransport transport;
+    private volatile HubCodec codec;
+    private byte[] remainder;
+
+    HubClient(StandInHub hub, String connectionId, String path, String run) {
+        this.hub = hub;
+        this.connectionId = connectionId;
+        this.path = path;
+        this.run = run;
+    }
+
+    public String connectionId() {
+        return connectionId;
+    }
+
+    /** Hub path the client connected to, e.g. {@code /test}. Each path is an isolated hub. */
+    public String path() {
+        return path;
+    }
+
+    /** The {@code run} query parameter the client connected with, or null; see {@code HubTarget.isolated}. */
+    public String run() {
+        return run;
+    }
+
+    /** Whether the client joined {@code group}; see {@link StandInHub#group(String, String, String)}. */
+    public boolean inGroup(String group) {
+        return groups.contains(group);
+    }
+
+    /** Equivalent of {@code Groups.AddToGroupAsync(connectionId, group)}. */
+    void join(String group) {
+        groups.add(group);
+    }
+
+    void leave(String group) {
+        groups.remove(group);
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** Equivalent of {@code SendAsync(target, args)}: fire and forget. */
+    public void send(String target, Object... args) {
+        sendMessage(HubMessage.invocation(null, target, Arrays.asList(args)));
+    }
+
+    /** Equivalent of {@code InvokeAsync<T>(target, args)}: completes with the client's result. */
+    public CompletableFuture<Object> invoke(String target, Object... args) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        if (isClosed()) {
+            result.completeExceptionally(new IllegalStateException("Connection " + connectionId + " is closed"));
+            return result;
+        }
+        String invocationId = "s" + invocationIds.incrementAndGet();
+        pendingResults.put(invocationId, result);
+        sendMessage(HubMessage.invocation(invocationId, target, Arrays.asList(args)));
+        return result;
+    }
+
+    /** Drops the transport without a close message, as a crashed server or broken network would. */
+    public void abort() {
+        HubTransport t = transport;
+        if (t != null) {
+            t.abort();
+        }
+        onTransportClosed();
+    }
+
+    void attach(HubTransport transport) {
+        this.transport = transport;
+    }
+
+    void sendMessage(HubMessage message) {
+        HubCodec c = codec;
+        HubTransport t = transport;
+        if (c == null || t == null || isClosed()) {
+            return;
+        }
+        t.send(c.write(message), c.isBinary());
+    }
+
+    /** Waits for the transport to drain below its high-water mark; see {@link HubTransport#awaitWritable()}. */
+    void awaitWritable() throws InterruptedException {
+        HubTransport t = transport;
+        if (t != null && !isClosed()) {
+            t.awaitWritable();
+        }
+    }
+
+    /** Called on the I/O thread with each complete transport message. */
+    void onData(ByteBuffer data) {
+        if (remainder != null) {
+            ByteBuffer joined = ByteBuffer.allocate(remainder.length + data.remaining());
+            joined.put(remainder).put(data).flip();
+            data = joined;
+            remainder = null;
+        }
+        if (codec == null && !handshake(data)) {
+            return;
+        }
+        List<HubMessage> messages = new ArrayList<>();
+        try {
+            codec.parse(data, messages);
+        } catch (RuntimeException e) {
+            System.err.println("Stand-in hub: dropping " + connectionId + " after bad message: " + e.getMessage());
+            close("Connection closed with an error. " + e.getMessage());
+            return;
+        }
+        if (data.hasRemaining()) {
+            remainder = new byte[data.remaining()];
+            data.get(remainder);
+        }
+        for (HubMessage message : messages) {
+            onMessage(message);
+        }
+    }
+
+    private boolean handshake(ByteBuffer data) {
+        int end = JsonHubCodec.indexOf(data, data.position(), JsonHubCodec.RECORD_SEPARATOR);
+        if (end < 0) {
+            remainder = new byte[data.remaining()];
+            data.get(remainder);
+            return false;
+        }
+        String text = JsonHubCodec.decode(data, data.position(), end);
+        data.position(end + 1);
+        String protocol = null;
+        try {
+            Object request = Json.parse(text);
+            if (request instanceof Map) {
+                protocol = (String) ((Map<?, ?>) request).get("protocol");
+            }
+        } catch (RuntimeException e) {
+            // Reported below as an unsupported protocol.
+        }
+        HubCodec selected = HubCodec.forName(protocol);
+        HubTransport t = transport;
+        if (selected == null) {
+            String error = "{\"error\":\"The protocol '" + protocol + "' is not supported.\"}\u001e";
+            t.send(error.getBytes(StandardCharsets.UTF_8), false);
+            close(null);
+            return false;
+        }
+        codec = selected;
+        t.send(HANDSHAKE_OK, selected.isBinary());
+        hub.onConnected(this);
+        return true;
+    }
+
+    private void onMessage(HubMessage message) {
+        switch (message.type) {
+            case HubMessage.INVOCATION:
+            case HubMessage.STREAM_INVOCATION:
+                dispatch(message);
+                break;
+            case HubMessage.STREAM_ITEM: {
+                ClientStream stream = clientStreams.get(message.invocationId);
+                if (stream != null) {
+                    stream.push(message.item);
+                }
+                break;
+            }
+            case HubMessage.COMPLETION: {
+                ClientStream stream = clientStreams.remove(message.invocationId);
+                if (stream != null) {
+                    stream.complete(message.error);
+                    break;
+                }
+                CompletableFuture<Object> result = pendingResults.remove(message.invocationId);
+                if (result != null) {
+                    if (message.error != null) {
+                        result.completeExceptionally(new IllegalStateException(message.error));
+                    } else {
+                        result.complete(message.result);
+                    }
+                }
+                break;
+            }
+            case HubMessage.CANCEL_INVOCATION: {
+                HubCall call = streamingCalls.get(message.invocationId);
+                if (call != null) {
+                    call.cancel();
+                }
+                break;
+            }
+            case HubMessage.CLOSE:
+                close(null);
+                break;
+            case HubMessage.PING:
+                // Counted for keep-alive measurements; the stand-in enforces no client timeout.
+                hub.onPing();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void dispatch(HubMessage message) {
+        List<ClientStream> streams = Collections.emptyList();
+        if (!message.streamIds.isEmpty()) {
+            // Register before returning to the I/O loop: items may be in the very next frame.
+            streams = new ArrayList<>(message.streamIds.size());
+            for (String streamId : message.streamIds) {
+                ClientStream stream = new ClientStream();
+                clientStreams.put(streamId, stream);
+                streams.add(stream);
+            }
+        }
+        HubCall call = new HubCall(this, message, streams);
+        if (call.isStreaming()) {
+            streamingCalls.put(message.invocationId, call);
+        }
+        Runnable task = () -> execute(call);
+        if (call.isStreaming() || !streams.isEmpty()) {
+            // Like ASP.NET Core, streaming calls do not hold the per-connection invocation lane.
+            hub.workers().execute(task);
+        } else {
+            lane.execute(task);
+        }
+    }
+
+    private void execute(HubCall call) {
+        String invocationId = call.invocationId();
+        HubMethod method = hub.method(call.target());
+        try {
+            if (method == null) {
+                if (invocationId != null) {
+                    sendMessage(HubMessage.errorCompletion(invocationId, "Failed to invoke '" + call.target()
+                        + "' due to an error on the server. HubException: Method does not exist."));
+                }
+                return;
+            }
+            Object result = method.invoke(call);
+            if (invocationId != null) {
+                if (call.isStreaming() || result == HubMethod.VOID) {
+                    sendMessage(HubMessage.voidCompletion(invocationId));
+                } else {
+                    sendMessage(HubMessage.completion(invocationId, result));
+                }
+            }
+        } catch (Exception e) {
+            if (invocationId != null) {
+                sendMessage(HubMessage.errorCompletion(invocationId, "An unexpected error occurred invoking '"
+                    + call.target() + "' on the server. " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+            } else {
+                System.err.println("Stand-in hub: " + call.target() + " failed: " + e);
+            }
+        } finally {
+            if (call.isStreaming()) {
+                streamingCalls.remove(invocationId);
+            }
+        }
+    }
+
+    /** Sends a close message (if the handshake completed) and shuts the connection down. */
+    void close(String error) {
+        if (codec != null && !isClosed()) {
+            sendMessage(HubMessage.close(error, false));
+        }
+        HubTransport t = transport;
+        onTransportClosed();
+        if (t != null) {
+            t.close();
+        }
+    }
+
+    void onTransportClosed() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        hub.onDisconnected(this);
+        for (ClientStream stream : clientStreams.values()) {
+            stream.complete("Connection closed");
+        }
+        clientStreams.clear();
+        for (HubCall call : streamingCalls.values()) {
+            call.cancel();
+        }
+        for (CompletableFuture<Object> result : pendingResults.values()) {
+            result.completeExceptionally(new IllegalStateException("Connection " + connectionId + " closed"));
+        }
+        pendingResults.clear();
+    }
+
+    /** Runs non-streaming invocations one at a time, in arrival order, per connection. */
+    private final class Lane implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                hub.workers().execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Encodes and decodes hub messages for one hub protocol ("json" or "messagepack").
+ */
+interface HubCodec {
+    String name();
+
+    /** Whether messages travel in binary rather than text WebSocket frames. */
+    boolean isBinary();
+
+    /**
+     * Decodes every complete message in {@code data} into {@code out}. The buffer position is
+     * left at the start of any trailing partial message.
+     */
+    void parse(ByteBuffer data, List<HubMessage> out);
+
+    byte[] write(HubMessage message);
+
+    static HubCodec forName(String protocol) {
+        if (JsonHubCodec.NAME.equals(protocol)) {
+            return JsonHubCodec.INSTANCE;
+        }
+        if (MessagePackHubCodec.NAME.equals(protocol)) {
+            return MessagePackHubCodec.INSTANCE;
+        }
+        return null;
+    }
+}
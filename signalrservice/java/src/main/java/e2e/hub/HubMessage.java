@@ -0,0 +1,80 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One SignalR hub protocol message, independent of its JSON or MessagePack encoding.
+ */
+final class HubMessage {
+    static final int INVOCATION = 1;
+    static final int STREAM_ITEM = 2;
+    static final int COMPLETION = 3;
+    static final int STREAM_INVOCATION = 4;
+    static final int CANCEL_INVOCATION = 5;
+    static final int PING = 6;
+    static final int CLOSE = 7;
+
+    static final HubMessage PING_MESSAGE = new HubMessage(PING);
+
+    final int type;
+    String invocationId;
+    String target;
+    List<Object> arguments = Collections.emptyList();
+    List<String> streamIds = Collections.emptyList();
+    Object item;
+    Object result;
+    boolean hasResult;
+    String error;
+    boolean allowReconnect;
+
+    HubMessage(int type) {
+        this.type = type;
+    }
+
+    static HubMessage invocation(String invocationId, String target, List<Object> arguments) {
+        HubMessage message = new HubMessage(INVOCATION);
+        message.invocationId = invocationId;
+        message.target = target;
+        message.arguments = arguments;
+        return message;
+    }
+
+    static HubMessage streamItem(String invocationId, Object item) {
+        HubMessage message = new HubMessage(STREAM_ITEM);
+        message.invocationId = invocationId;
+        message.item = item;
+        return message;
+    }
+
+    static HubMessage completion(String invocationId, Object result) {
+        HubMessage message = new HubMessage(COMPLETION);
+        message.invocationId = invocationId;
+        message.result = result;
+        message.hasResult = true;
+        return message;
+    }
+
+    static HubMessage voidCompletion(String invocationId) {
+        HubMessage message = new HubMessage(COMPLETION);
+        message.invocationId = invocationId;
+        return message;
+    }
+
+    static HubMessage errorCompletion(String invocationId, String error) {
+        HubMessage message = new HubMessage(COMPLETION);
+        message.invocationId = invocationId;
+        message.error = error;
+        return message;
+    }
+
+    static HubMessage close(String error, boolean allowReconnect) {
+        HubMessage message = new HubMessage(CLOSE);
+        message.error = error;
+        message.allowReconnect = allowReconnect;
+        return message;
+    }
+}
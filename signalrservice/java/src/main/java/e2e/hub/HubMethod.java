@@ -0,0 +1,16 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+/**
+ * A hub method callable by clients. Runs on a worker thread, so it may block on client streams
+ * or client results.
+ */
+@FunctionalInterface
+public interface HubMethod {
+    /** Returned by methods declared {@code void} on the .NET side; completes without a result. */
+    Object VOID = new Object();
+
+    Object invoke(HubCall call) throws Exception;
+}
@@ -0,0 +1,24 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+/**
+ * Carries encoded hub messages to one client.
+ */
+interface HubTransport {
+    /** Queues one payload for delivery; safe to call from any thread. */
+    void send(byte[] payload, boolean binary);
+
+    /**
+     * Blocks while more than a high-water mark of payloads is queued for a slow reader, so
+     * streaming hub methods cannot buffer without bound. Returns early once the transport closes.
+     */
+    void awaitWritable() throws InterruptedException;
+
+    /** Flushes queued payloads, then closes the underlying connection. */
+    void close();
+
+    /** Closes the underlying connection immediately, dropping anything still queued. */
+    void abort();
+}
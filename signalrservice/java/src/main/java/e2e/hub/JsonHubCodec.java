@@ -0,0 +1,151 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON hub protocol: one JSON object per message, each terminated by the 0x1E record separator.
+ */
+final class JsonHubCodec implements HubCodec {
+    static final String NAME = "json";
+    static final JsonHubCodec INSTANCE = new JsonHubCodec();
+    static final byte RECORD_SEPARATOR = 0x1e;
+
+    private JsonHubCodec() {
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+
+    @Override
+    public void parse(ByteBuffer data, List<HubMessage> out) {
+        while (data.hasRemaining()) {
+            int start = data.position();
+            int end = indexOf(data, start, RECORD_SEPARATOR);
+            if (end < 0) {
+                return;
+            }
+            String text = decode(data, start, end);
+            data.position(end + 1);
+            out.add(toMessage(text));
+        }
+    }
+
+    @Override
+    public byte[] write(HubMessage message) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"type\":").append(message.type);
+        if (message.invocationId != null) {
+            sb.append(",\"invocationId\":");
+            Json.write(message.invocationId, sb);
+        }
+        switch (message.type) {
+            case HubMessage.INVOCATION:
+            case HubMessage.STREAM_INVOCATION:
+                sb.append(",\"target\":");
+                Json.write(message.target, sb);
+                sb.append(",\"arguments\":");
+                Json.write(message.arguments, sb);
+                if (!message.streamIds.isEmpty()) {
+                    sb.append(",\"streamIds\":");
+                    Json.write(message.streamIds, sb);
+                }
+                break;
+            case HubMessage.STREAM_ITEM:
+                sb.append(",\"item\":");
+                Json.write(message.item, sb);
+                break;
+            case HubMessage.COMPLETION:
+                if (message.error != null) {
+                    sb.append(",\"error\":");
+                    Json.write(message.error, sb);
+                } else if (message.hasResult) {
+                    sb.append(",\"result\":");
+                    Json.write(message.result, sb);
+                }
+                break;
+            case HubMessage.CLOSE:
+                if (message.error != null) {
+                    sb.append(",\"error\":");
+                    Json.write(message.error, sb);
+                }
+                if (message.allowReconnect) {
+                    sb.append(",\"allowReconnect\":true");
+                }
+                break;
+            default:
+                break;
+        }
+        sb.append('}').append((char) RECORD_SEPARATOR);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HubMessage toMessage(String text) {
+        Object parsed = Json.parse(text);
+        if (!(parsed instanceof Map)) {
+            throw new IllegalArgumentException("Hub message is not a JSON object: " + text);
+        }
+        Map<String, Object> map = (Map<String, Object>) parsed;
+        Object type = map.get("type");
+        if (!(type instanceof Number)) {
+            throw new IllegalArgumentException("Hub message has no type: " + text);
+        }
+        HubMessage message = new HubMessage(((Number) type).intValue());
+        message.invocationId = (String) map.get("invocationId");
+        message.target = (String) map.get("target");
+        Object arguments = map.get("arguments");
+        if (arguments instanceof List) {
+            message.arguments = (List<Object>) arguments;
+        }
+        Object streamIds = map.get("streamIds");
+        if (streamIds instanceof List) {
+            List<String> ids = new ArrayList<>();
+            for (Object id : (List<Object>) streamIds) {
+                ids.add(String.valueOf(id));
+            }
+            message.streamIds = Collections.unmodifiableList(ids);
+        }
+        message.item = map.get("item");
+        message.hasResult = map.containsKey("result");
+        message.result = map.get("result");
+        Object error = map.get("error");
+        message.error = error == null ? null : String.valueOf(error);
+        message.allowReconnect = Boolean.TRUE.equals(map.get("allowReconnect"));
+        return message;
+    }
+
+    static int indexOf(ByteBuffer data, int from, byte value) {
+        for (int i = from; i < data.limit(); i++) {
+            if (data.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String decode(ByteBuffer data, int start, int end) {
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
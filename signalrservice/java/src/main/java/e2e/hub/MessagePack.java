@@ -0,0 +1,370 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal MessagePack reader/writer for the stand-in hub.
+ *
+ * Uses the same value model as {@link Json}, with {@code byte[]} for bin and ext payloads.
+ * Map keys are always read back as strings, which is all the hub protocol needs.
+ */
+public final class MessagePack {
+    private MessagePack() {
+    }
+
+    public static Object read(ByteBuffer in) {
+        try {
+            return readValue(in);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated MessagePack value", e);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        int b = in.get() & 0xff;
+        if (b <= 0x7f) {
+            return (long) b;
+        }
+        if (b >= 0xe0) {
+            return (long) (byte) b;
+        }
+        if ((b & 0xf0) == 0x80) {
+            return readMap(in, b & 0x0f);
+        }
+        if ((b & 0xf0) == 0x90) {
+            return readArray(in, b & 0x0f);
+        }
+        if ((b & 0xe0) == 0xa0) {
+            return readString(in, b & 0x1f);
+        }
+        switch (b) {
+            case 0xc0:
+                return null;
+            case 0xc2:
+                return Boolean.FALSE;
+            case 0xc3:
+                return Boolean.TRUE;
+            case 0xc4:
+                return readBytes(in, in.get() & 0xff);
+            case 0xc5:
+                return readBytes(in, in.getShort() & 0xffff);
+            case 0xc6:
+                return readBytes(in, in.getInt());
+            case 0xc7:
+                return readExt(in, in.get() & 0xff);
+            case 0xc8:
+                return readExt(in, in.getShort() & 0xffff);
+            case 0xc9:
+                return readExt(in, in.getInt());
+            case 0xca:
+                return (double) in.getFloat();
+            case 0xcb:
+                return in.getDouble();
+            case 0xcc:
+                return (long) (in.get() & 0xff);
+            case 0xcd:
+                return (long) (in.getShort() & 0xffff);
+            case 0xce:
+                return in.getInt() & 0xffffffffL;
+            case 0xcf:
+            case 0xd3:
+                return in.getLong();
+            case 0xd0:
+                return (long) in.get();
+            case 0xd1:
+                return (long) in.getShort();
+            case 0xd2:
+                return (long) in.getInt();
+            case 0xd4:
+                return readExt(in, 1);
+            case 0xd5:
+                return readExt(in, 2);
+            case 0xd6:
+                return readExt(in, 4);
+            case 0xd7:
+                return readExt(in, 8);
+            case 0xd8:
+                return readExt(in, 16);
+            case 0xd9:
+                return readString(in, in.get() & 0xff);
+            case 0xda:
+                return readString(in, in.getShort() & 0xffff);
+            case 0xdb:
+                return readString(in, in.getInt());
+            case 0xdc:
+                return readArray(in, in.getShort() & 0xffff);
+            case 0xdd:
+                return readArray(in, in.getInt());
+            case 0xde:
+                return readMap(in, in.getShort() & 0xffff);
+            case 0xdf:
+                return readMap(in, in.getInt());
+            default:
+                throw new IllegalArgumentException("Unsupported MessagePack type 0x" + Integer.toHexString(b));
+        }
+    }
+
+    /** Rejects lengths a corrupt or hostile header claims but the input cannot hold. */
+    private static int checkLength(ByteBuffer in, int length) {
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("MessagePack length " + (length & 0xffffffffL)
+                + " exceeds the " + in.remaining() + " bytes left");
+        }
+        return length;
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in, int size) {
+        // Each entry takes at least a byte, so a larger size cannot be genuine.
+        checkLength(in, size);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(String.valueOf(readValue(in)), readValue(in));
+        }
+        return map;
+    }
+
+    private static List<Object> readArray(ByteBuffer in, int size) {
+        checkLength(in, size);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readValue(in));
+        }
+        return list;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        checkLength(in, length);
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        return new String(readBytes(in, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int length) {
+        checkLength(in, length);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] readExt(ByteBuffer in, int length) {
+        in.get(); // ext type, not interpreted by the hub
+        return readBytes(in, length);
+    }
+
+    /**
+     * Growable output buffer; {@link #write(Object)} appends one encoded value.
+     */
+    public static final class Writer {
+        private byte[] buf;
+        private int size;
+
+        public Writer() {
+            this(256);
+        }
+
+        public Writer(int initialCapacity) {
+            buf = new byte[initialCapacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        public Writer write(Object value) {
+            if (value == null) {
+                writeNil();
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                writeByte(((Boolean) value) ? 0xc3 : 0xc2);
+            } else if (value instanceof Double) {
+                writeByte(0xcb);
+                writeLong64(Double.doubleToLongBits((Double) value));
+            } else if (value instanceof Float) {
+                writeByte(0xca);
+                writeInt32(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Number) {
+                writeLong(((Number) value).longValue());
+            } else if (value instanceof byte[]) {
+                writeBinary((byte[]) value);
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeMapHeader(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(String.valueOf(entry.getKey()));
+                    write(entry.getValue());
+                }
+            } else if (value instanceof Collection) {
+                Collection<?> items = (Collection<?>) value;
+                writeArrayHeader(items.size());
+                for (Object item : items) {
+                    write(item);
+                }
+            } else if (value instanceof Object[]) {
+                Object[] items = (Object[]) value;
+                writeArrayHeader(items.length);
+                for (Object item : items) {
+                    write(item);
+                }
+            } else {
+                writeString(value.toString());
+            }
+            return this;
+        }
+
+        public Writer writeNil() {
+            writeByte(0xc0);
+            return this;
+        }
+
+        public Writer writeArrayHeader(int size) {
+            if (size < 16) {
+                writeByte(0x90 | size);
+            } else if (size < 0x10000) {
+                writeByte(0xdc);
+                writeInt16(size);
+            } else {
+                writeByte(0xdd);
+                writeInt32(size);
+            }
+            return this;
+        }
+
+        public Writer writeMapHeader(int size) {
+            if (size < 16) {
+                writeByte(0x80 | size);
+            } else if (size < 0x10000) {
+                writeByte(0xde);
+                writeInt16(size);
+            } else {
+                writeByte(0xdf);
+                writeInt32(size);
+            }
+            return this;
+        }
+
+        public Writer writeLong(long v) {
+            if (v >= 0) {
+                if (v <= 0x7f) {
+                    writeByte((int) v);
+                } else if (v <= 0xff) {
+                    writeByte(0xcc);
+                    writeByte((int) v);
+                } else if (v <= 0xffff) {
+                    writeByte(0xcd);
+                    writeInt16((int) v);
+                } else if (v <= 0xffffffffL) {
+                    writeByte(0xce);
+                    writeInt32((int) v);
+                } else {
+                    writeByte(0xcf);
+                    writeLong64(v);
+                }
+            } else if (v >= -32) {
+                writeByte((int) v & 0xff);
+            } else if (v >= Byte.MIN_VALUE) {
+                writeByte(0xd0);
+                writeByte((int) v & 0xff);
+            } else if (v >= Short.MIN_VALUE) {
+                writeByte(0xd1);
+                writeInt16((int) v);
+            } else if (v >= Integer.MIN_VALUE) {
+                writeByte(0xd2);
+                writeInt32((int) v);
+            } else {
+                writeByte(0xd3);
+                writeLong64(v);
+            }
+            return this;
+        }
+
+        public Writer writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            int length = bytes.length;
+            if (length < 32) {
+                writeByte(0xa0 | length);
+            } else if (length < 0x100) {
+                writeByte(0xd9);
+                writeByte(length);
+            } else if (length < 0x10000) {
+                writeByte(0xda);
+                writeInt16(length);
+            } else {
+                writeByte(0xdb);
+                writeInt32(length);
+            }
+            writeRaw(bytes, 0, length);
+            return this;
+        }
+
+        public Writer writeBinary(byte[] bytes) {
+            int length = bytes.length;
+            if (length < 0x100) {
+                writeByte(0xc4);
+                writeByte(length);
+            } else if (length < 0x10000) {
+                writeByte(0xc5);
+                writeInt16(length);
+            } else {
+                writeByte(0xc6);
+                writeInt32(length);
+            }
+            writeRaw(bytes, 0, length);
+            return this;
+        }
+
+        public void writeRaw(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buf, size, length);
+            size += length;
+        }
+
+        private void writeByte(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        private void writeInt16(int v) {
+            ensure(2);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        private void writeInt32(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        private void writeLong64(long v) {
+            writeInt32((int) (v >>> 32));
+            writeInt32((int) v);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+}
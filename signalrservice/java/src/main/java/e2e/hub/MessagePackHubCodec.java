@@ -0,0 +1,163 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MessagePack hub protocol: each message is a MessagePack array prefixed with its length as a
+ * 7-bit varint, laid out as in the ASP.NET Core MessagePackHubProtocol.
+ */
+final class MessagePackHubCodec implements HubCodec {
+    static final String NAME = "messagepack";
+    static final MessagePackHubCodec INSTANCE = new MessagePackHubCodec();
+
+    private static final int ERROR_RESULT = 1;
+    private static final int VOID_RESULT = 2;
+    private static final int NON_VOID_RESULT = 3;
+
+    private MessagePackHubCodec() {
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    @Override
+    public void parse(ByteBuffer data, List<HubMessage> out) {
+        while (data.hasRemaining()) {
+            int start = data.position();
+            long length = 0;
+            int shift = 0;
+            boolean complete = false;
+            while (data.hasRemaining() && shift <= 28) {
+                int b = data.get() & 0xff;
+                length |= (long) (b & 0x7f) << shift;
+                shift += 7;
+                if ((b & 0x80) == 0) {
+                    complete = true;
+                    break;
+                }
+            }
+            if (!complete || data.remaining() < length) {
+                data.position(start);
+                return;
+            }
+            ByteBuffer body = data.slice();
+            body.limit((int) length);
+            data.position(data.position() + (int) length);
+            out.add(toMessage(MessagePack.read(body)));
+        }
+    }
+
+    @Override
+    public byte[] write(HubMessage message) {
+        MessagePack.Writer body = new MessagePack.Writer(64);
+        switch (message.type) {
+            case HubMessage.INVOCATION:
+            case HubMessage.STREAM_INVOCATION:
+                body.writeArrayHeader(6).writeLong(message.type).writeMapHeader(0);
+                body.write(message.invocationId).write(message.target).write(message.arguments)
+                    .write(message.streamIds);
+                break;
+            case HubMessage.STREAM_ITEM:
+                body.writeArrayHeader(4).writeLong(message.type).writeMapHeader(0);
+                body.write(message.invocationId).write(message.item);
+                break;
+            case HubMessage.COMPLETION:
+                if (message.error != null) {
+                    body.writeArrayHeader(5).writeLong(message.type).writeMapHeader(0);
+                    body.write(message.invocationId).writeLong(ERROR_RESULT).write(message.error);
+                } else if (message.hasResult) {
+                    body.writeArrayHeader(5).writeLong(message.type).writeMapHeader(0);
+                    body.write(message.invocationId).writeLong(NON_VOID_RESULT).write(message.result);
+                } else {
+                    body.writeArrayHeader(4).writeLong(message.type).writeMapHeader(0);
+                    body.write(message.invocationId).writeLong(VOID_RESULT);
+                }
+                break;
+            case HubMessage.CANCEL_INVOCATION:
+                body.writeArrayHeader(3).writeLong(message.type).writeMapHeader(0).write(message.invocationId);
+                break;
+            case HubMessage.PING:
+                body.writeArrayHeader(1).writeLong(message.type);
+                break;
+            case HubMessage.CLOSE:
+                body.writeArrayHeader(3).writeLong(message.type).write(message.error).write(message.allowReconnect);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported message type " + message.type);
+        }
+        int length = body.size();
+        MessagePack.Writer framed = new MessagePack.Writer(length + 5);
+        byte[] prefix = new byte[5];
+        int prefixLength = 0;
+        int remaining = length;
+        do {
+            int b = remaining & 0x7f;
+            remaining >>>= 7;
+            prefix[prefixLength++] = (byte) (remaining > 0 ? b | 0x80 : b);
+        } while (remaining > 0);
+        framed.writeRaw(prefix, 0, prefixLength);
+        framed.writeRaw(body.toByteArray(), 0, length);
+        return framed.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HubMessage toMessage(Object value) {
+        if (!(value instanceof List) || ((List<Object>) value).isEmpty()) {
+            throw new IllegalArgumentException("Hub message is not a MessagePack array");
+        }
+        List<Object> fields = (List<Object>) value;
+        HubMessage message = new HubMessage(((Number) fields.get(0)).intValue());
+        switch (message.type) {
+            case HubMessage.INVOCATION:
+            case HubMessage.STREAM_INVOCATION:
+                message.invocationId = (String) fields.get(2);
+                message.target = (String) fields.get(3);
+                message.arguments = (List<Object>) fields.get(4);
+                if (fields.size() > 5 && fields.get(5) instanceof List) {
+                    List<String> ids = new ArrayList<>();
+                    for (Object id : (List<Object>) fields.get(5)) {
+                        ids.add(String.valueOf(id));
+                    }
+                    message.streamIds = Collections.unmodifiableList(ids);
+                }
+                break;
+            case HubMessage.STREAM_ITEM:
+                message.invocationId = (String) fields.get(2);
+                message.item = fields.get(3);
+                break;
+            case HubMessage.COMPLETION:
+                message.invocationId = (String) fields.get(2);
+                int kind = ((Number) fields.get(3)).intValue();
+                if (kind == ERROR_RESULT) {
+                    message.error = String.valueOf(fields.get(4));
+                } else if (kind == NON_VOID_RESULT) {
+                    message.hasResult = true;
+                    message.result = fields.get(4);
+                }
+                break;
+            case HubMessage.CANCEL_INVOCATION:
+                message.invocationId = (String) fields.get(2);
+                break;
+            case HubMessage.CLOSE:
+                message.error = fields.size() > 1 ? (String) fields.get(1) : null;
+                message.allowReconnect = fields.size() > 2 && Boolean.TRUE.equals(fields.get(2));
+                break;
+            default:
+                break;
+        }
+        return message;
+    }
+}
@@ -0,0 +1,919 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for {@code signalrservice/server}: a single-threaded NIO server that speaks
+ * the SignalR negotiate endpoint, the WebSockets and long-polling transports, and the JSON and
+ * MessagePack hub protocols, and serves the methods of {@code TestHub.cs} on every hub path.
+ *
+ * Each hub path (e.g. {@code /test}, {@code /test-java}) is an isolated hub, and within a path
+ * each {@code run} query parameter names an isolated group, as in {@code TestHub.OnConnectedAsync}.
+ * Hub methods run on a worker pool; non-streaming invocations of one connection run in order, like
+ * ASP.NET Core with the default {@code MaximumParallelInvocationsPerClient = 1}.
+ *
+ * <pre>
+ * try (StandInHub hub = StandInHub.start()) {
+ *     HubConnection connection = HubConnectionBuilder.create(hub.url("/test")).build();
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StandInHub implements AutoCloseable {
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final long KEEP_ALIVE_SECONDS = 15;
+    // Per-connection outbound bytes at which stream emitters pause, and resume again; like
+    // ASP.NET Core's transport pause and resume writer thresholds.
+    private static final long HIGH_WATER_MARK = 1024 * 1024;
+    private static final long LOW_WATER_MARK = 512 * 1024;
+    // ASP.NET Core's default LongPollingOptions.PollTimeout
+    private static final long POLL_TIMEOUT_SECONDS = 90;
+    // Like ASP.NET Core's default DisconnectTimeout: a negotiated id no transport claims is dropped.
+    private static final long NEGOTIATE_TIMEOUT_SECONDS = 15;
+
+    private final Map<String, HubMethod> methods = new ConcurrentHashMap<>();
+    private final Map<String, HubClient> negotiated = new ConcurrentHashMap<>();
+    private final Map<String, HubClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, LongPolling> longPolls = new ConcurrentHashMap<>();
+    private final Queue<Endpoint> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final Thread ioThread;
+    private volatile boolean running = true;
+    private volatile long unavailableUntil = System.nanoTime();
+    private final AtomicLong pingsReceived = new AtomicLong();
+    private ScheduledFuture<?> keepAlive;
+    volatile long negotiateTimeoutMillis = TimeUnit.SECONDS.toMillis(NEGOTIATE_TIMEOUT_SECONDS);
+
+    private StandInHub(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newCachedThreadPool(daemonThreads("stand-in-hub-worker"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("stand-in-hub-keepalive"));
+        keepAliveInterval(TimeUnit.SECONDS.toMillis(KEEP_ALIVE_SECONDS));
+        TestHub.register(this);
+        ioThread = daemonThreads("stand-in-hub-io").newThread(this::runLoop);
+        ioThread.start();
+    }
+
+    /** Starts a hub on a random free port. */
+    public static StandInHub start() throws IOException {
+        return start(0);
+    }
+
+    public static StandInHub start(int port) throws IOException {
+        return new StandInHub(port);
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Client URL for the given hub path, e.g. {@code url("/test")}. */
+    public String url(String hubPath) {
+        return "http://localhost:" + port() + (hubPath.startsWith("/") ? hubPath : "/" + hubPath);
+    }
+
+    /** Adds or replaces a hub method. Names are matched case-insensitively, as in ASP.NET Core. */
+    public void register(String name, HubMethod method) {
+        methods.put(name.toLowerCase(Locale.ROOT), method);
+    }
+
+    /**
+     * How often the hub pings every client, like ASP.NET Core's {@code KeepAliveInterval} (15
+     * seconds by default). Keep it under half the clients' {@code withServerTimeout}.
+     */
+    public synchronized void keepAliveInterval(long millis) {
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+        }
+        keepAlive = scheduler.scheduleAtFixedRate(this::sendKeepAlive, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Pings received from clients, i.e. their keep-alive sends. */
+    public long pingsReceived() {
+        return pingsReceived.get();
+    }
+
+    void onPing() {
+        pingsReceived.incrementAndGet();
+    }
+
+    /** Negotiated ids no transport has claimed yet. */
+    int pendingNegotiations() {
+        return negotiated.size();
+    }
+
+    /** Connections that completed the handshake and have not disconnected yet. */
+    public Collection<HubClient> clients() {
+        return Collections.unmodifiableCollection(clients.values());
+    }
+
+    /** Connected clients of one hub path and run; a null run matches clients that gave none. */
+    public List<HubClient> clients(String path, String run) {
+        List<HubClient> matching = new ArrayList<>();
+        for (HubClient client : clients.values()) {
+            if (client.path().equals(path) && Objects.equals(client.run(), run)) {
+                matching.add(client);
+            }
+        }
+        return matching;
+    }
+
+    /** Members of {@code group} among {@link #clients(String, String)}, the stand-in for {@code Clients.Group}. */
+    public List<HubClient> group(String path, String run, String group) {
+        List<HubClient> members = clients(path, run);
+        members.removeIf(client -> !client.inGroup(group));
+        return members;
+    }
+
+    HubMethod method(String name) {
+        return name == null ? null : methods.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    ExecutorService workers() {
+        return workers;
+    }
+
+    void onConnected(HubClient client) {
+        clients.put(client.connectionId(), client);
+    }
+
+    void onDisconnected(HubClient client) {
+        clients.remove(client.connectionId());
+    }
+
+    /**
+     * Simulates a server restart: drops every connection without a close message, then answers
+     * negotiate and WebSocket requests with 503 until {@code downtimeMillis} have passed.
+     *
+     * @return the number of connections dropped
+     */
+    public int restart(long downtimeMillis) {
+        unavailableUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(downtimeMillis);
+        int dropped = 0;
+        for (HubClient client : clients.values()) {
+            client.abort();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        for (HubClient client : clients.values()) {
+            client.close(null);
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void sendKeepAlive() {
+        for (HubClient client : clients.values()) {
+            client.sendMessage(HubMessage.PING_MESSAGE);
+        }
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Endpoint flush;
+                while ((flush = pendingFlushes.poll()) != null) {
+                    // Same as the key loop: one broken endpoint must not end the I/O thread.
+                    try {
+                        flush.flush();
+                    } catch (RuntimeException e) {
+                        flush.closeNow();
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Endpoint endpoint = (Endpoint) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            endpoint.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            endpoint.writeQueued();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        endpoint.closeNow();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Stand-in hub I/O loop failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Endpoint) {
+                    ((Endpoint) key.attachment()).closeNow();
+                }
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Best effort during shutdown.
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Endpoint endpoint = new Endpoint(channel);
+            endpoint.key = channel.register(selector, SelectionKey.OP_READ, endpoint);
+        }
+    }
+
+    private static String newId() {
+        byte[] bytes = new byte[16];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** One accepted socket: HTTP/1.1 until upgraded, then WebSocket frames for one hub client. */
+    private final class Endpoint implements HubTransport {
+        private final SocketChannel channel;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final Object writable = new Object();
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        private HubClient client;
+        private ByteArrayOutputStream fragments;
+        private volatile boolean closeAfterFlush;
+        private volatile boolean abortRequested;
+        private volatile boolean closed;
+
+        Endpoint(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void onReadable() throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                closeNow();
+                return;
+            }
+            in.flip();
+            boolean progressed = true;
+            while (progressed && !closed) {
+                progressed = client == null ? readRequest() : readFrame();
+            }
+            in.compact();
+            if (!in.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+        }
+
+        private boolean readRequest() {
+            int start = in.position();
+            int headerEnd = -1;
+            for (int i = start; i + 3 < in.limit(); i++) {
+                if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                    headerEnd = i;
+                    break;
+                }
+            }
+            if (headerEnd < 0) {
+                if (in.remaining() > MAX_HEADER_BYTES) {
+                    respond(431, "text/plain", "Request headers too large", false);
+                }
+                return false;
+            }
+            byte[] headBytes = new byte[headerEnd - start];
+            in.get(headBytes);
+            String[] lines = new String(headBytes, StandardCharsets.ISO_8859_1).split("\r\n");
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+                }
+            }
+            int contentLength = headers.containsKey("content-length")
+                ? Integer.parseInt(headers.get("content-length")) : 0;
+            if (in.limit() - (headerEnd + 4) < contentLength) {
+                in.position(start);
+                return false;
+            }
+            byte[] body = new byte[contentLength];
+            in.position(headerEnd + 4);
+            in.get(body);
+
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length < 2) {
+                respond(400, "text/plain", "Bad request", false);
+                return false;
+            }
+            String target = requestLine[1];
+            int queryStart = target.indexOf('?');
+            String path = queryStart < 0 ? target : target.substring(0, queryStart);
+            Map<String, String> query = parseQuery(queryStart < 0 ? "" : target.substring(queryStart + 1));
+
+            if (System.nanoTime() - unavailableUntil < 0) {
+                respond(503, "text/plain", "Restarting", false);
+            } else if (path.endsWith("/negotiate")) {
+                negotiate(path.substring(0, path.length() - "/negotiate".length()), query);
+            } else if ("websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+                upgrade(path, query, headers);
+            } else if (query.containsKey("id")) {
+                longPoll(requestLine[0], query.get("id"), body);
+            } else {
+                respond(404, "text/plain", "Not found", true);
+            }
+            return true;
+        }
+
+        private void negotiate(String hubPath, Map<String, String> query) {
+            int version = query.containsKey("negotiateVersion") ? Integer.parseInt(query.get("negotiateVersion")) : 0;
+            String connectionId = newId();
+            String token = version >= 1 ? newId() : connectionId;
+            HubClient pending = new HubClient(StandInHub.this, connectionId, hubPath, query.get("run"));
+            negotiated.put(token, pending);
+            // Clients that negotiate but never connect would otherwise stay in the map.
+            scheduler.schedule(() -> negotiated.remove(token, pending), negotiateTimeoutMillis, TimeUnit.MILLISECONDS);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("connectionId", connectionId);
+            if (version >= 1) {
+                body.put("connectionToken", token);
+            }
+            body.put("negotiateVersion", Math.min(version, 1));
+            List<Object> transports = new ArrayList<>();
+            Map<String, Object> webSockets = new LinkedHashMap<>();
+            webSockets.put("transport", "WebSockets");
+            webSockets.put("transferFormats", Arrays.asList("Text", "Binary"));
+            transports.add(webSockets);
+            Map<String, Object> longPolling = new LinkedHashMap<>();
+            longPolling.put("transport", "LongPolling");
+            longPolling.put("transferFormats", Arrays.asList("Text", "Binary"));
+            transports.add(longPolling);
+            body.put("availableTransports", transports);
+            respond(200, "application/json", Json.write(body), true);
+        }
+
+        private void upgrade(String path, Map<String, String> query, Map<String, String> headers) {
+            String id = query.get("id");
+            // No id means the client skipped negotiation.
+            HubClient hubClient = id == null ? new HubClient(StandInHub.this, newId(), path, query.get("run")) : negotiated.remove(id);
+            String webSocketKey = headers.get("sec-websocket-key");
+            if (hubClient == null || webSocketKey == null) {
+                respond(404, "text/plain", "No Connection with that ID", false);
+                return;
+            }
+            String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(webSocketKey) + "\r\n\r\n";
+            enqueue(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+            client = hubClient;
+            hubClient.attach(this);
+        }
+
+        /**
+         * Long polling: the first GET for a negotiated id attaches the transport and returns at
+         * once, later GETs poll, POST carries client messages and DELETE ends the connection.
+         */
+        private void longPoll(String method, String id, byte[] body) {
+            LongPolling transport = longPolls.get(id);
+            if (transport == null) {
+                HubClient hubClient = "GET".equals(method) ? negotiated.remove(id) : null;
+                if (hubClient == null) {
+                    respond(404, "text/plain", "No Connection with that ID", true);
+                    return;
+                }
+                transport = new LongPolling(hubClient, id);
+                longPolls.put(id, transport);
+                hubClient.attach(transport);
+                respond(200, "text/plain", "", true);
+                return;
+            }
+            switch (method) {
+                case "GET":
+                    transport.poll(this);
+                    break;
+                case "POST":
+                    transport.client.onData(ByteBuffer.wrap(body));
+                    respond(200, "text/plain", "", true);
+                    break;
+                case "DELETE":
+                    transport.delete();
+                    respond(202, "text/plain", "", true);
+                    break;
+                default:
+                    respond(405, "text/plain", "Method not allowed", true);
+                    break;
+            }
+        }
+
+        void respond(int status, String contentType, String body, boolean keepAlive) {
+            respond(status, contentType, body.getBytes(StandardCharsets.UTF_8), keepAlive);
+        }
+
+        void respond(int status, String contentType, byte[] content, boolean keepAlive) {
+            String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+            byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+            ByteBuffer response = ByteBuffer.allocate(headBytes.length + content.length);
+            response.put(headBytes).put(content).flip();
+            enqueue(response);
+            if (!keepAlive) {
+                close();
+            }
+        }
+
+        private boolean readFrame() {
+            int start = in.position();
+            int available = in.remaining();
+            if (available < 2) {
+                return false;
+            }
+            int b0 = in.get(start) & 0xff;
+            int b1 = in.get(start + 1) & 0xff;
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0f;
+            boolean masked = (b1 & 0x80) != 0;
+            long length = b1 & 0x7f;
+            int headerLength = 2;
+            if (length == 126) {
+                if (available < 4) {
+                    return false;
+                }
+                length = in.getShort(start + 2) & 0xffff;
+                headerLength = 4;
+            } else if (length == 127) {
+                if (available < 10) {
+                    return false;
+                }
+                length = in.getLong(start + 2);
+                headerLength = 10;
+            }
+            if (length > MAX_MESSAGE_BYTES || length < 0) {
+                sendClose(1009);
+                return false;
+            }
+            int maskOffset = start + headerLength;
+            if (masked) {
+                headerLength += 4;
+            }
+            if (available < headerLength + length) {
+                return false;
+            }
+            byte[] payload = new byte[(int) length];
+            int payloadStart = start + headerLength;
+            for (int i = 0; i < payload.length; i++) {
+                byte b = in.get(payloadStart + i);
+                payload[i] = masked ? (byte) (b ^ in.get(maskOffset + (i & 3))) : b;
+            }
+            in.position(payloadStart + payload.length);
+
+            switch (opcode) {
+                case 0x0:
+                    if (fragments != null) {
+                        fragments.write(payload, 0, payload.length);
+                        if (fin) {
+                            byte[] message = fragments.toByteArray();
+                            fragments = null;
+                            client.onData(ByteBuffer.wrap(message));
+                        }
+                    }
+                    break;
+                case 0x1:
+                case 0x2:
+                    if (fin) {
+                        client.onData(ByteBuffer.wrap(payload));
+                    } else {
+                        fragments = new ByteArrayOutputStream(Math.max(payload.length * 2, 1024));
+                        fragments.write(payload, 0, payload.length);
+                    }
+                    break;
+                case 0x8:
+                    sendClose(1000);
+                    client.onTransportClosed();
+                    return false;
+                case 0x9:
+                    enqueue(frame(0xA, payload));
+                    break;
+                default:
+                    break;
+            }
+            return true;
+        }
+
+        private void sendClose(int status) {
+            enqueue(frame(0x8, new byte[] {(byte) (status >>> 8), (byte) status}));
+            close();
+        }
+
+        @Override
+        public void send(byte[] payload, boolean binary) {
+            enqueue(frame(binary ? 0x2 : 0x1, payload));
+        }
+
+        @Override
+        public void awaitWritable() throws InterruptedException {
+            if (queuedBytes.get() <= HIGH_WATER_MARK) {
+                return;
+            }
+            synchronized (writable) {
+                while (queuedBytes.get() > LOW_WATER_MARK && !closed && !closeAfterFlush && !abortRequested) {
+                    writable.wait(100);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closeAfterFlush = true;
+            requestFlush();
+        }
+
+        @Override
+        public void abort() {
+            abortRequested = true;
+            requestFlush();
+        }
+
+        private ByteBuffer frame(int opcode, byte[] payload) {
+            int length = payload.length;
+            int headerLength = length < 126 ? 2 : length < 0x10000 ? 4 : 10;
+            ByteBuffer frame = ByteBuffer.allocate(headerLength + length);
+            frame.put((byte) (0x80 | opcode));
+            if (length < 126) {
+                frame.put((byte) length);
+            } else if (length < 0x10000) {
+                frame.put((byte) 126).putShort((short) length);
+            } else {
+                frame.put((byte) 127).putLong(length);
+            }
+            frame.put(payload).flip();
+            return frame;
+        }
+
+        private void enqueue(ByteBuffer buffer) {
+            queuedBytes.addAndGet(buffer.remaining());
+            outbound.add(buffer);
+            requestFlush();
+        }
+
+        private void requestFlush() {
+            if (flushRequested.compareAndSet(false, true)) {
+                if (Thread.currentThread() == ioThread) {
+                    flush();
+                } else {
+                    pendingFlushes.add(this);
+                    selector.wakeup();
+                }
+            }
+        }
+
+        /** Runs on the I/O thread. */
+        void flush() {
+            flushRequested.set(false);
+            if (abortRequested) {
+                closeNow();
+                return;
+            }
+            try {
+                writeQueued();
+            } catch (IOException e) {
+                closeNow();
+            }
+        }
+
+        void writeQueued() throws IOException {
+            if (closed) {
+                return;
+            }
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll();
+                drained(buffer.capacity());
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (closeAfterFlush) {
+                closeNow();
+            }
+        }
+
+        private void drained(int bytes) {
+            long queued = queuedBytes.addAndGet(-bytes);
+            if (queued <= LOW_WATER_MARK && queued + bytes > LOW_WATER_MARK) {
+                synchronized (writable) {
+                    writable.notifyAll();
+                }
+            }
+        }
+
+        void closeNow() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (writable) {
+                writable.notifyAll();
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone.
+            }
+            if (client != null) {
+                client.onTransportClosed();
+            }
+        }
+    }
+
+    /**
+     * Long-polling transport of one client: payloads queue until the client's next GET, which
+     * takes all of them, or is answered empty after {@link #POLL_TIMEOUT_SECONDS}. A 204 tells
+     * the client the connection is over.
+     */
+    private final class LongPolling implements HubTransport {
+        final HubClient client;
+        private final String id;
+        private final List<byte[]> queued = new ArrayList<>();
+        private long queuedBytes;
+        private boolean binary;
+        private Endpoint poll;
+        private ScheduledFuture<?> pollTimeout;
+        private boolean closing;
+        private boolean closed;
+
+        LongPolling(HubClient client, String id) {
+            this.client = client;
+            this.id = id;
+        }
+
+        synchronized void poll(Endpoint endpoint) {
+            if (poll != null) {
+                // Superseded by the new poll.
+                take().respond(200, "text/plain", "", true);
+            }
+            if (!queued.isEmpty()) {
+                respondQueued(endpoint);
+            } else if (closing || closed) {
+                finish(endpoint);
+            } else {
+                poll = endpoint;
+                pollTimeout = scheduler.schedule(() -> expire(endpoint), POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        private synchronized void expire(Endpoint endpoint) {
+            if (poll == endpoint) {
+                take().respond(200, "text/plain", "", true);
+            }
+        }
+
+        private Endpoint take() {
+            Endpoint endpoint = poll;
+            poll = null;
+            if (pollTimeout != null) {
+                pollTimeout.cancel(false);
+                pollTimeout = null;
+            }
+            return endpoint;
+        }
+
+        private void respondQueued(Endpoint endpoint) {
+            ByteBuffer body = ByteBuffer.allocate((int) queuedBytes);
+            for (byte[] payload : queued) {
+                body.put(payload);
+            }
+            queued.clear();
+            queuedBytes = 0;
+            notifyAll();
+            endpoint.respond(200, binary ? "application/octet-stream" : "text/plain", body.array(), true);
+        }
+
+        private void finish(Endpoint endpoint) {
+            closed = true;
+            longPolls.remove(id);
+            notifyAll();
+            endpoint.respond(204, "text/plain", "", true);
+        }
+
+        @Override
+        public synchronized void send(byte[] payload, boolean binary) {
+            if (closed) {
+                return;
+            }
+            queued.add(payload);
+            queuedBytes += payload.length;
+            this.binary |= binary;
+            if (poll != null) {
+                respondQueued(take());
+            }
+        }
+
+        @Override
+        public synchronized void awaitWritable() throws InterruptedException {
+            if (queuedBytes <= HIGH_WATER_MARK) {
+                return;
+            }
+            while (queuedBytes > LOW_WATER_MARK && !closed && !closing) {
+                wait(100);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closing = true;
+            notifyAll();
+            if (poll != null) {
+                Endpoint endpoint = take();
+                if (queued.isEmpty()) {
+                    finish(endpoint);
+                } else {
+                    respondQueued(endpoint);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void abort() {
+            closed = true;
+            longPolls.remove(id);
+            queued.clear();
+            queuedBytes = 0;
+            notifyAll();
+            if (poll != null) {
+                take().abort();
+            }
+        }
+
+        void delete() {
+            synchronized (this) {
+                if (poll != null) {
+                    finish(take());
+                } else {
+                    closed = true;
+                    longPolls.remove(id);
+                    notifyAll();
+                }
+            }
+            client.onTransportClosed();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+                params.put(name, value);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return params;
+    }
+
+    private static String acceptKey(String webSocketKey) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((webSocketKey + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 202:
+                return "Accepted";
+            case 204:
+                return "No Content";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Status";
+        }
+    }
+
+    /**
+     * Runs the stand-in hub as a process, like {@code dotnet run} in {@code signalrservice/server}.
+     * Usage: {@code StandInHub [port]}; the port defaults to 8080.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        StandInHub hub = start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(hub::close));
+        System.out.println("Stand-in hub listening on " + hub.url("/test"));
+        hub.ioThread.join();
+    }
+}
@@ -0,0 +1,166 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java port of {@code signalrservice/server/Hubs/TestHub.cs}. Keep the two in sync.
+ */
+final class TestHub {
+    private TestHub() {
+    }
+
+    static void register(StandInHub hub) {
+        hub.register("Echo", call -> {
+            call.caller().send("EchoBack", call.stringArgument(0), call.argument(1));
+            return HubMethod.VOID;
+        });
+
+        hub.register("Invoke", call -> call.argument(1));
+
+        hub.register("InvokeWithoutReturn", call -> HubMethod.VOID);
+
+        hub.register("InvokeWithClientResult", call -> {
+            Object result = call.caller().invoke("ClientResult", call.stringArgument(0)).get();
+            call.caller().send("EchoBack", result);
+            return HubMethod.VOID;
+        });
+
+        hub.register("invokeWithEmptyClientResult", call -> {
+            call.caller().invoke("ClientResult", call.stringArgument(0)).get();
+            call.caller().send("EchoBack", "received");
+            return HubMethod.VOID;
+        });
+
+        hub.register("InvokeClientResults", call -> {
+            String message = call.stringArgument(0);
+            int count = (int) call.longArgument(1);
+            // Like TestHub.cs: at least one worker, never more than there are calls.
+            int concurrency = Math.max(1, Math.min((int) call.longArgument(2), count));
+            Semaphore inFlight = new Semaphore(concurrency);
+            Long[] latencies = new Long[count];
+            for (int i = 0; i < count; i++) {
+                inFlight.acquire();
+                int index = i;
+                long start = System.nanoTime();
+                call.caller().invoke("ClientResult", message).whenComplete((result, error) -> {
+                    latencies[index] = error == null ? TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) : -1L;
+                    inFlight.release();
+                });
+            }
+            inFlight.acquire(concurrency);
+            return Arrays.asList(latencies);
+        });
+
+        hub.register("AddNumbers", call -> {
+            long sum = call.longArgument(0);
+            for (Object number : call.stream(0)) {
+                sum += ((Number) number).longValue();
+            }
+            return sum;
+        });
+
+        hub.register("Count", call -> {
+            long counter = call.longArgument(0);
+            for (Object ignored : call.stream(0)) {
+                counter++;
+                if (!call.emit(counter)) {
+                    break;
+                }
+            }
+            return HubMethod.VOID;
+        });
+
+        hub.register("Stream", call -> {
+            for (String item : new String[] {"a", "b", "c"}) {
+                if (!call.emit(item)) {
+                    break;
+                }
+            }
+            return HubMethod.VOID;
+        });
+
+        hub.register("StreamItems", call -> {
+            long count = call.longArgument(0);
+            String item = repeat('x', (int) call.longArgument(1));
+            for (long i = 0; i < count; i++) {
+                if (!call.emit(item)) {
+                    break;
+                }
+            }
+            return HubMethod.VOID;
+        });
+
+        // Fan-out goes to the caller's hub path and run only, as RunGroup scopes it in TestHub.cs.
+        hub.register("JoinGroup", call -> {
+            call.caller().join(call.stringArgument(0));
+            return HubMethod.VOID;
+        });
+
+        hub.register("LeaveGroup", call -> {
+            call.caller().leave(call.stringArgument(0));
+            return HubMethod.VOID;
+        });
+
+        hub.register("SendToGroup", call -> {
+            HubClient caller = call.caller();
+            for (HubClient member : hub.group(caller.path(), caller.run(), call.stringArgument(0))) {
+                member.send("GroupMessage", call.stringArgument(0), call.stringArgument(1), call.argument(2));
+            }
+            return HubMethod.VOID;
+        });
+
+        hub.register("Broadcast", call -> {
+            HubClient caller = call.caller();
+            for (HubClient client : hub.clients(caller.path(), caller.run())) {
+                client.send("BroadcastMessage", call.stringArgument(0), call.argument(1));
+            }
+            return HubMethod.VOID;
+        });
+
+        // Batches arrive as lists, so one counter serves both element types.
+        hub.register("Upload", call -> upload(call, false));
+        hub.register("UploadBatches", call -> upload(call, false));
+        hub.register("UploadWithAcks", call -> upload(call, true));
+        hub.register("UploadBatchesWithAcks", call -> upload(call, true));
+    }
+
+    /**
+     * Counts client-streamed items and acknowledges every {@code ackEvery} messages (and the last
+     * one) with the number of messages received, as {@code UploadAck} or as stream items.
+     */
+    private static Object upload(HubCall call, boolean streamAcks) {
+        long ackEvery = call.longArgument(0);
+        long messages = 0;
+        long items = 0;
+        for (Object message : call.stream(0)) {
+            items += message instanceof List ? ((List<?>) message).size() : 1;
+            if (++messages % ackEvery == 0) {
+                acknowledge(call, messages, streamAcks);
+            }
+        }
+        if (messages % ackEvery != 0 || messages == 0) {
+            acknowledge(call, messages, streamAcks);
+        }
+        return streamAcks ? HubMethod.VOID : items;
+    }
+
+    private static void acknowledge(HubCall call, long messages, boolean streamAcks) {
+        if (streamAcks) {
+            call.emit(messages);
+        } else {
+            call.caller().send("UploadAck", messages);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
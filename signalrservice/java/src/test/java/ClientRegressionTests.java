@@ -0,0 +1,105 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.RegressionGate;
+import e2e.harness.Reports;
+import e2e.hub.Json;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Performance regression gate between two SignalR client versions, normally run through
+// run-regression-gate.sh. Each side is recorded in its own build, skipped unless
+// -Dregression.label is set, e.g.
+//   mvn -Dsignalr.version=<baseline> -Dtest=ClientRegressionTests#testRecord -Dregression.label=baseline test
+//   mvn -Dtest=ClientRegressionTests#testRecord -Dregression.label=candidate test
+// and then compared, skipped unless -Dregression.compare names the two labels:
+//   mvn -Dtest=ClientRegressionTests#testCompare -Dregression.compare=baseline,candidate test
+// Runs against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class ClientRegressionTests {
+
+    @Test
+    public void testRecord() throws Exception {
+        String label = System.getProperty("regression.label");
+        Assume.assumeTrue("Set -Dregression.label=NAME to record a regression baseline or candidate", label != null);
+
+        RegressionGate.Options options = RegressionGate.Options.fromSystemProperties();
+        RegressionGate gate = new RegressionGate(options);
+        Map<String, Object> protocols = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                Map<String, List<Double>> samples = gate.record(target.url(), protocol);
+                System.out.println(protocol + " " + samples);
+                protocols.put(protocol.protocolName(), samples);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("clientVersion", RegressionGate.clientVersion());
+        report.put("options", options.toMap());
+        report.put("protocols", protocols);
+        System.out.println("Regression samples: " + Reports.writeJson("regression-" + label + ".json", report));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompare() throws Exception {
+        String labels = System.getProperty("regression.compare");
+        Assume.assumeTrue("Set -Dregression.compare=BASELINE,CANDIDATE to compare two recordings", labels != null);
+        String[] names = labels.split(",");
+        assertEquals("regression.compare takes a baseline and a candidate label", 2, names.length);
+
+        Map<String, Object> baseline = read(names[0].trim());
+        Map<String, Object> candidate = read(names[1].trim());
+        RegressionGate gate = new RegressionGate(RegressionGate.Options.fromSystemProperties());
+        Map<String, Object> baselineProtocols = (Map<String, Object>) baseline.get("protocols");
+        Map<String, Object> candidateProtocols = (Map<String, Object>) candidate.get("protocols");
+        Map<String, Object> protocols = new LinkedHashMap<>();
+        List<String> regressions = new ArrayList<>();
+
+        for (Map.Entry<String, Object> entry : candidateProtocols.entrySet()) {
+            Object base = baselineProtocols.get(entry.getKey());
+            if (base == null) {
+                continue;
+            }
+            List<Object> metrics = new ArrayList<>();
+            for (RegressionGate.Comparison comparison : gate.compare((Map<String, ?>) base, (Map<String, ?>) entry.getValue())) {
+                System.out.println(entry.getKey() + " " + comparison);
+                metrics.add(comparison.toMap());
+                if (comparison.regressed()) {
+                    regressions.add(entry.getKey() + " " + comparison);
+                }
+            }
+            protocols.put(entry.getKey(), metrics);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseline", baseline.get("clientVersion"));
+        report.put("candidate", candidate.get("clientVersion"));
+        report.put("options", RegressionGate.Options.fromSystemProperties().toMap());
+        report.put("protocols", protocols);
+        report.put("regressions", regressions);
+        System.out.println("Regression report: " + Reports.writeJson("regression-report.json", report));
+        assertFalse("No protocol was recorded on both sides", protocols.isEmpty());
+        assertTrue("Candidate " + candidate.get("clientVersion") + " regressed against " + baseline.get("clientVersion")
+            + ": " + regressions, regressions.isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> read(String label) throws Exception {
+        Path path = Reports.directory().resolve("regression-" + label + ".json");
+        assertTrue("Record " + label + " first; missing " + path, Files.exists(path));
+        return (Map<String, Object>) Json.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+}
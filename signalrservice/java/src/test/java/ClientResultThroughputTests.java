@@ -0,0 +1,63 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.ClientResultThroughput;
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Throughput mode of testClientResult. Skipped unless -DclientResult.invocations is set, e.g.
+//   mvn -Dtest=ClientResultThroughputTests -DclientResult.invocations=10000 -DclientResult.handler=async test
+// Sweeps -DclientResult.concurrency (default 1,4,16,64,256) once per hub protocol and reports the
+// first concurrency that stopped scaling. Runs against the in-process stand-in hub unless
+// SIGNALR_INTEGRATION_TEST_URL is set.
+public class ClientResultThroughputTests {
+
+    @Test
+    public void testClientResultThroughput() throws Exception {
+        Assume.assumeTrue("Set -DclientResult.invocations=N to run the client-result throughput mode",
+            System.getProperty("clientResult.invocations") != null);
+
+        ClientResultThroughput.Options options = ClientResultThroughput.Options.fromSystemProperties();
+        ClientResultThroughput throughput = new ClientResultThroughput(options);
+        Map<String, Object> protocols = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                HubConnection connection = protocol.builder(target.url()).build();
+                connection.start().blockingAwait();
+                List<ClientResultThroughput.Result> results = new ArrayList<>();
+                try {
+                    for (String concurrency : System.getProperty("clientResult.concurrency", "1,4,16,64,256").split(",")) {
+                        ClientResultThroughput.Result result = throughput.run(connection, Integer.parseInt(concurrency.trim()));
+                        System.out.println(protocol + " " + result);
+                        results.add(result);
+                        assertNull("Client results should complete", result.error());
+                        assertEquals("No client result should fail", 0, result.failures());
+                    }
+                } finally {
+                    connection.stop().blockingAwait();
+                }
+                List<Object> runs = new ArrayList<>();
+                results.forEach(result -> runs.add(result.toMap()));
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("saturatedAtConcurrency", ClientResultThroughput.saturationPoint(results));
+                summary.put("runs", runs);
+                protocols.put(protocol.protocolName(), summary);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("protocols", protocols);
+        System.out.println("Client result throughput report: " + Reports.writeJson("client-result-throughput-report.json", report));
+    }
+}
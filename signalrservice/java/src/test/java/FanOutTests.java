@@ -0,0 +1,53 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.FanOut;
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Group and broadcast fan-out. Skipped unless -Dfanout.receivers is set, e.g.
+//   mvn -Dtest=FanOutTests -Dfanout.receivers=10,100,1000 -Dfanout.modes=group,broadcast test
+// Every run connects to its own run group, so broadcasts reach that run's connections only. Runs
+// against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class FanOutTests {
+
+    @Test
+    public void testFanOut() throws Exception {
+        String counts = System.getProperty("fanout.receivers");
+        Assume.assumeTrue("Set -Dfanout.receivers=M[,M...] to run the fan-out benchmark", counts != null);
+
+        FanOut.Options options = FanOut.Options.fromSystemProperties();
+        List<Object> runs = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                for (String mode : System.getProperty("fanout.modes", "group,broadcast").split(",")) {
+                    options.mode(FanOut.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+                    for (String count : counts.split(",")) {
+                        int receivers = Integer.parseInt(count.trim());
+                        String url = target.isolated("fanout-" + protocol.protocolName() + "-" + mode.trim() + "-" + receivers);
+                        FanOut.Result result = new FanOut(options).run(url, protocol, receivers);
+                        System.out.println(protocol + " " + mode.trim() + " " + result);
+                        Map<String, Object> run = new LinkedHashMap<>();
+                        run.put("protocol", protocol.protocolName());
+                        run.putAll(options.toMap());
+                        run.putAll(result.toMap());
+                        runs.add(run);
+                        assertNull("Fan-out run should complete", result.error());
+                        assertEquals("Every receiver should connect", receivers, result.connected());
+                    }
+                }
+            }
+        }
+
+        System.out.println("Fan-out report: " + Reports.writeJson("fanout-report.json", runs));
+    }
+}
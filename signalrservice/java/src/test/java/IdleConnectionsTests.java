@@ -0,0 +1,53 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.IdleConnections;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Idle-connection scalability. Skipped unless -Didle.connections is set, e.g.
+//   mvn -Dtest=IdleConnectionsTests -Didle.connections=1000,10000,30000 -Didle.keepAliveMillis=15000 test
+// Connections are added step by step and held idle; the largest step held is reported, not asserted.
+// Runs against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class IdleConnectionsTests {
+
+    @Test
+    public void testIdleConnections() throws Exception {
+        String counts = System.getProperty("idle.connections");
+        Assume.assumeTrue("Set -Didle.connections=N[,N...] to run the idle-connection benchmark", counts != null);
+
+        String[] parts = counts.split(",");
+        int[] steps = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            steps[i] = Integer.parseInt(parts[i].trim());
+        }
+        IdleConnections.Options options = IdleConnections.Options.fromSystemProperties();
+        IdleConnections idle = new IdleConnections(options);
+        Map<String, Object> protocols = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                IdleConnections.Result result = idle.run(target, protocol, steps);
+                for (IdleConnections.Step step : result.steps()) {
+                    System.out.println(protocol + " " + step);
+                }
+                System.out.println(protocol + " held at most " + result.maxIdleConnections() + " idle connections");
+                assertFalse("At least one step should run", result.steps().isEmpty());
+                protocols.put(protocol.protocolName(), result.toMap());
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("protocols", protocols);
+        System.out.println("Idle connections report: " + Reports.writeJson("idle-connections-report.json", report));
+    }
+}
@@ -3,32 +3,122 @@
 
 import com.microsoft.signalr.Function1Single;
 import com.microsoft.signalr.HubConnection;
-import com.microsoft.signalr.HubConnectionBuilder;
+import com.microsoft.signalr.TypeReference;
+import e2e.harness.ClientThreads;
+import e2e.harness.ConnectPhases;
+import e2e.harness.ConnectionPool;
+import e2e.harness.CustomClass;
+import e2e.harness.HubTarget;
+import e2e.harness.LatencyRecorder;
+import e2e.harness.Metrics;
+import e2e.harness.Payload;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+import e2e.harness.Transport;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import org.HdrHistogram.Histogram;
 
+import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
+import java.lang.reflect.Type;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
+@RunWith(Parameterized.class)
 public class IntegrationTests {
     private String url;
+    private final Protocol protocol;
     private static final int DEFAULT_TIMEOUT_SECONDS = 10;
+    private static HubTarget target;
+    // Round trips of testSendAndOnCore and testInvokeCore, reported to target/latency-report.json
+    private static final LatencyRecorder latency = new LatencyRecorder();
+    // Start phases of testConnect and testMultipleConnections, reported to target/connect-phases-report.json
+    private static final ConnectPhases connectPhases = new ConnectPhases();
+    // Encoded Echo invocation size per protocol and payload, reported to target/payload-size-report.json
+    private static final Map<String, Map<String, Integer>> payloadSizes = new TreeMap<>();
+    // Hub messages and failures of the *Core cases, exported with the other metrics at exit
+    private static final Metrics.Counter messagesSent = Metrics.global().counter(Metrics.MESSAGES_SENT, "scenario", "integration");
+    private static final Metrics.Counter messagesReceived = Metrics.global().counter(Metrics.MESSAGES_RECEIVED, "scenario", "integration");
+    private static final Metrics.Counter errors = Metrics.global().counter(Metrics.ERRORS, "scenario", "integration");
+    // Warm connections per protocol shared by the *Core cases; -Dpool.maxIdle=0 disables reuse
+    private static final Map<Protocol, ConnectionPool> pools = new EnumMap<>(Protocol.class);
+
+    // Every test runs once per hub protocol; -Dsignalr.protocols=json limits the run
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Protocol> protocols() {
+        return Protocol.fromSystemProperties();
+    }
+
+    @Rule
+    public final TestName name = new TestName();
+
+    public IntegrationTests(Protocol protocol) {
+        this.protocol = protocol;
+    }
     
     @Before
     public void setUp() throws Exception {
-        url = System.getenv("SIGNALR_INTEGRATION_TEST_URL");
-        if (url == null || url.isEmpty()) {
-            url = "http://localhost:8080/test";
+        // Methods may run in parallel (-Pparallel); each protocol and method is its own group
+        url = target().isolated(protocol.protocolName() + "-" + name.getMethodName());
+        System.out.println("Using SignalR URL: " + url + " (" + protocol + ")");
+    }
+
+    private static synchronized HubTarget target() {
+        if (target == null) {
+            target = HubTarget.resolve("http://localhost:8080/test");
         }
-        System.out.println("Using SignalR URL: " + url);
+        return target;
+    }
+
+    private ConnectionPool pool() {
+        synchronized (pools) {
+            // Pooled connections outlive a method, so they share one group per protocol; they only
+            // receive messages sent to the caller.
+            String poolUrl = target().isolated(protocol.protocolName());
+            return pools.computeIfAbsent(protocol, p -> new ConnectionPool(() -> p.builder(poolUrl).build(),
+                Integer.getInteger("pool.maxIdle", 2), "EchoBack", "ClientResult"));
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        Map<String, Object> poolReport = new LinkedHashMap<>();
+        synchronized (pools) {
+            for (Map.Entry<Protocol, ConnectionPool> pool : pools.entrySet()) {
+                pool.getValue().close();
+                poolReport.put(pool.getKey().protocolName(), pool.getValue().toMap());
+            }
+            pools.clear();
+        }
+        System.out.println("Connection pool report: " + Reports.writeJson("connection-pool-report.json", poolReport));
+        synchronized (IntegrationTests.class) {
+            if (target != null) {
+                target.close();
+                target = null;
+            }
+        }
+        System.out.println("Latency report: " + Reports.writeJson("latency-report.json", latency.toMap()));
+        System.out.println("Connect phases report: " + Reports.writeJson("connect-phases-report.json", connectPhases.toMap()));
+        if (!payloadSizes.isEmpty()) {
+            System.out.println("Payload size report: " + Reports.writeJson("payload-size-report.json", payloadSizes));
+        }
+        // Fails the build when a -Dlatency.budget.* limit is exceeded
+        List<String> violations = latency.violations(LatencyRecorder.Budget.fromSystemProperties());
+        assertTrue("Latency budget exceeded: " + violations, violations.isEmpty());
     }
 
     @Test
@@ -42,16 +132,33 @@ public class IntegrationTests {
 
     private void testConnectCore() throws Exception {
         System.out.println("testConnectCore");
-        HubConnection connection = HubConnectionBuilder.create(url).build();
+        ConnectPhases.Start start = connectPhases.prepare(protocol.protocolName(), protocol.builder(url));
+        HubConnection connection = start.connection();
         
         run(() -> {
-            connection.start().blockingAwait();
+            start.await(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             return null;
         }, () -> {
             connection.stop().blockingAwait();
         });
     }
 
+    @Test
+    public void testConnectSkipNegotiate() throws Exception {
+        // Azure SignalR Service needs negotiate; a self-hosted test server opts in with -Dconnect.skipNegotiate=true
+        Assume.assumeTrue("Skipping negotiate needs the in-process hub or -Dconnect.skipNegotiate=true",
+            target().isInProcess() || Boolean.getBoolean("connect.skipNegotiate"));
+        for (int i = 0; i < 10; i++) {
+            ConnectPhases.Start start = connectPhases.prepare(protocol.protocolName() + " skipNegotiate",
+                protocol.builder(url, Transport.WEBSOCKETS).shouldSkipNegotiate(true));
+            HubConnection connection = start.connection();
+            whenTaskTimeout(() -> {
+                start.await(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }, DEFAULT_TIMEOUT_SECONDS);
+            connection.stop().blockingAwait();
+        }
+    }
+
     @Test
     public void testMultipleConnections() throws Exception {
         int count = 10; // DefaultUrlSession has 5 connections
@@ -59,9 +166,10 @@ public class IntegrationTests {
         
         try {
             for (int i = 0; i < count; i++) {
-                HubConnection connection = HubConnectionBuilder.create(url).build();
+                ConnectPhases.Start start = connectPhases.prepare(protocol.protocolName(), protocol.builder(url));
+                HubConnection connection = start.connection();
                 whenTaskTimeout(() -> {
-                    connection.start().blockingAwait();
+                    start.await(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
                 }, DEFAULT_TIMEOUT_SECONDS);
                 connections.add(connection);
             }
@@ -81,7 +189,9 @@ public class IntegrationTests {
             whenTaskTimeout(() -> testSendAndOnCore(1), DEFAULT_TIMEOUT_SECONDS);
             whenTaskTimeout(() -> testSendAndOnCore(1.2), DEFAULT_TIMEOUT_SECONDS);
             whenTaskTimeout(() -> testSendAndOnCore(true), DEFAULT_TIMEOUT_SECONDS);
-            // whenTaskTimeout(() -> testSendAndOnCore(Arrays.asList(1, 2, 3)), DEFAULT_TIMEOUT_SECONDS);
+            // As in testInvoke, a List needs its generic type
+            whenTaskTimeout(() -> testSendAndOnCore(Arrays.asList(1, 2, 3), new TypeReference<List<Integer>>() { }.getType()),
+                DEFAULT_TIMEOUT_SECONDS);
             Map<String, String> map = new HashMap<>();
             map.put("key", "value");
             whenTaskTimeout(() -> testSendAndOnCore(map), DEFAULT_TIMEOUT_SECONDS);
@@ -92,28 +202,36 @@ public class IntegrationTests {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private <T> void testSendAndOnCore(T item) throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
+        testSendAndOnCore(item, item.getClass());
+    }
+
+    private <T> void testSendAndOnCore(T item, Type type) throws Exception {
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         CountDownLatch expectation = new CountDownLatch(1);
         String message1 = "Hello, World!";
         AtomicReference<String> receivedArg1 = new AtomicReference<>();
         AtomicReference<T> receivedArg2 = new AtomicReference<>();
+        Histogram roundTrips = latency.histogram("testSendAndOnCore[" + protocol + "]", item.getClass().getSimpleName());
+        AtomicLong sentAt = new AtomicLong();
         
-        connection.on("EchoBack", (arg1, arg2) -> {
+        connection.<String, T>on("EchoBack", (arg1, arg2) -> {
+            LatencyRecorder.record(roundTrips, System.nanoTime() - sentAt.get());
+            messagesReceived.increment();
             receivedArg1.set(arg1);
-            receivedArg2.set((T) arg2);
+            receivedArg2.set(arg2);
             expectation.countDown();
-        }, String.class, Object.class);
-        
-        connection.start().blockingAwait();
+        }, String.class, type);
         
         run(() -> {
-            AtomicReference<Exception> errorRef = new AtomicReference<>();
             try {
+                sentAt.set(System.nanoTime());
                 connection.send("Echo", message1, item);
+                messagesSent.increment();
             } catch (Exception e) {
+                errors.increment();
                 fail("Failed to send and receive messages: " + e.getMessage());
             }
             
@@ -125,23 +243,9 @@ public class IntegrationTests {
             }
             
             assertEquals("First argument should match", message1, receivedArg1.get());
-            
-            // For complex types, we need to compare appropriately
-            try {
-                T typedResult = (T) item;
-                T received = (T) typedResult;
-                T expected = (T) item;
-                assertEquals("Result should match input", expected, received);
-            } catch (Exception e) {
-                errorRef.set(e);
-            }
-            if (errorRef.get() != null) {
-                throw errorRef.get();
-            }
+            assertEquals("Second argument should match the item sent", item, receivedArg2.get());
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
     @Test
@@ -151,7 +255,9 @@ public class IntegrationTests {
             whenTaskTimeout(() -> testInvokeCore(1), DEFAULT_TIMEOUT_SECONDS);
             whenTaskTimeout(() -> testInvokeCore(1.2), DEFAULT_TIMEOUT_SECONDS);
             whenTaskTimeout(() -> testInvokeCore(true), DEFAULT_TIMEOUT_SECONDS);
-            // whenTaskTimeout(() -> testInvokeCore(Arrays.asList(1, 2, 3)), DEFAULT_TIMEOUT_SECONDS);
+            // A List needs its generic type; List.class would come back as List<Double> from Gson
+            whenTaskTimeout(() -> testInvokeCore(Arrays.asList(1, 2, 3), new TypeReference<List<Integer>>() { }.getType()),
+                DEFAULT_TIMEOUT_SECONDS);
             Map<String, String> map = new HashMap<>();
             map.put("key", "value");
             whenTaskTimeout(() -> testInvokeCore(map), DEFAULT_TIMEOUT_SECONDS);
@@ -162,22 +268,30 @@ public class IntegrationTests {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private <T> void testInvokeCore(T item) throws Exception {
+        testInvokeCore(item, item.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void testInvokeCore(T item, Type type) throws Exception {
         System.err.println("testInvokeCore with item: " + item + " (type: " + item.getClass().getSimpleName() + ")");
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             String message1 = "Hello, World!";
             CountDownLatch latch = new CountDownLatch(1);
             AtomicReference<Exception> errorRef = new AtomicReference<>();
+            Histogram roundTrips = latency.histogram("testInvokeCore[" + protocol + "]", item.getClass().getSimpleName());
+            long sentAt = System.nanoTime();
+            messagesSent.increment();
             
             // Use Object.class for return type to handle all types including List, Map, etc.
-            connection.invoke(item.getClass(), "Invoke", message1, item)
+            connection.<T>invoke(type, "Invoke", message1, item)
                 .subscribe(
                     (result) -> {
+                        LatencyRecorder.record(roundTrips, System.nanoTime() - sentAt);
+                        messagesReceived.increment();
                         try {
                             T typedResult = (T) result;
                             T received = (T) typedResult;
@@ -190,6 +304,7 @@ public class IntegrationTests {
                         }
                     },
                     error -> {
+                        errors.increment();
                         errorRef.set(new Exception("Failed to invoke: " + error.getMessage(), error));
                         latch.countDown();
                     }
@@ -210,9 +325,20 @@ public class IntegrationTests {
             }
             
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
+    }
+
+    @Test
+    public void testPayloadSize() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Payload payload : Payload.values()) {
+            int size = protocol.invocationSize("Echo", "Hello, World!", payload.value());
+            assertTrue(payload + " should encode to a non-empty message", size > 0);
+            sizes.put(payload.name(), size);
+        }
+        synchronized (payloadSizes) {
+            payloadSizes.put(protocol.protocolName(), sizes);
+        }
     }
 
     @Test
@@ -225,9 +351,8 @@ public class IntegrationTests {
     }
 
     private void testInvokeWithoutReturnCore() throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             String message1 = "Hello, World!";
@@ -236,9 +361,7 @@ public class IntegrationTests {
             connection.invoke(Void.class, "InvokeWithoutReturn", message1);
             return null;
 
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
     @Test
@@ -251,22 +374,24 @@ public class IntegrationTests {
     }
 
     private void testStreamCore() throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             List<String> messages = Arrays.asList("a", "b", "c");
             Observable<String> stream = connection.stream(String.class, "Stream");
+            messagesSent.increment();
             List<String> receivedMessages = new ArrayList<>();
             CountDownLatch latch = new CountDownLatch(messages.size());
             
             stream.subscribe(
                 item -> {
+                    messagesReceived.increment();
                     receivedMessages.add(item);
                     latch.countDown();
                 },
                 error -> {
+                    errors.increment();
                     fail("Stream should not error: " + error.getMessage());
                 }
             );
@@ -285,9 +410,7 @@ public class IntegrationTests {
             }
             
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
     @Test
@@ -300,9 +423,8 @@ public class IntegrationTests {
     }
     
     private void testClientResultCore() throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             String expectMessage = "Hello, World!";
@@ -332,9 +454,7 @@ public class IntegrationTests {
             assertEquals("Received message should match", expectMessage, receivedMessage.get());
             
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
     // it seems java client cannot handle null return result
@@ -349,9 +469,8 @@ public class IntegrationTests {
     // }
 
     private void testClientResultWithNullCore() throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             String expectMessage = "Hello, World!";
@@ -382,9 +501,7 @@ public class IntegrationTests {
             assertEquals("Received message should be 'received'", "received", receivedMessage.get());
             
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
     @Test
@@ -397,9 +514,8 @@ public class IntegrationTests {
     }
 
     private void testClientToServerStreamCore() throws Exception {
-        HubConnection connection = HubConnectionBuilder.create(url).build();
-        
-        connection.start().blockingAwait();
+        ConnectionPool.Lease lease = pool().acquire();
+        HubConnection connection = lease.connection();
         
         run(() -> {
             // Test send with stream
@@ -447,37 +563,13 @@ public class IntegrationTests {
             }
 
             return null;
-        }, () -> {
-            connection.stop().blockingAwait();
-        });
+        }, lease::close);
     }
 
-    // Helper method similar to Swift's whenTaskTimeout
+    // Helper method similar to Swift's whenTaskTimeout. Tasks run on virtual threads on Java 21+
+    // and share one watchdog thread, see ClientThreads.
     private void whenTaskTimeout(ThrowingRunnable task, int timeoutSeconds) throws Exception {
-        CountDownLatch latch = new CountDownLatch(1);
-        AtomicReference<Exception> exceptionRef = new AtomicReference<>();
-        
-        Thread taskThread = new Thread(() -> {
-            try {
-                task.run();
-                latch.countDown();
-            } catch (Exception e) {
-                exceptionRef.set(e);
-                latch.countDown();
-            }
-        });
-        
-        taskThread.start();
-        
-        boolean completed = latch.await(timeoutSeconds, TimeUnit.SECONDS);
-        if (!completed) {
-            taskThread.interrupt();
-            throw new TimeoutException("Task did not complete within " + timeoutSeconds + " seconds");
-        }
-        
-        if (exceptionRef.get() != null) {
-            throw exceptionRef.get();
-        }
+        ClientThreads.run(task::run, timeoutSeconds, TimeUnit.SECONDS);
     }
 
     // Helper method to create client stream: 0, 1, 2, 3, 4, 5
@@ -504,49 +596,6 @@ public class IntegrationTests {
         }
     }
 
-    // Custom class for testing complex object serialization
-    public static class CustomClass {
-        private String str;
-        private List<Integer> arr;
-
-        public CustomClass() {
-        }
-
-        public CustomClass(String str, List<Integer> arr) {
-            this.str = str;
-            this.arr = arr;
-        }
-
-        public String getStr() {
-            return str;
-        }
-
-        public void setStr(String str) {
-            this.str = str;
-        }
-
-        public List<Integer> getArr() {
-            return arr;
-        }
-
-        public void setArr(List<Integer> arr) {
-            this.arr = arr;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            CustomClass that = (CustomClass) o;
-            return Objects.equals(str, that.str) && Objects.equals(arr, that.arr);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(str, arr);
-        }
-    }
-    
     // Functional interface for operations that return a value
     @FunctionalInterface
     private interface Supplier<T> {
@@ -0,0 +1,51 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.LoadDriver;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Load-driver mode of testMultipleConnections. Skipped unless -Dload.connections is set, e.g.
+//   mvn -Dtest=LoadTests -Dload.connections=100,1000,5000 -Dload.connectRate=500 test
+// Runs against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class LoadTests {
+
+    @Test
+    public void testConnectionLoad() throws Exception {
+        String counts = System.getProperty("load.connections");
+        Assume.assumeTrue("Set -Dload.connections=N[,N...] to run the load driver", counts != null);
+
+        LoadDriver.Options options = LoadDriver.Options.fromSystemProperties();
+        LoadDriver driver = new LoadDriver(options);
+        List<Object> runs = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            System.out.println("Load driver against " + target.url());
+            // One run per protocol and N so the report shows where connection startup stops scaling.
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                for (String count : counts.split(",")) {
+                    LoadDriver.Result result = driver.run(target.url(), protocol, Integer.parseInt(count.trim()));
+                    System.out.println(protocol + " " + result);
+                    Map<String, Object> run = new LinkedHashMap<>();
+                    run.put("protocol", protocol.protocolName());
+                    run.putAll(result.toMap());
+                    runs.add(run);
+                    assertTrue("At least one connection should start", result.connected() > 0);
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("runs", runs);
+        System.out.println("Load report: " + Reports.writeJson("load-report.json", report));
+    }
+}
@@ -0,0 +1,56 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.MemoryFootprint;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Memory per HubConnection and start/stop leak check. Skipped unless -Dmemory.connections is set, e.g.
+//   mvn -Dtest=MemoryFootprintTests -Dmemory.connections=100,1000 -Dmemory.budget.leakPerCycleKb=64 test
+// Runs against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set; the hub's own
+// memory then counts too, so size pods from a run against an external server.
+public class MemoryFootprintTests {
+
+    @Test
+    public void testMemoryFootprint() throws Exception {
+        String counts = System.getProperty("memory.connections");
+        Assume.assumeTrue("Set -Dmemory.connections=N[,N...] to run the memory footprint", counts != null);
+
+        MemoryFootprint.Options options = MemoryFootprint.Options.fromSystemProperties();
+        MemoryFootprint.Budget budget = MemoryFootprint.Budget.fromSystemProperties();
+        List<Object> runs = new ArrayList<>();
+        List<String> violations = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                for (String count : counts.split(",")) {
+                    MemoryFootprint.Result result = new MemoryFootprint(options).run(target.url(), protocol, Integer.parseInt(count.trim()));
+                    System.out.println(protocol + " " + result);
+                    Map<String, Object> run = new LinkedHashMap<>();
+                    run.put("protocol", protocol.protocolName());
+                    run.putAll(result.toMap());
+                    runs.add(run);
+                    for (String violation : result.violations(budget)) {
+                        violations.add(protocol + " " + violation);
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("runs", runs);
+        report.put("violations", violations);
+        System.out.println("Memory footprint report: " + Reports.writeJson("memory-footprint-report.json", report));
+        // Fails the build when a -Dmemory.budget.* limit is exceeded
+        assertTrue("Memory budget exceeded: " + violations, violations.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.HubTarget;
+import e2e.harness.PayloadMatrix;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Large-payload matrix of testInvoke. Skipped unless -Dpayload.sizes is set, e.g.
+//   mvn -Dtest=PayloadMatrixTests -Dpayload.sizes=64,1024,16384,65536,1048576,4194304 test
+// Every protocol, shape (-Dpayload.shapes=list,map,custom) and size gets codec costs and Invoke
+// round trips against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class PayloadMatrixTests {
+
+    @Test
+    public void testPayloadMatrix() throws Exception {
+        Assume.assumeTrue("Set -Dpayload.sizes=N[,N...] to run the payload matrix",
+            System.getProperty("payload.sizes") != null);
+
+        PayloadMatrix.Options options = PayloadMatrix.Options.fromSystemProperties();
+        PayloadMatrix matrix = new PayloadMatrix(options);
+        List<Object> cells = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                HubConnection connection = protocol.builder(target.url()).build();
+                connection.start().blockingAwait();
+                try {
+                    for (PayloadMatrix.Shape shape : options.shapes()) {
+                        for (int size : options.sizes()) {
+                            PayloadMatrix.Cell cell = matrix.measure(protocol, shape, size);
+                            Object result = matrix.roundTrips(connection, cell);
+                            assertEquals(shape + " of ~" + size + " bytes should round-trip intact", cell.payload(), result);
+                            System.out.println(cell);
+                            cells.add(cell.toMap());
+                        }
+                    }
+                } finally {
+                    connection.stop().blockingAwait();
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("cells", cells);
+        System.out.println("Payload matrix report: " + Reports.writeJson("payload-matrix-report.json", report));
+    }
+}
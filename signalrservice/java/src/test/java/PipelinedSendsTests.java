@@ -0,0 +1,159 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.HubTarget;
+import e2e.harness.PipelinedSends;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.Assert.*;
+
+// Pipelined, multi-threaded version of testSendAndOn. Skipped unless -Dpipeline.threads is set, e.g.
+//   mvn -Dtest=PipelinedSendsTests -Dpipeline.threads=1,2,4,8 -Dpipeline.messages=10000 test
+// Each thread count runs once per hub protocol on one connection. Runs against the in-process
+// stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class PipelinedSendsTests {
+
+    @Test
+    public void testPipelinedSends() throws Exception {
+        String threadCounts = System.getProperty("pipeline.threads");
+        Assume.assumeTrue("Set -Dpipeline.threads=T[,T...] to run the pipelined send verifier", threadCounts != null);
+
+        PipelinedSends.Options options = PipelinedSends.Options.fromSystemProperties();
+        PipelinedSends pipeline = new PipelinedSends(options);
+        Map<String, Object> protocols = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                HubConnection connection = protocol.builder(target.url()).build();
+                connection.start().blockingAwait();
+                List<PipelinedSends.Result> results = new ArrayList<>();
+                try {
+                    for (String threads : threadCounts.split(",")) {
+                        PipelinedSends.Result result = pipeline.run(connection, Integer.parseInt(threads.trim()));
+                        System.out.println(protocol + " " + result);
+                        results.add(result);
+                        assertNull("Every echo should arrive", result.error());
+                        assertEquals("No echo should be lost", 0, result.missing());
+                        assertEquals("Each thread's echoes should arrive in send order", 0, result.reordered());
+                        assertEquals("No echo should arrive twice", 0, result.duplicates());
+                    }
+                } finally {
+                    connection.stop().blockingAwait();
+                }
+                List<Object> runs = new ArrayList<>();
+                results.forEach(result -> runs.add(result.toMap()));
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("sendScaling", PipelinedSends.scaling(results));
+                summary.put("runs", runs);
+                protocols.put(protocol.protocolName(), summary);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("protocols", protocols);
+        System.out.println("Pipelined sends report: " + Reports.writeJson("pipelined-sends-report.json", report));
+    }
+
+    // SequenceTracker checks, independent of any hub
+
+    @Test
+    public void testSequenceTrackerInOrder() {
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(200);
+        for (int seq = 0; seq < 200; seq++) {
+            tracker.onReceived(seq);
+        }
+        assertEquals(200, tracker.received());
+        assertEquals(0, tracker.missing());
+        assertEquals(0, tracker.reordered());
+        assertEquals(0, tracker.duplicates());
+    }
+
+    @Test
+    public void testSequenceTrackerReordered() {
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(5);
+        for (int seq : new int[] {0, 2, 1, 4, 3}) {
+            tracker.onReceived(seq);
+        }
+        assertEquals("1 and 3 arrived after a higher number", 2, tracker.reordered());
+        assertEquals(0, tracker.missing());
+        assertEquals(0, tracker.duplicates());
+    }
+
+    @Test
+    public void testSequenceTrackerDuplicate() {
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(3);
+        for (int seq : new int[] {0, 1, 1, 2, 0}) {
+            tracker.onReceived(seq);
+        }
+        assertEquals(2, tracker.duplicates());
+        assertEquals("A duplicate is not a reorder", 0, tracker.reordered());
+        assertEquals(3, tracker.received());
+    }
+
+    @Test
+    public void testSequenceTrackerOutOfRange() {
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(64);
+        tracker.onReceived(-1);
+        tracker.onReceived(64);
+        tracker.onReceived(Integer.MAX_VALUE);
+        assertEquals(3, tracker.duplicates());
+        assertEquals(0, tracker.received());
+        assertEquals(64, tracker.missing());
+    }
+
+    @Test
+    public void testSequenceTrackerMissing() {
+        // 130 spans three bitmap words, the last one partly used
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(130);
+        for (int seq = 0; seq < 130; seq++) {
+            if (seq != 0 && seq != 63 && seq != 64 && seq != 129) {
+                tracker.onReceived(seq);
+            }
+        }
+        assertEquals(4, tracker.missing());
+        assertEquals(126, tracker.received());
+        assertEquals(0, tracker.reordered());
+    }
+
+    @Test
+    public void testSequenceTrackerConcurrent() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        PipelinedSends.SequenceTracker tracker = new PipelinedSends.SequenceTracker(threads * perThread);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Thread> receivers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread receiver = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                // Interleaved, so every thread sets bits in the same words; each number arrives twice
+                for (int i = 0; i < perThread; i++) {
+                    int seq = i * threads + offset;
+                    tracker.onReceived(seq);
+                    tracker.onReceived(seq);
+                }
+            });
+            receivers.add(receiver);
+            receiver.start();
+        }
+        for (Thread receiver : receivers) {
+            receiver.join();
+        }
+        assertEquals(threads * perThread, tracker.received());
+        assertEquals(0, tracker.missing());
+        assertEquals("Exactly one of each pair is a duplicate", threads * perThread, tracker.duplicates());
+    }
+}
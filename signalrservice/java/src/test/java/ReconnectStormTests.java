@@ -0,0 +1,59 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.ReconnectStorm;
+import e2e.harness.Reports;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Reconnect storm after a server restart. Skipped unless -Dstorm.connections is set, e.g.
+//   mvn -Dtest=ReconnectStormTests -Dstorm.connections=100,1000 -Dstorm.schedules=unjittered,jittered test
+// Restarts the in-process stand-in hub. With SIGNALR_INTEGRATION_TEST_URL set, it needs a -Dproxy.*
+// setting (e.g. -Dproxy.enabled=true) and cuts the sockets through the shaping proxy instead.
+public class ReconnectStormTests {
+
+    @Test
+    public void testReconnectStorm() throws Exception {
+        String counts = System.getProperty("storm.connections");
+        Assume.assumeTrue("Set -Dstorm.connections=N[,N...] to run the reconnect storm", counts != null);
+
+        ReconnectStorm.Options options = ReconnectStorm.Options.fromSystemProperties();
+        List<Object> runs = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            Assume.assumeTrue("An external hub needs -Dproxy.enabled=true to cut its connections",
+                target.isInProcess() || target.proxy() != null);
+            Runnable drop = target.isInProcess()
+                ? () -> target.standInHub().restart(options.downtimeMillis())
+                : () -> target.proxy().cut();
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                for (String count : counts.split(",")) {
+                    for (String schedule : System.getProperty("storm.schedules", "unjittered,jittered").split(",")) {
+                        options.schedule(ReconnectStorm.Schedule.valueOf(schedule.trim().toUpperCase(Locale.ROOT)));
+                        ReconnectStorm.Result result = new ReconnectStorm(options)
+                            .run(target.url(), protocol, Integer.parseInt(count.trim()), drop);
+                        System.out.println(protocol + " " + result);
+                        Map<String, Object> run = new LinkedHashMap<>();
+                        run.put("protocol", protocol.protocolName());
+                        run.putAll(options.toMap());
+                        run.putAll(result.toMap());
+                        runs.add(run);
+                        assertTrue("At least one connection should start", result.connected() > 0);
+                        assertEquals("Every connection should drop", result.connected(), result.dropped());
+                        assertEquals("Every dropped connection should recover: " + result.error(),
+                            result.dropped(), result.recovered());
+                    }
+                }
+            }
+        }
+
+        System.out.println("Reconnect storm report: " + Reports.writeJson("reconnect-storm-report.json", runs));
+    }
+}
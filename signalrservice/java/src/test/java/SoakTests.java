@@ -0,0 +1,44 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+import e2e.harness.Soak;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Long-running mixed workload. Skipped unless -Dsoak.durationMinutes is set, e.g.
+//   mvn -Dtest=SoakTests -Dsoak.durationMinutes=240 -Dsoak.mix=echo=40,invoke=30,stream=10,clientstream=10,clientresult=10 test
+// Appends one row per -Dsoak.sampleSeconds (60) to target/soak.csv while it runs. Uses the first
+// protocol of -Dsignalr.protocols. Runs against the in-process stand-in hub unless
+// SIGNALR_INTEGRATION_TEST_URL is set.
+public class SoakTests {
+
+    @Test
+    public void testSoak() throws Exception {
+        Assume.assumeTrue("Set -Dsoak.durationMinutes=N to run the soak",
+            System.getProperty("soak.durationMinutes") != null);
+
+        Soak.Options options = Soak.Options.fromSystemProperties();
+        Protocol protocol = Protocol.fromSystemProperties().get(0);
+        Soak.Result result;
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            result = new Soak(options).run(target.url(), protocol);
+            System.out.println(protocol + " " + result);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("protocol", protocol.protocolName());
+        report.put("options", options.toMap());
+        report.putAll(result.toMap());
+        System.out.println("Soak report: " + Reports.writeJson("soak-report.json", report) + ", samples: " + result.csv());
+        assertEquals("No connection should drop during the soak", 0, result.connectionsLost());
+    }
+}
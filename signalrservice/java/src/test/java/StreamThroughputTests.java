@@ -0,0 +1,55 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+import e2e.harness.StreamThroughput;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Streaming-throughput mode of testStream. Skipped unless -Dstream.items is set, e.g.
+//   mvn -Dtest=StreamThroughputTests -Dstream.items=1000000 -Dstream.itemSize=64 test
+// Runs once per hub protocol against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class StreamThroughputTests {
+
+    @Test
+    public void testStreamThroughput() throws Exception {
+        Assume.assumeTrue("Set -Dstream.items=N to run the streaming throughput mode",
+            System.getProperty("stream.items") != null);
+
+        StreamThroughput.Options options = StreamThroughput.Options.fromSystemProperties();
+        StreamThroughput throughput = new StreamThroughput(options);
+        Map<String, Object> runs = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                HubConnection connection = protocol.builder(target.url()).build();
+                connection.start().blockingAwait();
+                try {
+                    StreamThroughput.Result result = throughput.run(connection);
+                    System.out.println(protocol + ": " + result);
+                    runs.put(protocol.protocolName(), result.toMap());
+                    assertNull("Stream should complete", result.error());
+                    if (options.backpressure() == BackpressureStrategy.BUFFER) {
+                        assertEquals("A buffered stream should deliver every item", options.items(), result.received());
+                    }
+                } finally {
+                    connection.stop().blockingAwait();
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("runs", runs);
+        System.out.println("Stream throughput report: " + Reports.writeJson("stream-throughput-report.json", report));
+    }
+}
@@ -0,0 +1,53 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+import e2e.harness.Transport;
+import e2e.harness.TransportComparison;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// WebSockets vs long polling. Skipped unless -Dtransport.messages is set, e.g.
+//   mvn -Dtest=TransportComparisonTests -Dtransport.messages=2000 -Dtransport.roundTrips=200 test
+// Runs the same round trips and echo burst over both transports once per hub protocol. Runs
+// against the in-process stand-in hub unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class TransportComparisonTests {
+
+    @Test
+    public void testTransportComparison() throws Exception {
+        Assume.assumeTrue("Set -Dtransport.messages=N to run the transport comparison",
+            System.getProperty("transport.messages") != null);
+
+        TransportComparison.Options options = TransportComparison.Options.fromSystemProperties();
+        TransportComparison comparison = new TransportComparison(options);
+        Map<String, Object> protocols = new LinkedHashMap<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                TransportComparison.Result webSockets = comparison.run(target.url(), protocol, Transport.WEBSOCKETS);
+                System.out.println(webSockets);
+                TransportComparison.Result longPolling = comparison.run(target.url(), protocol, Transport.LONG_POLLING);
+                System.out.println(longPolling);
+                assertNull("WebSockets run should complete", webSockets.error());
+                assertNull("Long polling run should complete", longPolling.error());
+
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("comparison", TransportComparison.compare(webSockets, longPolling));
+                summary.put("runs", Arrays.asList(webSockets.toMap(), longPolling.toMap()));
+                protocols.put(protocol.protocolName(), summary);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("protocols", protocols);
+        System.out.println("Transport comparison report: " + Reports.writeJson("transport-comparison-report.json", report));
+    }
+}
@@ -0,0 +1,62 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+import com.microsoft.signalr.HubConnection;
+import e2e.harness.HubTarget;
+import e2e.harness.Protocol;
+import e2e.harness.Reports;
+import e2e.harness.UploadThroughput;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Upload-throughput mode of testClientToServerStream. Skipped unless -Dupload.items is set, e.g.
+//   mvn -Dtest=UploadThroughputTests -Dupload.items=1000000 -Dupload.batchSizes=1,100 -Dupload.modes=send,stream test
+// Runs every mode and batch size once per hub protocol against the in-process stand-in hub
+// unless SIGNALR_INTEGRATION_TEST_URL is set.
+public class UploadThroughputTests {
+
+    @Test
+    public void testUploadThroughput() throws Exception {
+        Assume.assumeTrue("Set -Dupload.items=N to run the upload throughput mode",
+            System.getProperty("upload.items") != null);
+
+        UploadThroughput.Options options = UploadThroughput.Options.fromSystemProperties();
+        List<Object> runs = new ArrayList<>();
+
+        try (HubTarget target = HubTarget.resolve(HubTarget.IN_PROCESS)) {
+            for (Protocol protocol : Protocol.fromSystemProperties()) {
+                for (String mode : System.getProperty("upload.modes", "send,invoke,stream").split(",")) {
+                    for (String batchSize : System.getProperty("upload.batchSizes", "1,100").split(",")) {
+                        options.mode(UploadThroughput.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)))
+                            .batchSize(Integer.parseInt(batchSize.trim()));
+                        HubConnection connection = protocol.builder(target.url()).build();
+                        connection.start().blockingAwait();
+                        try {
+                            UploadThroughput.Result result = new UploadThroughput(options).run(connection);
+                            System.out.println(protocol + " " + result);
+                            Map<String, Object> run = new LinkedHashMap<>();
+                            run.put("protocol", protocol.protocolName());
+                            run.putAll(options.toMap());
+                            run.putAll(result.toMap());
+                            runs.add(run);
+                            assertNull("Upload should complete", result.error());
+                            assertEquals("Every message should be acknowledged", result.messages(), result.acknowledged());
+                            if (result.itemsCounted() != null) {
+                                assertEquals("The hub should count every item", options.items(), result.itemsCounted().longValue());
+                            }
+                        } finally {
+                            connection.stop().blockingAwait();
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println("Upload throughput report: " + Reports.writeJson("upload-throughput-report.json", runs));
+    }
+}
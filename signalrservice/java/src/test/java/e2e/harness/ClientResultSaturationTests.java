@@ -0,0 +1,55 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Client-result throughput arithmetic, without a hub.
+public class ClientResultSaturationTests {
+    private static final ClientResultThroughput.Options ASYNC =
+        new ClientResultThroughput.Options().handler(ClientResultThroughput.Handler.ASYNC).delayMillis(10);
+
+    private static ClientResultThroughput.Result perSecond(int concurrency, int completed) {
+        ClientResultThroughput.Result result = new ClientResultThroughput.Result(ASYNC, concurrency);
+        for (int i = 0; i < completed; i++) {
+            result.latency.recordValue(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        result.elapsedNanos = TimeUnit.SECONDS.toNanos(1);
+        return result;
+    }
+
+    @Test
+    public void testSaturationPoint() {
+        assertEquals("4 added only 10% over 2", Integer.valueOf(4), ClientResultThroughput.saturationPoint(Arrays.asList(
+            perSecond(1, 100), perSecond(2, 200), perSecond(4, 220), perSecond(8, 800))));
+        assertEquals("A drop saturates too", Integer.valueOf(2), ClientResultThroughput.saturationPoint(Arrays.asList(
+            perSecond(1, 100), perSecond(2, 90))));
+    }
+
+    @Test
+    public void testNoSaturationWhileEveryStepScales() {
+        assertNull(ClientResultThroughput.saturationPoint(Arrays.asList(perSecond(1, 100), perSecond(2, 120), perSecond(4, 240))));
+        assertNull(ClientResultThroughput.saturationPoint(Collections.singletonList(perSecond(1, 100))));
+        assertNull(ClientResultThroughput.saturationPoint(Collections.emptyList()));
+    }
+
+    @Test
+    public void testEfficiency() {
+        ClientResultThroughput.Result result = perSecond(4, 200);
+        assertEquals("4 in flight at 10ms each", 400, result.idealPerSecond(), 1e-9);
+        assertEquals(0.5, (Double) result.toMap().get("efficiency"), 1e-9);
+
+        ClientResultThroughput.Result immediate = new ClientResultThroughput.Result(
+            new ClientResultThroughput.Options().handler(ClientResultThroughput.Handler.IMMEDIATE), 4);
+        assertEquals(0, immediate.idealPerSecond(), 0);
+        assertFalse("No ideal, no efficiency", immediate.toMap().containsKey("efficiency"));
+        assertEquals("Nothing measured yet", 0, immediate.invocationsPerSecond(), 0);
+    }
+}
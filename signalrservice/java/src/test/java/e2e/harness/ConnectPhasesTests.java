@@ -0,0 +1,49 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Connection-start phases from timestamps, without a hub.
+public class ConnectPhasesTests {
+
+    @Test
+    public void testNegotiatedStart() {
+        Map<String, Long> phases = ConnectPhases.Start.phases(100, 1, 130, 130, 150, 160);
+        assertEquals(Arrays.asList(ConnectPhases.NEGOTIATE, ConnectPhases.UPGRADE, ConnectPhases.HANDSHAKE, ConnectPhases.TOTAL),
+            new ArrayList<>(phases.keySet()));
+        assertEquals(30, (long) phases.get(ConnectPhases.NEGOTIATE));
+        assertEquals(20, (long) phases.get(ConnectPhases.UPGRADE));
+        assertEquals(10, (long) phases.get(ConnectPhases.HANDSHAKE));
+        assertEquals(60, (long) phases.get(ConnectPhases.TOTAL));
+    }
+
+    @Test
+    public void testRedirectedStart() {
+        Map<String, Long> phases = ConnectPhases.Start.phases(100, 2, 110, 140, 170, 200);
+        assertEquals(10, (long) phases.get(ConnectPhases.NEGOTIATE));
+        assertEquals(30, (long) phases.get(ConnectPhases.REDIRECT));
+        assertEquals("The upgrade starts after the second negotiate", 30, (long) phases.get(ConnectPhases.UPGRADE));
+        assertEquals(30, (long) phases.get(ConnectPhases.HANDSHAKE));
+        assertEquals(100, (long) phases.get(ConnectPhases.TOTAL));
+    }
+
+    @Test
+    public void testSkippedPhasesAreLeftOut() {
+        Map<String, Long> skipped = ConnectPhases.Start.phases(100, 0, 0, 0, 120, 150);
+        assertEquals(Arrays.asList(ConnectPhases.UPGRADE, ConnectPhases.HANDSHAKE, ConnectPhases.TOTAL),
+            new ArrayList<>(skipped.keySet()));
+        assertEquals(20, (long) skipped.get(ConnectPhases.UPGRADE));
+
+        Map<String, Long> unseen = ConnectPhases.Start.phases(100, 0, 0, 0, 0, 150);
+        assertEquals("Without a transport request the handshake is the whole start", 50, (long) unseen.get(ConnectPhases.HANDSHAKE));
+        assertFalse(unseen.containsKey(ConnectPhases.UPGRADE));
+    }
+}
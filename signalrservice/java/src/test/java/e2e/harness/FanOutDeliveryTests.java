@@ -0,0 +1,62 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// Fan-out delivery bookkeeping, without a hub.
+public class FanOutDeliveryTests {
+
+    // Three receivers joined, two messages sent
+    private static FanOut.Result joined() {
+        FanOut.Result result = new FanOut.Result(new FanOut.Options().messages(2), 3);
+        for (int receiver = 0; receiver < 3; receiver++) {
+            result.joined.set(receiver, 1);
+            result.connected.incrementAndGet();
+        }
+        long now = System.nanoTime();
+        result.sentAt.set(0, now);
+        result.sentAt.set(1, now);
+        return result;
+    }
+
+    @Test
+    public void testEveryDelivery() {
+        FanOut.Result result = joined();
+        for (int receiver = 0; receiver < 3; receiver++) {
+            result.onMessage(receiver, "0:x", result.sentAt.get(0));
+            result.onMessage(receiver, "1:x", result.sentAt.get(1));
+        }
+        result.finish();
+        assertEquals(0, result.dropped());
+        assertEquals(0, result.laggingReceivers());
+        assertEquals(6, result.delivery.getTotalCount());
+        assertEquals("Both messages reached every receiver", 2, result.lastReceiver.getTotalCount());
+    }
+
+    @Test
+    public void testMissedDeliveries() {
+        FanOut.Result result = joined();
+        for (int receiver = 0; receiver < 3; receiver++) {
+            result.onMessage(receiver, "0:x", result.sentAt.get(0));
+        }
+        result.onMessage(1, "1:x", result.sentAt.get(1));
+        result.finish();
+        assertEquals(2, result.dropped());
+        assertEquals(2, result.laggingReceivers());
+        assertEquals("A message someone missed has no last receiver", 1, result.lastReceiver.getTotalCount());
+    }
+
+    @Test
+    public void testReceiversThatNeverJoinedDoNotLag() {
+        FanOut.Result result = new FanOut.Result(new FanOut.Options().messages(2), 3);
+        result.joined.set(0, 1);
+        result.connected.incrementAndGet();
+        assertEquals(1, result.laggingReceivers());
+        assertEquals("Only connected receivers are owed messages", 2, result.dropped());
+        assertEquals(0, result.minReceiverMessagesPerSecond(), 0);
+    }
+}
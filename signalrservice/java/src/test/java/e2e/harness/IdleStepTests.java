@@ -0,0 +1,51 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Idle step rates, without connections.
+public class IdleStepTests {
+
+    @Test
+    public void testRatesOverTheHold() {
+        IdleConnections.Step step = new IdleConnections.Step(100);
+        step.connected = 100;
+        step.holdNanos = TimeUnit.SECONDS.toNanos(10);
+        step.cpuNanos = TimeUnit.MILLISECONDS.toNanos(500);
+        step.contextSwitches = 2000;
+        step.pingsReceived = 1000;
+        step.threads.put("OkHttp ConnectionPool", 1);
+        step.threads.put("pool-N-thread-N", 3);
+
+        Map<String, Object> map = step.toMap();
+        assertEquals(0.05, (Double) map.get("idleCpuCores"), 1e-9);
+        assertEquals("50 ms of CPU a second over 100 connections", 500, (Double) map.get("idleCpuMicrosPerConnectionPerSecond"), 1e-9);
+        assertEquals(200, (Double) map.get("wakeupsPerSecond"), 1e-9);
+        assertEquals(100, (Double) map.get("keepAlivePingsPerSecond"), 1e-9);
+        assertEquals(4, map.get("threads"));
+    }
+
+    @Test
+    public void testUnavailableFiguresAreMinusOne() {
+        IdleConnections.Step step = new IdleConnections.Step(10);
+        step.connected = 10;
+        step.cpuNanos = -1;
+        step.contextSwitches = -1;
+        step.holdNanos = TimeUnit.SECONDS.toNanos(1);
+        Map<String, Object> map = step.toMap();
+        assertEquals(-1, (Double) map.get("idleCpuCores"), 0);
+        assertEquals(-1, (Double) map.get("idleCpuMicrosPerConnectionPerSecond"), 0);
+        assertEquals("Context switches are Linux only", -1, (Double) map.get("wakeupsPerSecond"), 0);
+
+        IdleConnections.Step unheld = new IdleConnections.Step(10);
+        assertEquals("No hold, no rate", -1, (Double) unheld.toMap().get("keepAlivePingsPerSecond"), 0);
+        assertEquals("No connections, no per-connection CPU", -1, (Double) unheld.toMap().get("idleCpuMicrosPerConnectionPerSecond"), 0);
+    }
+}
@@ -0,0 +1,66 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// The load driver's bookkeeping, without connections.
+public class LoadDriverTests {
+
+    private static LoadDriver.Result connected(int connections, int connected) {
+        LoadDriver.Result result = new LoadDriver.Result(connections);
+        // Stored in completion order, not sorted
+        for (int i = 0; i < connected; i++) {
+            result.connectNanos[i] = TimeUnit.MILLISECONDS.toNanos(connected - i);
+        }
+        result.connected.set(connected);
+        return result;
+    }
+
+    @Test
+    public void testConnectPercentiles() {
+        LoadDriver.Result result = connected(10, 10);
+        assertEquals(5, result.connectMillis(50), 0);
+        assertEquals(9, result.connectMillis(90), 0);
+        assertEquals(10, result.connectMillis(100), 0);
+        assertEquals("Below the first rank clamps to the fastest", 1, result.connectMillis(0), 0);
+    }
+
+    @Test
+    public void testConnectPercentilesCountStartedConnectionsOnly() {
+        LoadDriver.Result result = connected(10, 4);
+        assertEquals("Slots of connections that failed to start are left out", 4, result.connectMillis(100), 0);
+        assertEquals(0, connected(10, 0).connectMillis(50), 0);
+    }
+
+    @Test
+    public void testConnectsPerSecond() {
+        LoadDriver.Result result = connected(10, 10);
+        assertEquals("No ramp measured yet", 0, result.connectsPerSecond(), 0);
+        result.rampNanos = TimeUnit.SECONDS.toNanos(2);
+        assertEquals(5, result.connectsPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void testEchoes() {
+        LoadDriver.Result result = connected(1, 1);
+        result.sent.set(3);
+        result.onEcho(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20));
+        result.onEcho(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(10));
+        result.onEcho(null);
+        result.steadyNanos = TimeUnit.SECONDS.toNanos(1);
+
+        Map<String, Object> map = result.toMap();
+        assertEquals(3L, map.get("messagesSent"));
+        assertEquals("An echo without a timestamp still counts", 3L, map.get("messagesReceived"));
+        assertEquals(3.0, (Double) map.get("messagesPerSecond"), 1e-9);
+        assertTrue("The slowest echo took at least 20ms", (Double) map.get("echoMaxMs") >= 20);
+        assertFalse("No error, no firstError", map.containsKey("firstError"));
+    }
+}
@@ -0,0 +1,60 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Memory footprint arithmetic and budgets from fixed snapshots, without a hub or the GC.
+public class MemoryBudgetTests {
+    private static final long KB = 1024;
+
+    // 10 connections, 100 KB of heap and one thread each, then cycles that keep 8 KB each
+    private static MemoryFootprint.Result result() {
+        MemoryFootprint.Result result = new MemoryFootprint.Result(10);
+        result.baseline = new MemoryFootprint.Snapshot(1000 * KB, 0, 20);
+        result.idle = new MemoryFootprint.Snapshot(2000 * KB, 40 * KB, 30);
+        result.active = new MemoryFootprint.Snapshot(1500 * KB, 80 * KB, 30);
+        result.stopped = new MemoryFootprint.Snapshot(1100 * KB, 0, 21);
+        for (int cycle = 0; cycle < 4; cycle++) {
+            result.cycles.add(new MemoryFootprint.Snapshot((1200 + 8 * cycle) * KB, 0, 22));
+        }
+        return result;
+    }
+
+    @Test
+    public void testPerConnection() {
+        MemoryFootprint.Result result = result();
+        assertEquals(100 * KB, result.idleHeapPerConnection(), 1e-9);
+        assertEquals(50 * KB, result.activeHeapPerConnection(), 1e-9);
+        assertEquals("The larger of idle and active direct memory", 8 * KB, result.directPerConnection(), 1e-9);
+        assertEquals(1, result.threadsPerConnection(), 1e-9);
+    }
+
+    @Test
+    public void testLeaksCountFromTheFirstCycle() {
+        MemoryFootprint.Result result = result();
+        assertEquals(8 * KB, result.leakedHeapPerCycle(), 1e-9);
+        assertEquals(2, result.leakedThreads());
+
+        result.cycles.subList(1, result.cycles.size()).clear();
+        assertEquals("One cycle has nothing to compare with", 0, result.leakedHeapPerCycle(), 0);
+        result.cycles.clear();
+        assertEquals("Without cycles, threads left after the stop", 1, result.leakedThreads());
+    }
+
+    @Test
+    public void testViolations() {
+        MemoryFootprint.Result result = result();
+        assertTrue("Unset limits are not checked", result.violations(new MemoryFootprint.Budget(null, null, null, null, null)).isEmpty());
+
+        List<String> violations = result.violations(new MemoryFootprint.Budget(99.0, 8.0, 1.0, 4.0, 2.0));
+        assertEquals(violations.toString(), 2, violations.size());
+        assertTrue(violations.get(0), violations.get(0).startsWith("N=10 heap per connection 100.00KB exceeds budget 99.00KB"));
+        assertTrue(violations.get(1), violations.get(1).startsWith("N=10 heap leaked per cycle 8.00KB"));
+    }
+}
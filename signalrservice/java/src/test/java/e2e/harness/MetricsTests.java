@@ -0,0 +1,69 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import e2e.hub.Json;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// The exported text of a small registry, without a run.
+public class MetricsTests {
+
+    private static Metrics registry() {
+        Metrics metrics = new Metrics();
+        metrics.counter(Metrics.MESSAGES_SENT, "scenario", "load").add(3);
+        metrics.counter(Metrics.MESSAGES_SENT, "scenario", "a\"b\\c\nd").increment();
+        metrics.gauge(Metrics.CONNECTIONS_ACTIVE).set(2);
+        metrics.gauge("custom_queue_depth").set(-1);
+        metrics.histogram(Metrics.LATENCY, "operation", "echo").recordValue(1000);
+        return metrics;
+    }
+
+    @Test
+    public void testPrometheus() {
+        assertEquals(""
+                + "# TYPE custom_queue_depth gauge\n"
+                + "custom_queue_depth -1\n"
+                + "# HELP signalr_connections_active Connections started and not closed yet\n"
+                + "# TYPE signalr_connections_active gauge\n"
+                + "signalr_connections_active 2\n"
+                + "# HELP signalr_latency_seconds Latencies recorded by the harness\n"
+                + "# TYPE signalr_latency_seconds summary\n"
+                + "signalr_latency_seconds{operation=\"echo\",quantile=\"0.5\"} 1.0E-6\n"
+                + "signalr_latency_seconds{operation=\"echo\",quantile=\"0.99\"} 1.0E-6\n"
+                + "signalr_latency_seconds{operation=\"echo\",quantile=\"0.999\"} 1.0E-6\n"
+                + "signalr_latency_seconds_sum{operation=\"echo\"} 1.0E-6\n"
+                + "signalr_latency_seconds_count{operation=\"echo\"} 1\n"
+                + "# HELP signalr_messages_sent_total Hub messages sent by clients\n"
+                + "# TYPE signalr_messages_sent_total counter\n"
+                + "signalr_messages_sent_total{scenario=\"a\\\"b\\\\c\\nd\"} 1\n"
+                + "signalr_messages_sent_total{scenario=\"load\"} 3\n",
+            registry().toPrometheus());
+    }
+
+    @Test
+    public void testJson() {
+        assertEquals("{"
+                + "\"custom_queue_depth\":{\"type\":\"gauge\",\"series\":[{\"labels\":{},\"value\":-1}]},"
+                + "\"signalr_connections_active\":{\"type\":\"gauge\",\"help\":\"Connections started and not closed yet\","
+                + "\"series\":[{\"labels\":{},\"value\":2}]},"
+                + "\"signalr_latency_seconds\":{\"type\":\"summary\",\"help\":\"Latencies recorded by the harness\","
+                + "\"series\":[{\"labels\":{\"operation\":\"echo\"},\"count\":1,\"p50Ms\":0.001,\"p99Ms\":0.001,\"p999Ms\":0.001,\"maxMs\":0.001}]},"
+                + "\"signalr_messages_sent_total\":{\"type\":\"counter\",\"help\":\"Hub messages sent by clients\","
+                + "\"series\":[{\"labels\":{\"scenario\":\"a\\\"b\\\\c\\nd\"},\"value\":1},{\"labels\":{\"scenario\":\"load\"},\"value\":3}]}"
+                + "}",
+            Json.write(registry().toMap()));
+    }
+
+    @Test
+    public void testSeriesAreKeyedByLabelsNotTheirText() {
+        Metrics metrics = new Metrics();
+        // Both labels print as {k=v, x=y}
+        Metrics.Counter one = metrics.counter("m", "k", "v, x=y");
+        Metrics.Counter two = metrics.counter("m", "k", "v", "x", "y");
+        assertNotSame(one, two);
+        assertSame("Label order does not matter", two, metrics.counter("m", "x", "y", "k", "v"));
+    }
+}
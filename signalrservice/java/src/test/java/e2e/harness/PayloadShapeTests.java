@@ -0,0 +1,72 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Payload sizing and matrix settings, without a hub.
+public class PayloadShapeTests {
+
+    // The JSON length of a list of integers or a map of strings, without a serializer
+    private static int jsonLength(Object payload) {
+        int length = 2;
+        if (payload instanceof List) {
+            for (Object item : (List<?>) payload) {
+                length += item.toString().length() + 1;
+            }
+        } else {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) payload).entrySet()) {
+                length += entry.getKey().toString().length() + entry.getValue().toString().length() + 6;
+            }
+        }
+        return length - 1;
+    }
+
+    @Test
+    public void testPayloadsScaleToTheTargetSize() {
+        for (int bytes : Arrays.asList(1024, 64 * 1024)) {
+            for (PayloadMatrix.Shape shape : Arrays.asList(PayloadMatrix.Shape.LIST, PayloadMatrix.Shape.MAP)) {
+                int length = jsonLength(shape.payload(bytes));
+                assertTrue(shape + " at " + bytes + " bytes encodes to " + length,
+                    Math.abs(length - bytes) <= bytes / 10);
+            }
+        }
+    }
+
+    @Test
+    public void testCustomPayloadCarriesTheList() {
+        CustomClass custom = (CustomClass) PayloadMatrix.Shape.CUSTOM.payload(7000);
+        assertEquals(PayloadMatrix.MESSAGE, custom.getStr());
+        assertEquals(PayloadMatrix.Shape.LIST.payload(7000), custom.getArr());
+        assertEquals(1000, custom.getArr().size());
+    }
+
+    @Test
+    public void testTinySizesKeepOneElement() {
+        assertEquals(1, ((List<?>) PayloadMatrix.Shape.LIST.payload(0)).size());
+        assertEquals(1, ((Map<?, ?>) PayloadMatrix.Shape.MAP.payload(1)).size());
+    }
+
+    @Test
+    public void testOptionsFromSystemProperties() {
+        System.setProperty("payload.sizes", "64, 1024");
+        System.setProperty("payload.shapes", "map ,Custom");
+        try {
+            PayloadMatrix.Options options = PayloadMatrix.Options.fromSystemProperties();
+            assertEquals(Arrays.asList(64, 1024), options.sizes());
+            assertEquals(Arrays.asList(PayloadMatrix.Shape.MAP, PayloadMatrix.Shape.CUSTOM), options.shapes());
+        } finally {
+            System.clearProperty("payload.sizes");
+            System.clearProperty("payload.shapes");
+        }
+        assertEquals("Every shape by default", Arrays.asList(PayloadMatrix.Shape.values()),
+            PayloadMatrix.Options.fromSystemProperties().shapes());
+    }
+}
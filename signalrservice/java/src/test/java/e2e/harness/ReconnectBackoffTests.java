@@ -0,0 +1,65 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Reconnect backoff and storm bookkeeping, without a hub.
+public class ReconnectBackoffTests {
+
+    private static ReconnectStorm storm(ReconnectStorm.Schedule schedule) {
+        return new ReconnectStorm(new ReconnectStorm.Options().schedule(schedule).baseDelayMillis(100).maxDelayMillis(1000));
+    }
+
+    @Test
+    public void testUnjitteredDelaysDoubleUpToTheCap() {
+        ReconnectStorm storm = storm(ReconnectStorm.Schedule.UNJITTERED);
+        assertEquals(100, storm.delayMillis(0));
+        assertEquals(200, storm.delayMillis(1));
+        assertEquals(800, storm.delayMillis(3));
+        assertEquals(1000, storm.delayMillis(4));
+        assertEquals("A large attempt must not overflow the shift", 1000, storm.delayMillis(100));
+    }
+
+    @Test
+    public void testJitteredDelaysStayUnderTheUnjitteredOnes() {
+        ReconnectStorm storm = storm(ReconnectStorm.Schedule.JITTERED);
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long cap = storm(ReconnectStorm.Schedule.UNJITTERED).delayMillis(attempt);
+            for (int i = 0; i < 100; i++) {
+                long delay = storm.delayMillis(attempt);
+                assertTrue("Attempt " + attempt + " waited " + delay + "ms", delay >= 0 && delay <= cap);
+            }
+        }
+    }
+
+    @Test
+    public void testRecoveryWaitsForEveryDroppedConnection() {
+        ReconnectStorm.Result result = new ReconnectStorm.Result(new ReconnectStorm.Options(), 2);
+        assertFalse("Nothing dropped yet", result.awaitRecovered(0));
+        result.onDropped();
+        result.onDropped();
+        result.onRecovered(TimeUnit.MILLISECONDS.toNanos(5), 1);
+        assertFalse("One connection is still down", result.awaitRecovered(0));
+        result.onGaveUp();
+        assertTrue("Giving up ends the wait too", result.awaitRecovered(0));
+        assertEquals(1, result.recovered());
+    }
+
+    @Test
+    public void testPeakAttemptsPer100Ms() {
+        ReconnectStorm.Result result = new ReconnectStorm.Result(new ReconnectStorm.Options().recoveryTimeoutSeconds(1), 3);
+        result.droppedAt = 0;
+        result.onAttempt(TimeUnit.MILLISECONDS.toNanos(10));
+        result.onAttempt(TimeUnit.MILLISECONDS.toNanos(150));
+        result.onAttempt(TimeUnit.MILLISECONDS.toNanos(199));
+        result.onAttempt(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, result.peakAttemptsPer100Ms());
+        assertEquals("Attempts past the last bucket still count", 4, result.toMap().get("attempts"));
+    }
+}
@@ -0,0 +1,131 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Known answers for the gate's statistics. The p-values were worked out separately from the
+// normal approximation with tie and continuity correction.
+public class RegressionGateTests {
+
+    private static double[] range(double from, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = from + i;
+        }
+        return values;
+    }
+
+    private static List<Double> list(double[] values) {
+        List<Double> list = new ArrayList<>();
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Test
+    public void testPercentile() {
+        List<Double> shuffled = list(range(1, 100));
+        Collections.shuffle(shuffled, new Random(1));
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = shuffled.get(i);
+        }
+        assertEquals(50, RegressionGate.percentile(values, 50), 0);
+        assertEquals(99, RegressionGate.percentile(values, 99), 0);
+        assertEquals(100, RegressionGate.percentile(values, 100), 0);
+        assertEquals("Below the first rank clamps to the minimum", 1, RegressionGate.percentile(values, 0), 0);
+        assertEquals(7, RegressionGate.percentile(new double[] {7}, 99), 0);
+        assertEquals("Nearest rank, not interpolated", 2, RegressionGate.percentile(new double[] {4, 1, 3, 2}, 50), 0);
+    }
+
+    @Test
+    public void testMedian() {
+        assertEquals(3, RegressionGate.median(new double[] {5, 1, 3}), 0);
+        assertEquals(2.5, RegressionGate.median(new double[] {4, 1, 3, 2}), 0);
+        double[] values = {3, 1, 2};
+        RegressionGate.median(values);
+        assertArrayEquals("The input is left unsorted", new double[] {3, 1, 2}, values, 0);
+    }
+
+    @Test
+    public void testMannWhitneyIdenticalSamples() {
+        assertEquals(1, RegressionGate.mannWhitneyP(range(1, 10), range(1, 10)), 1e-6);
+        double[] constant = {5, 5, 5, 5, 5};
+        assertEquals("All ties leave no variance", 1, RegressionGate.mannWhitneyP(constant, constant), 0);
+    }
+
+    @Test
+    public void testMannWhitneyCleanShift() {
+        // U = 0 for two rounds of 10 that do not overlap
+        double p = RegressionGate.mannWhitneyP(range(1, 10), range(11, 10));
+        assertEquals(1.8267e-4, p, 1e-7);
+        assertTrue(p < new RegressionGate.Options().alpha);
+        assertEquals("Two-sided", p, RegressionGate.mannWhitneyP(range(11, 10), range(1, 10)), 1e-12);
+        assertEquals("Only ranks count", p, RegressionGate.mannWhitneyP(range(1, 10), range(1000, 10)), 1e-12);
+    }
+
+    @Test
+    public void testMannWhitneyTieCorrection() {
+        double[] a = {1, 1, 1, 1, 2, 2, 2, 2};
+        double[] b = {2, 2, 3, 3, 3, 3, 3, 3};
+        // Without the tie correction the variance is larger and p is 0.003876
+        assertEquals(0.0021079, RegressionGate.mannWhitneyP(a, b), 1e-6);
+    }
+
+    private static List<RegressionGate.Comparison> compare(String metric, double[] baseline, double[] candidate) {
+        Map<String, Object> base = new HashMap<>();
+        Map<String, Object> cand = new HashMap<>();
+        base.put(metric, list(baseline));
+        cand.put(metric, list(candidate));
+        return new RegressionGate(new RegressionGate.Options()).compare(base, cand);
+    }
+
+    private static double[] scaled(double[] values, double factor) {
+        double[] scaled = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            scaled[i] = values[i] * factor;
+        }
+        return scaled;
+    }
+
+    @Test
+    public void testComparisonLowerIsBetter() {
+        double[] baseline = range(100, 10);
+        List<RegressionGate.Comparison> slower = compare("connectMs", baseline, scaled(baseline, 1.2));
+        assertEquals("Only metrics present on both sides are compared", 1, slower.size());
+        assertTrue(slower.get(0).toString(), slower.get(0).regressed());
+        assertEquals(20, slower.get(0).changePercent, 1e-9);
+        assertFalse("Faster is not a regression", compare("connectMs", baseline, scaled(baseline, 0.8)).get(0).regressed());
+    }
+
+    @Test
+    public void testComparisonHigherIsBetter() {
+        double[] baseline = range(1000, 10);
+        assertTrue("Fewer echoes per second is worse",
+            compare("echoPerSecond", baseline, scaled(baseline, 0.8)).get(0).regressed());
+        assertFalse("More echoes per second is better",
+            compare("echoPerSecond", baseline, scaled(baseline, 1.2)).get(0).regressed());
+    }
+
+    @Test
+    public void testComparisonNeedsBothThresholdAndSignificance() {
+        // 100 to 100.9: significant (no overlap) but only 3% worse, under the 5% threshold
+        double[] baseline = scaled(range(1000, 10), 0.1);
+        RegressionGate.Comparison small = compare("invokeP50Ms", baseline, scaled(baseline, 1.03)).get(0);
+        assertTrue(small.p < 0.01);
+        assertFalse(small.regressed());
+        // A 10% worse median, but round-to-round noise that overlaps: not significant
+        double[] noisy = {80, 150, 95, 160, 90, 140, 100, 155, 85, 145};
+        double[] noisier = {88, 165, 105, 176, 99, 154, 110, 170, 94, 160};
+        RegressionGate.Comparison noise = compare("invokeP99Ms", noisy, noisier).get(0);
+        assertTrue(noise.changePercent > 5);
+        assertFalse(noise.toString(), noise.regressed());
+    }
+}
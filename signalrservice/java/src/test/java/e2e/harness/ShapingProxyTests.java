@@ -0,0 +1,111 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// The shaping proxy in front of a raw TCP echo server, without a hub.
+public class ShapingProxyTests {
+    private static final long LATENCY_MILLIS = 20;
+
+    @Test
+    public void testUrl() throws IOException {
+        try (ShapingProxy proxy = ShapingProxy.start("localhost", 1, new ShapingProxy.Options())) {
+            assertEquals("http://localhost:" + proxy.port() + "/test?a=b", proxy.url("http://example.com:8080/test?a=b"));
+            assertEquals("ws://localhost:" + proxy.port() + "/hub", proxy.url("ws://example.com/hub"));
+            try {
+                proxy.url("https://example.com/test");
+                fail("The proxy cannot forward TLS");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testHubTargetClosesTheProxyOnTls() {
+        try {
+            HubTarget.of("https://localhost:1/test", new ShapingProxy.Options().latencyMillis(1));
+            fail("The proxy cannot forward TLS");
+        } catch (IllegalArgumentException expected) {
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertNotEquals("The rejected proxy's thread should have stopped", "shaping-proxy-io", thread.getName());
+        }
+    }
+
+    @Test
+    public void testIsEnabled() {
+        assertFalse(new ShapingProxy.Options().isEnabled());
+        assertTrue(new ShapingProxy.Options().latencyMillis(1).isEnabled());
+        assertFalse("A stall needs both a period and a length", new ShapingProxy.Options().stallEveryMillis(100).isEnabled());
+        assertTrue(new ShapingProxy.Options().stallEveryMillis(100).stallMillis(10).isEnabled());
+    }
+
+    @Test
+    public void testLatencyAndCut() throws Exception {
+        try (ServerSocket echo = new ServerSocket(0)) {
+            Thread server = new Thread(() -> echo(echo), "echo");
+            server.setDaemon(true);
+            server.start();
+            try (ShapingProxy proxy = ShapingProxy.start("localhost", echo.getLocalPort(),
+                    new ShapingProxy.Options().latencyMillis(LATENCY_MILLIS));
+                 Socket socket = new Socket("localhost", proxy.port())) {
+                socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10));
+                byte[] message = "shaped".getBytes(StandardCharsets.UTF_8);
+                long begin = System.nanoTime();
+                socket.getOutputStream().write(message);
+                byte[] echoed = new byte[message.length];
+                readFully(socket.getInputStream(), echoed);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+                assertArrayEquals("Bytes should pass through intact", message, echoed);
+                assertTrue("A round trip should take the latency both ways, took " + elapsedMillis + "ms",
+                    elapsedMillis >= 2 * LATENCY_MILLIS);
+                assertEquals((long) message.length, proxy.toMap().get("bytesToServer"));
+
+                assertEquals(1, proxy.cut());
+                try {
+                    assertEquals("A cut should close the connection", -1, socket.getInputStream().read());
+                } catch (IOException reset) {
+                    // A reset closes it too
+                }
+                // Counted after the write, on the thread that ran the cut
+                assertEquals((long) message.length, proxy.toMap().get("bytesToClient"));
+            }
+        }
+    }
+
+    private static void echo(ServerSocket server) {
+        try (Socket socket = server.accept()) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException ignored) {
+            // The proxy was cut or closed
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new IOException("Closed after " + offset + " bytes");
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// The soak's mix settings and CSV rows, without a hub.
+public class SoakMixTests {
+
+    @Test
+    public void testMixFromSystemProperties() {
+        System.setProperty("soak.mix", "echo=3, client_result=1,ClientStream=2");
+        try {
+            Soak.Options options = Soak.Options.fromSystemProperties();
+            assertEquals("Operations left out of soak.mix get weight 0", 0, (int) options.mix.get(Soak.Operation.INVOKE));
+            assertEquals(1, (int) options.mix.get(Soak.Operation.CLIENT_RESULT));
+            // In enum order: echo, invoke, stream, clientstream, clientresult
+            assertArrayEquals(new int[] {3, 3, 3, 5, 6}, options.cumulativeWeights());
+        } finally {
+            System.clearProperty("soak.mix");
+        }
+    }
+
+    @Test
+    public void testAllZeroMixIsRejected() {
+        System.setProperty("soak.mix", "echo=0,invoke=0");
+        try {
+            Soak.Options.fromSystemProperties().cumulativeWeights();
+            fail("A mix with no weight has nothing to pick");
+        } catch (IllegalArgumentException expected) {
+        } finally {
+            System.clearProperty("soak.mix");
+        }
+    }
+
+    @Test
+    public void testUnknownOperationIsRejected() {
+        try {
+            Soak.Operation.of("broadcast");
+            fail("broadcast is not part of the mix");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("'broadcast'"));
+        }
+    }
+
+    @Test
+    public void testCsvRowMatchesTheHeader() {
+        Soak.Sample sample = new Soak.Sample();
+        sample.elapsedMinutes = 1.5;
+        sample.operationsPerSecond = 200;
+        sample.errors = 2;
+        sample.skipped = 3;
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (Soak.Operation operation : Soak.Operation.values()) {
+            sample.latency.put(operation, recorder.histogram("soak", operation.name()));
+        }
+        sample.latency.get(Soak.Operation.ECHO).recordValue(TimeUnit.MILLISECONDS.toNanos(4));
+        sample.gcCount = 7;
+        sample.gcPauseTotalMs = 12.25;
+        sample.heapUsedMb = 64;
+        sample.connectionsLost = 1;
+
+        String header = Soak.Sample.header();
+        assertTrue(header, header.startsWith("elapsedMinutes,operationsPerSecond,errors,skipped,echoP50Ms,echoP99Ms,invokeP50Ms,"));
+        assertTrue(header, header.contains(",clientresultP50Ms,clientresultP99Ms,gcCount,"));
+
+        String row = sample.toCsv();
+        assertEquals(header.split(",").length, row.split(",").length);
+        // The histogram keeps three significant digits
+        assertTrue(row, row.matches("1\\.50,200\\.0,2,3,4\\.00\\d,4\\.00\\d,0\\.000,0\\.000,.*"));
+        assertTrue(row, row.endsWith(",7,12.3,0.0,64.0,0.0,1"));
+    }
+}
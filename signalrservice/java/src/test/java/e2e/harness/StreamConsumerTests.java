@@ -0,0 +1,52 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import io.reactivex.rxjava3.core.Observable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// The stream consumer, fed from a local Observable instead of StreamItems.
+public class StreamConsumerTests {
+
+    private static Observable<String> items(int count, int size) {
+        StringBuilder item = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            item.append('x');
+        }
+        return Observable.range(0, count).map(i -> item.toString());
+    }
+
+    @Test
+    public void testBufferedStreamDeliversEveryItem() {
+        StreamThroughput.Options options = new StreamThroughput.Options().items(5000).itemSize(16).bufferSize(8);
+        StreamThroughput.Result result = new StreamThroughput(options).consume(items(5000, 16));
+        assertNull(result.error());
+        assertEquals(5000, result.received());
+        assertEquals("Payload bytes are the string lengths", 5000 * 16, result.bytes);
+        assertTrue(result.elapsedNanos > 0);
+        assertEquals(5000, result.toMap().get("expected"));
+    }
+
+    @Test
+    public void testErrorEndsTheStream() {
+        StreamThroughput.Options options = new StreamThroughput.Options().items(10);
+        Observable<String> failing = items(3, 4).concatWith(Observable.error(new IllegalStateException("hub went away")));
+        StreamThroughput.Result result = new StreamThroughput(options).consume(failing);
+        // An error may overtake the items still buffered ahead of it
+        assertTrue(result.received() <= 3);
+        assertNotNull(result.error());
+        assertTrue(result.error(), result.error().contains("hub went away"));
+        assertEquals(result.error(), result.toMap().get("error"));
+    }
+
+    @Test
+    public void testIdleStreamTimesOut() {
+        StreamThroughput.Options options = new StreamThroughput.Options().items(10).idleTimeoutSeconds(1);
+        StreamThroughput.Result result = new StreamThroughput(options).consume(items(2, 4).concatWith(Observable.never()));
+        assertEquals(2, result.received());
+        assertNotNull("A stream that stops sending should fail, not hang", result.error());
+    }
+}
@@ -0,0 +1,61 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// Transport comparison arithmetic, without a hub.
+public class TransportRatioTests {
+
+    private static TransportComparison.Result result(Transport transport, long roundTripMillis, int echoes, long requests) {
+        TransportComparison.Result result = new TransportComparison.Result(Protocol.JSON, transport);
+        for (int i = 0; i < 10; i++) {
+            result.roundTrip.recordValue(TimeUnit.MILLISECONDS.toNanos(roundTripMillis));
+        }
+        for (int i = 0; i < echoes; i++) {
+            result.echo.recordValue(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        result.sent.set(echoes);
+        result.echoNanos = TimeUnit.SECONDS.toNanos(1);
+        result.echoRequests = requests;
+        return result;
+    }
+
+    @Test
+    public void testCompare() {
+        Map<String, Object> ratios = TransportComparison.compare(
+            result(Transport.WEBSOCKETS, 2, 1000, 0), result(Transport.LONG_POLLING, 8, 250, 500));
+        assertEquals(Transport.WEBSOCKETS.transportName(), ratios.get("baseline"));
+        assertEquals(Transport.LONG_POLLING.transportName(), ratios.get("fallback"));
+        assertEquals(4, (Double) ratios.get("roundTripP50Ratio"), 0.01);
+        assertEquals(4, (Double) ratios.get("roundTripP99Ratio"), 0.01);
+        assertEquals(0.25, (Double) ratios.get("throughputRatio"), 1e-9);
+        assertEquals(2, (Double) ratios.get("requestsPerMessage"), 1e-9);
+        assertEquals(0, (Double) ratios.get("baselineRequestsPerMessage"), 0);
+    }
+
+    @Test
+    public void testEmptyBaselineGivesZeroRatios() {
+        TransportComparison.Result empty = new TransportComparison.Result(Protocol.JSON, Transport.WEBSOCKETS);
+        Map<String, Object> ratios = TransportComparison.compare(empty, result(Transport.LONG_POLLING, 8, 250, 500));
+        assertEquals(0, (Double) ratios.get("roundTripP50Ratio"), 0);
+        assertEquals(0, (Double) ratios.get("throughputRatio"), 0);
+    }
+
+    @Test
+    public void testRequestsAreCountedByMethod() {
+        TransportComparison.Result result = result(Transport.LONG_POLLING, 8, 0, 0);
+        result.requests.put("GET", new AtomicInteger(3));
+        result.requests.put("POST", new AtomicInteger(4));
+        assertEquals(7, result.totalRequests());
+        assertEquals("Nothing sent, no requests per message", 0, result.requestsPerMessage(), 0);
+        assertEquals(4, ((Map<?, ?>) result.toMap().get("httpRequests")).get("POST"));
+    }
+}
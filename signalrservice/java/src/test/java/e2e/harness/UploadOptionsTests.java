@@ -0,0 +1,61 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.harness;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Upload settings and rates, without a hub.
+public class UploadOptionsTests {
+
+    @Test
+    public void testWindowMustCoverAnAck() {
+        new UploadThroughput.Options().ackEvery(100).window(100);
+        new UploadThroughput.Options().ackEvery(100).window(0);
+        try {
+            new UploadThroughput.Options().ackEvery(100).window(99);
+            fail("A window under ackEvery waits for an ack the hub never sends");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new UploadThroughput.Options().window(50).ackEvery(51);
+            fail("Raising ackEvery past the window should be rejected too");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new UploadThroughput.Options().window(-1);
+            fail("A negative window should be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testWindowFromSystemProperties() {
+        System.setProperty("upload.ackEvery", "500");
+        System.setProperty("upload.window", "100");
+        try {
+            UploadThroughput.Options.fromSystemProperties();
+            fail("upload.window under upload.ackEvery should be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("upload.window 100"));
+        } finally {
+            System.clearProperty("upload.ackEvery");
+            System.clearProperty("upload.window");
+        }
+    }
+
+    @Test
+    public void testItemsPerSecondCountsThePartialLastBatch() {
+        UploadThroughput.Options options = new UploadThroughput.Options().items(250).batchSize(100);
+        UploadThroughput.Result result = new UploadThroughput.Result(options, 3);
+        result.acknowledged = 3;
+        result.elapsedNanos = TimeUnit.SECONDS.toNanos(1);
+        assertEquals("Three batches carry 250 items, not 300", 250, result.itemsPerSecond(), 1e-9);
+        assertEquals(0, new UploadThroughput.Result(options, 3).itemsPerSecond(), 0);
+        assertEquals("A batch size below 1 sends single items", 1, new UploadThroughput.Options().batchSize(0).batchSize);
+    }
+}
@@ -0,0 +1,154 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Unit tests of the stand-in hub's JSON and MessagePack hub protocol codecs.
+public class HubCodecTests {
+
+    private static HubMessage roundTrip(HubCodec codec, HubMessage message) {
+        List<HubMessage> out = new ArrayList<>();
+        ByteBuffer data = ByteBuffer.wrap(codec.write(message));
+        codec.parse(data, out);
+        assertEquals(1, out.size());
+        assertFalse(data.hasRemaining());
+        return out.get(0);
+    }
+
+    private static ByteBuffer concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static HubMessage invocation() {
+        HubMessage message = HubMessage.invocation("7", "Echo", Arrays.asList((Object) "hello", 42L));
+        message.streamIds = Arrays.asList("1", "2");
+        return message;
+    }
+
+    @Test
+    public void testRoundTripsEveryMessageType() {
+        for (HubCodec codec : Arrays.asList(HubCodec.forName("json"), HubCodec.forName("messagepack"))) {
+            HubMessage invocation = roundTrip(codec, invocation());
+            assertEquals(HubMessage.INVOCATION, invocation.type);
+            assertEquals("7", invocation.invocationId);
+            assertEquals("Echo", invocation.target);
+            assertEquals(Arrays.asList("hello", 42L), invocation.arguments);
+            assertEquals(Arrays.asList("1", "2"), invocation.streamIds);
+
+            HubMessage item = roundTrip(codec, HubMessage.streamItem("3", Collections.singletonMap("k", "v")));
+            assertEquals(HubMessage.STREAM_ITEM, item.type);
+            assertEquals(Collections.singletonMap("k", "v"), item.item);
+
+            HubMessage result = roundTrip(codec, HubMessage.completion("4", 1.5));
+            assertTrue(result.hasResult);
+            assertEquals(1.5, result.result);
+
+            HubMessage nullResult = roundTrip(codec, HubMessage.completion("4", null));
+            assertTrue("A null result is still a result", nullResult.hasResult);
+
+            HubMessage voidResult = roundTrip(codec, HubMessage.voidCompletion("5"));
+            assertFalse(voidResult.hasResult);
+            assertNull(voidResult.error);
+
+            HubMessage error = roundTrip(codec, HubMessage.errorCompletion("6", "boom"));
+            assertEquals("boom", error.error);
+
+            HubMessage close = roundTrip(codec, HubMessage.close("bye", true));
+            assertEquals(HubMessage.CLOSE, close.type);
+            assertEquals("bye", close.error);
+            assertTrue(close.allowReconnect);
+
+            assertEquals(HubMessage.PING, roundTrip(codec, HubMessage.PING_MESSAGE).type);
+        }
+    }
+
+    @Test
+    public void testJsonSplitsOnRecordSeparator() {
+        HubCodec codec = HubCodec.forName("json");
+        byte[] first = codec.write(invocation());
+        byte[] second = codec.write(HubMessage.PING_MESSAGE);
+        assertEquals(JsonHubCodec.RECORD_SEPARATOR, first[first.length - 1]);
+
+        byte[] partial = Arrays.copyOf(first, 10);
+        ByteBuffer data = concat(first, second, partial);
+        List<HubMessage> out = new ArrayList<>();
+        codec.parse(data, out);
+        assertEquals(2, out.size());
+        assertEquals(HubMessage.PING, out.get(1).type);
+        assertEquals("The partial message stays in the buffer", first.length + second.length, data.position());
+    }
+
+    @Test
+    public void testJsonRejectsMalformedMessages() {
+        HubCodec codec = HubCodec.forName("json");
+        for (String malformed : new String[] {"[1]\u001e", "{\"target\":\"x\"}\u001e", "{\"type\":\u001e"}) {
+            try {
+                codec.parse(ByteBuffer.wrap(malformed.getBytes(StandardCharsets.UTF_8)), new ArrayList<>());
+                fail("Should reject " + malformed);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testMessagePackLengthPrefix() {
+        HubCodec codec = HubCodec.forName("messagepack");
+        byte[] small = codec.write(HubMessage.PING_MESSAGE);
+        assertEquals("One-byte varint prefix", small.length - 1, small[0]);
+
+        String payload = new String(new char[300]).replace('\0', 'x');
+        byte[] large = codec.write(HubMessage.streamItem("1", payload));
+        int length = (large[0] & 0x7f) | (large[1] & 0x7f) << 7;
+        assertTrue("Continuation bit on the first byte", (large[0] & 0x80) != 0);
+        assertEquals("Two-byte varint prefix", large.length - 2, length);
+
+        ByteBuffer data = concat(small, large, Arrays.copyOf(large, 1), new byte[0]);
+        List<HubMessage> out = new ArrayList<>();
+        codec.parse(data, out);
+        assertEquals(2, out.size());
+        assertEquals(payload, out.get(1).item);
+        assertEquals("A lone prefix byte waits for more data", small.length + large.length, data.position());
+
+        ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(large, large.length - 1));
+        out.clear();
+        codec.parse(truncated, out);
+        assertTrue(out.isEmpty());
+        assertEquals(0, truncated.position());
+    }
+
+    @Test
+    public void testMessagePackRejectsMalformedMessages() {
+        HubCodec codec = HubCodec.forName("messagepack");
+        byte[][] malformed = {
+            {0x01, (byte) 0xc1},           // unknown type byte
+            {0x01, (byte) 0x90},           // empty array
+            {0x02, (byte) 0x91, (byte) 0xa1}, // not a message array
+        };
+        for (byte[] input : malformed) {
+            try {
+                codec.parse(ByteBuffer.wrap(input), new ArrayList<>());
+                fail("Should reject " + Arrays.toString(input));
+            } catch (RuntimeException e) {
+                // Expected; HubClient closes the connection on any of these
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Unit tests of the stand-in hub's JSON reader/writer; they live in e2e.hub for package access.
+public class JsonTests {
+
+    @Test
+    public void testRoundTripsNestedValues() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("string", "text");
+        value.put("long", Long.MAX_VALUE);
+        value.put("negative", -42L);
+        value.put("double", 1.5);
+        value.put("true", true);
+        value.put("false", false);
+        value.put("null", null);
+        value.put("list", Arrays.asList(1L, "two", Arrays.asList(3L), Collections.emptyMap()));
+        value.put("empty", Collections.emptyList());
+
+        assertEquals(value, Json.parse(Json.write(value)));
+    }
+
+    @Test
+    public void testEscapesRoundTrip() {
+        String text = "quote\" backslash\\ newline\n tab\t cr\r bs\b ff\f control\u0001 unicode\u00e9\u4e2d";
+        String json = Json.write(text);
+        assertFalse("Control characters are escaped", json.contains("\u0001"));
+        assertEquals(text, Json.parse(json));
+        assertEquals("\u00e9", Json.parse("\"\\u00e9\""));
+        assertEquals("/", Json.parse("\"\\/\""));
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(0L, Json.parse("0"));
+        assertEquals(-7L, Json.parse("-7"));
+        assertEquals(2.5e3, Json.parse("2.5e3"));
+        assertEquals(1e20, Json.parse("100000000000000000000"));
+        assertEquals("null", Json.write(Double.NaN));
+        assertEquals("[1,2]", Json.write(new Object[] {1, 2}));
+    }
+
+    @Test
+    public void testWhitespace() {
+        assertEquals(Collections.singletonMap("a", Arrays.asList(1L, 2L)), Json.parse(" {\n \"a\" : [ 1 ,\t2 ] } "));
+    }
+
+    @Test
+    public void testRejectsMalformedInput() {
+        for (String malformed : new String[] {"", "{", "[1,", "[1 2]", "{\"a\" 1}", "{a:1}", "tru", "\"abc",
+            "\"\\u12\"", "1 2", "{\"a\":1,}x", "@"}) {
+            try {
+                Json.parse(malformed);
+                fail("Should reject " + malformed);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+// Unit tests of the stand-in hub's MessagePack reader/writer.
+public class MessagePackTests {
+
+    private static byte[] encode(Object value) {
+        return new MessagePack.Writer().write(value).toByteArray();
+    }
+
+    private static Object decode(byte... bytes) {
+        return MessagePack.read(ByteBuffer.wrap(bytes));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testIntegerWidths() {
+        // Value and the first byte of its smallest encoding
+        long[][] cases = {
+            {0, 0x00}, {127, 0x7f}, {128, 0xcc}, {255, 0xcc}, {256, 0xcd}, {65535, 0xcd}, {65536, 0xce},
+            {0xffffffffL, 0xce}, {0x100000000L, 0xcf}, {Long.MAX_VALUE, 0xcf},
+            {-1, 0xff}, {-32, 0xe0}, {-33, 0xd0}, {-128, 0xd0}, {-129, 0xd1}, {-32768, 0xd1}, {-32769, 0xd2},
+            {Integer.MIN_VALUE, 0xd2}, {Integer.MIN_VALUE - 1L, 0xd3}, {Long.MIN_VALUE, 0xd3},
+        };
+        for (long[] c : cases) {
+            byte[] encoded = encode(c[0]);
+            assertEquals("First byte of " + c[0], c[1], encoded[0] & 0xff);
+            assertEquals("Round trip of " + c[0], c[0], decode(encoded));
+        }
+    }
+
+    @Test
+    public void testStringBinaryAndContainerWidths() {
+        int[][] strings = {{0, 0xa0}, {31, 0xbf}, {32, 0xd9}, {255, 0xd9}, {256, 0xda}, {65535, 0xda}, {65536, 0xdb}};
+        for (int[] c : strings) {
+            String s = new String(new char[c[0]]).replace('\0', 'x');
+            byte[] encoded = encode(s);
+            assertEquals("Header of a " + c[0] + " byte string", c[1], encoded[0] & 0xff);
+            assertEquals(s, decode(encoded));
+        }
+        int[][] binaries = {{0, 0xc4}, {255, 0xc4}, {256, 0xc5}, {65536, 0xc6}};
+        for (int[] c : binaries) {
+            byte[] value = new byte[c[0]];
+            Arrays.fill(value, (byte) 7);
+            byte[] encoded = encode(value);
+            assertEquals(c[1], encoded[0] & 0xff);
+            assertArrayEquals(value, (byte[]) decode(encoded));
+        }
+        for (int size : new int[] {15, 16, 65536}) {
+            List<Object> list = new ArrayList<>(Collections.nCopies(size, (Object) 1L));
+            assertEquals(list, decode(encode(list)));
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put("k" + i, (long) i);
+            }
+            assertEquals(map, decode(encode(map)));
+        }
+    }
+
+    @Test
+    public void testScalars() {
+        assertNull(decode(encode(null)));
+        assertEquals(true, decode(encode(true)));
+        assertEquals(false, decode(encode(false)));
+        assertEquals(1.25, decode(encode(1.25)));
+        assertEquals(1.25, decode(encode(1.25f)));
+        assertEquals("unicode \u00e9\u4e2d", decode(encode("unicode \u00e9\u4e2d")));
+    }
+
+    @Test
+    public void testExtensionsReadAsPayload() {
+        assertArrayEquals(bytes(0x2a), (byte[]) decode(bytes(0xd4, 0x01, 0x2a)));
+        assertArrayEquals(bytes(1, 2), (byte[]) decode(bytes(0xd5, 0x01, 1, 2)));
+        assertArrayEquals(bytes(1, 2, 3, 4), (byte[]) decode(bytes(0xd6, 0xff, 1, 2, 3, 4)));
+        assertArrayEquals(new byte[8], (byte[]) decode(bytes(0xd7, 0xff, 0, 0, 0, 0, 0, 0, 0, 0)));
+        assertEquals(16, ((byte[]) decode(ByteBuffer.allocate(18).put((byte) 0xd8).array())).length);
+        assertArrayEquals(bytes(9, 9, 9), (byte[]) decode(bytes(0xc7, 0x03, 0x05, 9, 9, 9)));
+        assertArrayEquals(bytes(9), (byte[]) decode(bytes(0xc8, 0x00, 0x01, 0x05, 9)));
+        assertArrayEquals(bytes(9), (byte[]) decode(bytes(0xc9, 0, 0, 0, 1, 0x05, 9)));
+    }
+
+    @Test
+    public void testReadsOneValueAndLeavesTheRest() {
+        ByteBuffer in = ByteBuffer.wrap(bytes(0x01, 0x02));
+        assertEquals(1L, MessagePack.read(in));
+        assertEquals(1, in.remaining());
+    }
+
+    @Test
+    public void testRejectsMalformedInput() {
+        byte[][] malformed = {
+            bytes(),
+            bytes(0xcd, 0x01),                              // truncated uint16
+            bytes(0xc1),                                    // never used
+            bytes(0xa5, 'a', 'b'),                          // fixstr longer than the input
+            bytes(0xdb, 0xff, 0xff, 0xff, 0xff, 'a'),       // str32 with a negative length
+            bytes(0xdd, 0x7f, 0xff, 0xff, 0xff),            // array32 far larger than the input
+            bytes(0xdf, 0x7f, 0xff, 0xff, 0xff),            // map32 far larger than the input
+            bytes(0xc6, 0x00, 0x10, 0x00, 0x00, 0x01),      // bin32 longer than the input
+            bytes(0x92, 0x01),                              // array missing an item
+        };
+        for (byte[] input : malformed) {
+            try {
+                decode(input);
+                fail("Should reject " + Arrays.toString(input));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+// Licensed to the .NET Foundation under one or more agreements.
+// The .NET Foundation licenses this file to you under the MIT license.
+
+package e2e.hub;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Drives the stand-in hub's HTTP, WebSocket framing and long-polling code over raw sockets, the
+// way a client would, without the SignalR client.
+public class StandInHubTransportTests {
+    private static final String HANDSHAKE = "{\"protocol\":\"json\",\"version\":1}\u001e";
+    private static final byte[] MASK = {0x11, 0x22, 0x33, 0x44};
+
+    private StandInHub hub;
+    private Socket socket;
+    private DataInputStream in;
+    private OutputStream out;
+
+    @Before
+    public void setUp() throws Exception {
+        hub = StandInHub.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (socket != null) {
+            socket.close();
+        }
+        hub.close();
+    }
+
+    private static String echo(String message) {
+        return "{\"type\":1,\"target\":\"Echo\",\"arguments\":[" + Json.write(message) + ",1]}\u001e";
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Opens a WebSocket without negotiate and completes the JSON hub handshake. */
+    private void connect() throws IOException {
+        socket = new Socket("localhost", hub.port());
+        socket.setSoTimeout(10000);
+        in = new DataInputStream(socket.getInputStream());
+        out = socket.getOutputStream();
+        out.write(utf8("GET /test HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+            + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n"));
+        String head = readHead(in);
+        assertTrue(head, head.startsWith("HTTP/1.1 101"));
+        // The accept key from RFC 6455's own example
+        assertTrue(head, head.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo="));
+        sendFrame(true, 0x1, utf8(HANDSHAKE));
+        assertEquals("{}\u001e", new String(readFrame().payload, StandardCharsets.UTF_8));
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (true) {
+            head.write(in.read());
+            byte[] bytes = head.toByteArray();
+            int n = bytes.length;
+            if (n >= 4 && bytes[n - 4] == '\r' && bytes[n - 3] == '\n' && bytes[n - 2] == '\r' && bytes[n - 1] == '\n') {
+                return new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+        }
+    }
+
+    /** Writes one masked client frame, choosing the 7-, 16- or 64-bit length form like a client. */
+    private void sendFrame(boolean fin, int opcode, byte[] payload) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write((fin ? 0x80 : 0) | opcode);
+        int length = payload.length;
+        if (length < 126) {
+            frame.write(0x80 | length);
+        } else if (length < 0x10000) {
+            frame.write(0x80 | 126);
+            frame.write(length >>> 8);
+            frame.write(length);
+        } else {
+            frame.write(0x80 | 127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                frame.write((int) ((long) length >>> shift));
+            }
+        }
+        frame.write(MASK);
+        for (int i = 0; i < length; i++) {
+            frame.write(payload[i] ^ MASK[i & 3]);
+        }
+        out.write(frame.toByteArray());
+        out.flush();
+    }
+
+    private static final class Frame {
+        int opcode;
+        int lengthCode;
+        byte[] payload;
+    }
+
+    private Frame readFrame() throws IOException {
+        Frame frame = new Frame();
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        assertTrue("Server frames are final", (b0 & 0x80) != 0);
+        assertEquals("Server frames are not masked", 0, b1 & 0x80);
+        frame.opcode = b0 & 0x0f;
+        frame.lengthCode = b1 & 0x7f;
+        long length = frame.lengthCode == 126 ? in.readUnsignedShort() : frame.lengthCode == 127 ? in.readLong() : frame.lengthCode;
+        frame.payload = new byte[(int) length];
+        in.readFully(frame.payload);
+        return frame;
+    }
+
+    /** Next hub message that is not a keep-alive ping. */
+    private Map<?, ?> readMessage() throws IOException {
+        while (true) {
+            Frame frame = readFrame();
+            String text = new String(frame.payload, StandardCharsets.UTF_8);
+            assertTrue(text, text.endsWith("\u001e"));
+            Map<?, ?> message = (Map<?, ?>) Json.parse(text.substring(0, text.length() - 1));
+            if (!Long.valueOf(HubMessage.PING).equals(message.get("type"))) {
+                return message;
+            }
+        }
+    }
+
+    private void assertEchoBack(String expected) throws IOException {
+        Map<?, ?> message = readMessage();
+        assertEquals("EchoBack", message.get("target"));
+        assertEquals(expected, ((List<?>) message.get("arguments")).get(0));
+    }
+
+    @Test
+    public void testMaskedSmallFrame() throws Exception {
+        connect();
+        sendFrame(true, 0x1, utf8(echo("hello")));
+        assertEchoBack("hello");
+    }
+
+    @Test
+    public void testSixteenBitLength() throws Exception {
+        connect();
+        String message = new String(new char[300]).replace('\0', 'a');
+        sendFrame(true, 0x1, utf8(echo(message)));
+        Frame frame = readFrame();
+        assertEquals(126, frame.lengthCode);
+        assertTrue(new String(frame.payload, StandardCharsets.UTF_8).contains(message));
+    }
+
+    @Test
+    public void testSixtyFourBitLength() throws Exception {
+        connect();
+        String message = new String(new char[70000]).replace('\0', 'b');
+        sendFrame(true, 0x1, utf8(echo(message)));
+        Frame frame = readFrame();
+        assertEquals(127, frame.lengthCode);
+        assertTrue(new String(frame.payload, StandardCharsets.UTF_8).contains(message));
+    }
+
+    @Test
+    public void testFragmentedMessage() throws Exception {
+        connect();
+        byte[] message = utf8(echo("fragmented"));
+        int third = message.length / 3;
+        sendFrame(false, 0x1, Arrays.copyOfRange(message, 0, third));
+        sendFrame(false, 0x0, Arrays.copyOfRange(message, third, 2 * third));
+        // A control frame may arrive between fragments
+        sendFrame(true, 0x9, utf8("ping"));
+        Frame pong = readFrame();
+        assertEquals(0xA, pong.opcode);
+        assertEquals("ping", new String(pong.payload, StandardCharsets.UTF_8));
+        sendFrame(true, 0x0, Arrays.copyOfRange(message, 2 * third, message.length));
+        assertEchoBack("fragmented");
+    }
+
+    @Test
+    public void testRecordSeparatorFraming() throws Exception {
+        connect();
+        // Two messages in one frame
+        sendFrame(true, 0x1, utf8(echo("first") + echo("second")));
+        assertEchoBack("first");
+        assertEchoBack("second");
+        // One message across two frames
+        byte[] message = utf8(echo("split"));
+        sendFrame(true, 0x1, Arrays.copyOf(message, 5));
+        sendFrame(true, 0x1, Arrays.copyOfRange(message, 5, message.length));
+        assertEchoBack("split");
+    }
+
+    @Test
+    public void testOversizedFrameIsRefused() throws Exception {
+        connect();
+        out.write(new byte[] {(byte) 0x81, (byte) (0x80 | 127), 0, 0, 0, 0, 0x10, 0, 0, 0});
+        out.flush();
+        Frame close = readFrame();
+        assertEquals(0x8, close.opcode);
+        assertEquals("Message too big", 1009, ((close.payload[0] & 0xff) << 8) | (close.payload[1] & 0xff));
+    }
+
+    @Test
+    public void testCloseFrameIsAnswered() throws Exception {
+        connect();
+        sendFrame(true, 0x8, new byte[] {0x03, (byte) 0xe8});
+        Frame close = readFrame();
+        assertEquals(0x8, close.opcode);
+        assertEquals(1000, ((close.payload[0] & 0xff) << 8) | (close.payload[1] & 0xff));
+    }
+
+    @Test
+    public void testMalformedHubMessageClosesConnection() throws Exception {
+        connect();
+        sendFrame(true, 0x1, utf8("{\"type\":\u001e"));
+        Map<?, ?> close = readMessage();
+        assertEquals((long) HubMessage.CLOSE, close.get("type"));
+    }
+
+    private static String http(String method, String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setReadTimeout(10000);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.getOutputStream().write(utf8(body));
+        }
+        assertTrue(method + " " + url + " returned " + connection.getResponseCode(), connection.getResponseCode() < 300);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream stream = connection.getInputStream()) {
+            int b;
+            while ((b = stream.read()) >= 0) {
+                content.write(b);
+            }
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLongPolling() throws Exception {
+        String url = hub.url("/test");
+        Map<?, ?> negotiate = (Map<?, ?>) Json.parse(http("POST", url + "/negotiate?negotiateVersion=1", ""));
+        String id = url + "?id=" + negotiate.get("connectionToken");
+        assertEquals("The first poll attaches the transport", "", http("GET", id, null));
+        http("POST", id, HANDSHAKE);
+        assertEquals("{}\u001e", http("GET", id, null));
+        http("POST", id, echo("polled"));
+        String polled = http("GET", id, null);
+        assertTrue(polled, polled.contains("\"EchoBack\"") && polled.contains("\"polled\""));
+        http("DELETE", id, null);
+    }
+
+    @Test
+    public void testUnclaimedNegotiationExpires() throws Exception {
+        hub.negotiateTimeoutMillis = 100;
+        http("POST", hub.url("/test") + "/negotiate?negotiateVersion=1", "");
+        assertEquals(1, hub.pendingNegotiations());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hub.pendingNegotiations() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("Negotiated ids no transport claims are dropped", 0, hub.pendingNegotiations());
+    }
+}
@@ -1,3 +1,4 @@
+using System.Diagnostics;
 using System.Runtime.CompilerServices;
 using Microsoft.AspNetCore.SignalR;
 
@@ -5,6 +6,16 @@ namespace IntegrationTest.Hubs;
 
 public class TestHub : Hub
 {
+    // Clients pass ?run=<id> so parallel test workers sharing this server (or one Azure SignalR
+    // hub) each get their own group; fan-out goes to RunGroup, never to Clients.All.
+    protected string RunGroup => "run:" + (Context.GetHttpContext()?.Request.Query["run"].ToString() ?? "");
+
+    public override async Task OnConnectedAsync()
+    {
+        await Groups.AddToGroupAsync(Context.ConnectionId, RunGroup);
+        await base.OnConnectedAsync();
+    }
+
     public async Task Echo(string message1, object message2)
         => await Clients.Client(Context.ConnectionId).SendAsync("EchoBack", message1, message2);
     
@@ -58,5 +69,108 @@ public class TestHub : Hub
         yield return "b";
         yield return "c";
     }
+
+    // Streaming throughput: count items of size characters each.
+    public async IAsyncEnumerable<string> StreamItems(int count, int size, [EnumeratorCancellation] CancellationToken cancellationToken)
+    {
+        var item = new string('x', size);
+        for (var i = 0; i < count && !cancellationToken.IsCancellationRequested; i++)
+        {
+            yield return item;
+        }
+    }
+
+    // Client-result throughput: invokes ClientResult(message) on the caller count times with up to
+    // concurrency invocations in flight. Returns each round trip in microseconds, -1 for failures.
+    public async Task<long[]> InvokeClientResults(string message, int count, int concurrency)
+    {
+        var latencies = new long[count];
+        var next = -1;
+        var caller = Clients.Client(Context.ConnectionId);
+
+        async Task Worker()
+        {
+            int i;
+            while ((i = Interlocked.Increment(ref next)) < count)
+            {
+                var start = Stopwatch.GetTimestamp();
+                try
+                {
+                    await caller.InvokeAsync<string>("ClientResult", message, CancellationToken.None);
+                    latencies[i] = (long)Stopwatch.GetElapsedTime(start).TotalMicroseconds;
+                }
+                catch (Exception)
+                {
+                    latencies[i] = -1;
+                }
+            }
+        }
+
+        await Task.WhenAll(Enumerable.Range(0, Math.Max(1, Math.Min(concurrency, count))).Select(_ => Worker()));
+        return latencies;
+    }
+
+    // Fan-out: groups live inside the caller's run group, so parallel runs never share one.
+    public Task JoinGroup(string group)
+        => Groups.AddToGroupAsync(Context.ConnectionId, RunGroup + "/" + group);
+
+    public Task LeaveGroup(string group)
+        => Groups.RemoveFromGroupAsync(Context.ConnectionId, RunGroup + "/" + group);
+
+    public Task SendToGroup(string group, string message, object sentAt)
+        => Clients.Group(RunGroup + "/" + group).SendAsync("GroupMessage", group, message, sentAt);
+
+    // Every connection of the run, the sender included; the run-scoped stand-in for Clients.All.
+    public Task Broadcast(string message, object sentAt)
+        => Clients.Group(RunGroup).SendAsync("BroadcastMessage", message, sentAt);
+
+    // Upload throughput: counts client-streamed items and acknowledges every ackEvery messages
+    // (and the last one) by sending UploadAck(messagesReceived) to the caller.
+    public Task<int> Upload(int ackEvery, IAsyncEnumerable<string> stream)
+        => CountUpload(ackEvery, stream, _ => 1);
+
+    public Task<int> UploadBatches(int ackEvery, IAsyncEnumerable<string[]> stream)
+        => CountUpload(ackEvery, stream, batch => batch.Length);
+
+    // Same as Upload, with the acknowledgments as the items of a server-to-client stream.
+    public IAsyncEnumerable<int> UploadWithAcks(int ackEvery, IAsyncEnumerable<string> stream)
+        => StreamUploadAcks(ackEvery, stream);
+
+    public IAsyncEnumerable<int> UploadBatchesWithAcks(int ackEvery, IAsyncEnumerable<string[]> stream)
+        => StreamUploadAcks(ackEvery, stream);
+
+    private async Task<int> CountUpload<T>(int ackEvery, IAsyncEnumerable<T> stream, Func<T, int> itemCount)
+    {
+        int messages = 0, items = 0;
+        await foreach (var message in stream)
+        {
+            items += itemCount(message);
+            if (++messages % ackEvery == 0)
+            {
+                await Clients.Caller.SendAsync("UploadAck", messages);
+            }
+        }
+        if (messages % ackEvery != 0 || messages == 0)
+        {
+            await Clients.Caller.SendAsync("UploadAck", messages);
+        }
+        return items;
+    }
+
+    private static async IAsyncEnumerable<int> StreamUploadAcks<T>(int ackEvery, IAsyncEnumerable<T> stream)
+    {
+        int messages = 0;
+        await foreach (var _ in stream)
+        {
+            if (++messages % ackEvery == 0)
+            {
+                yield return messages;
+            }
+        }
+        if (messages % ackEvery != 0 || messages == 0)
+        {
+            yield return messages;
+        }
+    }
         
 }
\ No newline at end of file
@@ -5,7 +5,8 @@ using Microsoft.Azure.SignalR;
 
 var builder = WebApplication.CreateBuilder(args);
 builder.Services
-    .AddSignalR()
+    // The Java payload matrix sends megabyte messages; the default limit is 32 KB.
+    .AddSignalR(options => options.MaximumReceiveMessageSize = 64 * 1024 * 1024)
 #if USE_AZURE_SIGNALR
     .AddAzureSignalR(options =>
     {